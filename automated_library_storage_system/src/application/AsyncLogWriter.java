@@ -0,0 +1,150 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single consumer behind a bounded queue. Producers only enqueue; the writer
+ * thread drains in batches into the {@link LogSink} and flushes once per batch.
+ */
+class AsyncLogWriter {
+    private static final int MAX_BATCH = 512;
+    private static final int SAMPLE_RATE = 10;
+
+    private final BlockingQueue<LogRecord> queue;
+    private final Logger.OverflowPolicy policy;
+    private final LogSink sink;
+    private final Thread thread;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private long written = 0;
+    private volatile boolean running = true;
+
+    AsyncLogWriter(LogSink sink, int capacity, Logger.OverflowPolicy policy) {
+        this.sink = sink;
+        this.policy = policy;
+        this.queue = new ArrayBlockingQueue<>(Math.max(16, capacity));
+        this.thread = new Thread(this::run, "log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    boolean offer(LogRecord record) {
+        if (!running) {
+            return false;
+        }
+        if (queue.offer(record)) {
+            submitted.incrementAndGet();
+            return true;
+        }
+
+        switch (policy) {
+            case DROP_DEBUG:
+                if ("DEBUG".equals(record.getLevel())) {
+                    dropped.incrementAndGet();
+                    return true;
+                }
+                break;
+            case SAMPLE:
+                if (!isSevere(record.getLevel()) && overflowCount.incrementAndGet() % SAMPLE_RATE != 0) {
+                    dropped.incrementAndGet();
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+
+        try {
+            while (!queue.offer(record, 100, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    return false;
+                }
+            }
+            submitted.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+        }
+        return true;
+    }
+
+    void flush() {
+        long target = submitted.get();
+        synchronized (this) {
+            while (written < target && thread.isAlive()) {
+                try {
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void close() {
+        running = false;
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<LogRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            int count = 0;
+            try {
+                LogRecord first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                count = batch.size();
+
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    batch.add(new LogRecord(System.currentTimeMillis(), Logger.Scope.SYSTEM, "all", "WARN",
+                            "Log queue full, dropped " + lost + " records (policy: " + policy + ")"));
+                }
+
+                sink.write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+                if (count > 0) {
+                    markWritten(count);
+                }
+            }
+        }
+        sink.flush();
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private synchronized void markWritten(int count) {
+        written += count;
+        notifyAll();
+    }
+
+    private static boolean isSevere(String level) {
+        return "ERROR".equals(level) || "WARN".equals(level);
+    }
+}
@@ -0,0 +1,53 @@
+package application;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the byte-stream-*.bin files.
+ *
+ * <pre>
+ * header : magic "ALB" + version byte
+ * entry  : DICT   id:varint len:varint utf8
+ *          RECORD millis:long scope:byte level:byte [levelId:varint] nameId:varint len:varint utf8
+ * </pre>
+ *
+ * A zero type byte marks the logical end of the file (the tail of the last
+ * mapped segment is zero filled until the writer truncates it on close).
+ */
+final class BinaryLogFormat {
+    static final byte[] MAGIC = { 'A', 'L', 'B', 1 };
+    static final byte TYPE_END = 0;
+    static final byte TYPE_DICT = 1;
+    static final byte TYPE_RECORD = 2;
+
+    static final String[] LEVELS = { "DEBUG", "INFO", "WARN", "ERROR" };
+    static final byte LEVEL_OTHER = 0x7F;
+
+    private BinaryLogFormat() {}
+
+    static byte levelCode(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(level)) {
+                return (byte) i;
+            }
+        }
+        return LEVEL_OTHER;
+    }
+
+    static void putVarInt(ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
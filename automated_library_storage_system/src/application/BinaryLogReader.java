@@ -0,0 +1,166 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Decodes a byte-stream-*.bin file written by {@link BinaryLogWriter}.
+ * Reading stops cleanly at the logical end or at a torn trailing entry.
+ */
+public class BinaryLogReader implements Iterator<LogRecord>, Closeable {
+    private static final Logger.Scope[] SCOPES = Logger.Scope.values();
+
+    private final DataInputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+    private LogRecord next;
+    private boolean finished = false;
+    private long position = 0;
+    private long committed = 0;
+
+    private BinaryLogReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    public static BinaryLogReader open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(LogFiles.open(file), 64 * 1024));
+        BinaryLogReader reader = new BinaryLogReader(in);
+        try {
+            for (byte b : BinaryLogFormat.MAGIC) {
+                if (in.readByte() != b) {
+                    throw new IOException("Not a binary log file: " + file);
+                }
+            }
+        } catch (EOFException e) {
+            in.close();
+            throw new IOException("Not a binary log file: " + file, e);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        reader.position = BinaryLogFormat.MAGIC.length;
+        reader.committed = reader.position;
+        return reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public LogRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LogRecord record = next;
+        next = null;
+        return record;
+    }
+
+    /** Offset just past the last complete entry that has been read. */
+    public long position() {
+        return committed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    Map<String, Integer> dictionaryIds() {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < dictionary.size(); i++) {
+            ids.put(dictionary.get(i), i);
+        }
+        return ids;
+    }
+
+    private LogRecord readNext() {
+        try {
+            while (true) {
+                byte type = readByte();
+                if (type == BinaryLogFormat.TYPE_DICT) {
+                    int id = readVarInt();
+                    String value = readString();
+                    while (dictionary.size() <= id) {
+                        dictionary.add(null);
+                    }
+                    dictionary.set(id, value);
+                    committed = position;
+                } else if (type == BinaryLogFormat.TYPE_RECORD) {
+                    long millis = readLong();
+                    int scope = readByte();
+                    byte levelCode = readByte();
+                    String level = levelCode == BinaryLogFormat.LEVEL_OTHER
+                            ? lookup(readVarInt()) : BinaryLogFormat.LEVELS[levelCode];
+                    String name = lookup(readVarInt());
+                    String message = readString();
+                    committed = position;
+                    return new LogRecord(millis, SCOPES[scope], name, level, message);
+                } else {
+                    finished = true;
+                    return null;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            finished = true;
+            return null;
+        }
+    }
+
+    private String lookup(int id) throws IOException {
+        if (id < 0 || id >= dictionary.size() || dictionary.get(id) == null) {
+            throw new IOException("Unknown dictionary id " + id);
+        }
+        return dictionary.get(id);
+    }
+
+    private byte readByte() throws IOException {
+        byte b = in.readByte();
+        position++;
+        return b;
+    }
+
+    private long readLong() throws IOException {
+        long v = in.readLong();
+        position += 8;
+        return v;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > BinaryLogWriter.SEGMENT_SIZE * 4) {
+            throw new IOException("Malformed length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        position += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends {@link BinaryLogFormat} entries to a day file through memory-mapped
+ * segments. Not thread safe; {@link LogSink} serialises access.
+ */
+class BinaryLogWriter {
+    static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+
+    BinaryLogWriter(Path file) throws IOException {
+        this.file = file;
+        long end = recover(file);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (end == 0) {
+            mapSegment(0, SEGMENT_SIZE);
+            segment.put(BinaryLogFormat.MAGIC);
+        } else {
+            mapSegment(end, SEGMENT_SIZE);
+        }
+    }
+
+    void append(LogRecord record) throws IOException {
+        int nameId = intern(record.getName());
+        byte level = BinaryLogFormat.levelCode(record.getLevel());
+        int levelId = level == BinaryLogFormat.LEVEL_OTHER ? intern(record.getLevel()) : -1;
+        String message = record.getMessage() == null ? "" : record.getMessage();
+        int length = LogLineEncoder.utf8Length(message);
+
+        ByteBuffer buf = scratch(1 + 8 + 2 + 5 + 5 + 5 + length);
+        buf.put(BinaryLogFormat.TYPE_RECORD);
+        buf.putLong(record.getTimestamp());
+        buf.put((byte) record.getScope().ordinal());
+        buf.put(level);
+        if (levelId >= 0) {
+            BinaryLogFormat.putVarInt(buf, levelId);
+        }
+        BinaryLogFormat.putVarInt(buf, nameId);
+        BinaryLogFormat.putVarInt(buf, length);
+        LogLineEncoder.putUtf8(buf, message);
+        put(buf);
+    }
+
+    long size() {
+        return segmentStart + segment.position();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    void close() throws IOException {
+        long end = size();
+        segment = null;
+        channel.truncate(end);
+        channel.close();
+    }
+
+    private int intern(String value) throws IOException {
+        String key = value == null ? "all" : value;
+        Integer id = dictionary.get(key);
+        if (id != null) {
+            return id;
+        }
+        id = dictionary.size();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = scratch(1 + 5 + 5 + bytes.length);
+        buf.put(BinaryLogFormat.TYPE_DICT);
+        BinaryLogFormat.putVarInt(buf, id);
+        BinaryLogFormat.putVarInt(buf, bytes.length);
+        buf.put(bytes);
+        put(buf);
+        dictionary.put(key, id);
+        return id;
+    }
+
+    private ByteBuffer scratch(int capacity) {
+        if (scratch.capacity() < capacity) {
+            scratch = ByteBuffer.allocate(Math.max(capacity, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        return scratch;
+    }
+
+    private void put(ByteBuffer buf) throws IOException {
+        buf.flip();
+        if (segment.remaining() < buf.remaining() + 1) {
+            mapSegment(size(), Math.max(SEGMENT_SIZE, buf.remaining() + 1));
+        }
+        segment.put(buf);
+    }
+
+    private void mapSegment(long start, int length) throws IOException {
+        segmentStart = start;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+    }
+
+    private long recover(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return 0;
+        }
+        try (BinaryLogReader reader = BinaryLogReader.open(file)) {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            dictionary.putAll(reader.dictionaryIds());
+            return reader.position();
+        } catch (IOException e) {
+            Path legacy = file.resolveSibling(file.getFileName().toString().replace(".bin", ".legacy.bin"));
+            Files.move(file, legacy, StandardCopyOption.REPLACE_EXISTING);
+            dictionary.clear();
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package application;
+
+/**
+ * Layout of the binary store.bin snapshot and its shard files.
+ *
+ * <pre>
+ * header   : magic "ALS" + version byte
+ *            books:varint shelves:varint robots:varint stations:varint tasks:varint
+ *            [v2: chargingQueue:varint]
+ *            journalGeneration:varlong shards:varint config:str (JSON of SystemConfig)
+ * book     : id:str title:str author:ref category:ref shelfId:ref status:ref
+ * shelf    : id:ref name:str category:ref distance:varint maxCapacity:varint
+ *            n:varint bookId:str * n
+ * robot    : id:str charge:float32 executionDuration:float32 [v3: docked:byte]
+ * station  : id:str name:str numSlots:varint
+ * task     : taskId:str taskName:str description:str priority:ref status:ref assignedTo:ref
+ *            [v2: bookId:str durationSeconds:varint batteryRequired:float32 createdAt:varlong]
+ * charging : robotId:ref  (v2)
+ * trailer  : crc32 of every preceding byte, big endian
+ *
+ * str      : varint length+1 (0 = null) + utf8
+ * ref      : varint 0 = null, 1 = new dictionary entry (length:varint utf8 follows),
+ *            k + 2 = dictionary entry k
+ * </pre>
+ *
+ * Sections follow the header in the order above with exactly the counted
+ * number of entries, so a reader can size its lists up front. Repeated
+ * values (authors, categories, shelf ids, statuses) are written once and
+ * referenced afterwards; unique ones (ids, titles) are written inline.
+ * Version 1 files, without the scheduler fields, and version 2 files,
+ * without docking, are still read.
+ */
+final class BinaryStateFormat {
+    static final int VERSION = 3;
+    static final byte[] MAGIC = { 'A', 'L', 'S', VERSION };
+    static final int REF_NULL = 0;
+    static final int REF_NEW = 1;
+    static final int REF_BASE = 2;
+
+    private BinaryStateFormat() {}
+}
@@ -0,0 +1,235 @@
+package application;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Decodes a file written by {@link BinaryStateWriter} into the DTO lists of a
+ * {@link SystemState}. The whole file is checked against its CRC trailer
+ * before anything is decoded, so a torn or corrupted snapshot is rejected
+ * rather than half applied.
+ */
+class BinaryStateReader {
+    private final byte[] data;
+    private final int end;
+    private final int version;
+    private final List<String> dictionary = new ArrayList<>();
+    private int position;
+
+    private BinaryStateReader(byte[] data, int version) {
+        this.data = data;
+        this.version = version;
+        this.end = data.length - 4;
+    }
+
+    static SystemState read(Path path, Gson gson) throws IOException {
+        SystemState state = new SystemState();
+        read(path, gson, state);
+        return state;
+    }
+
+    /**
+     * Appends the entities in {@code path} to the lists of {@code state}; the
+     * header fields and config replace those of {@code state} only when present.
+     */
+    static void read(Path path, Gson gson, SystemState state) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        if (data.length < BinaryStateFormat.MAGIC.length + 4) {
+            throw new IOException("Not a binary state file: " + path);
+        }
+        int last = BinaryStateFormat.MAGIC.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (data[i] != BinaryStateFormat.MAGIC[i]) {
+                throw new IOException("Not a binary state file: " + path);
+            }
+        }
+        int version = data[last];
+        if (version < 1 || version > BinaryStateFormat.VERSION) {
+            throw new IOException("Unsupported binary state version " + version + " in " + path);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+            throw new IOException("Checksum mismatch in " + path);
+        }
+        BinaryStateReader reader = new BinaryStateReader(data, version);
+        reader.position = BinaryStateFormat.MAGIC.length;
+        reader.readState(gson, state);
+    }
+
+    private void readState(Gson gson, SystemState state) throws IOException {
+        int books = readCount();
+        int shelves = readCount();
+        int robots = readCount();
+        int stations = readCount();
+        int tasks = readCount();
+        int charging = version >= 2 ? readCount() : 0;
+        long journalGeneration = readVarLong();
+        int shards = readVarInt();
+        String config = readString();
+        if (config != null) {
+            state.setConfig(gson.fromJson(config, SystemConfig.class));
+            state.setJournalGeneration(journalGeneration);
+            state.setShards(shards);
+        }
+
+        ensureCapacity(state.getBooks(), books);
+        for (int i = 0; i < books; i++) {
+            SystemState.BookData book = new SystemState.BookData();
+            book.setId(readString());
+            book.setTitle(readString());
+            book.setAuthor(readRef());
+            book.setCategory(readRef());
+            book.setShelfId(readRef());
+            book.setStatus(readRef());
+            state.getBooks().add(book);
+        }
+        for (int i = 0; i < shelves; i++) {
+            SystemState.ShelfData shelf = new SystemState.ShelfData();
+            shelf.setId(readRef());
+            shelf.setName(readString());
+            shelf.setCategory(readRef());
+            shelf.setDistance(readVarInt());
+            shelf.setMaxCapacity(readVarInt());
+            int n = readCount();
+            List<String> bookIds = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                bookIds.add(readString());
+            }
+            shelf.setBookIds(bookIds);
+            state.getShelves().add(shelf);
+        }
+        for (int i = 0; i < robots; i++) {
+            SystemState.RobotData robot = new SystemState.RobotData();
+            robot.setId(readString());
+            robot.setCurrentChargePercent(readFloat());
+            robot.setExecutionDuration(readFloat());
+            if (version >= 3) {
+                robot.setDocked(readByte() != 0);
+            }
+            state.getRobots().add(robot);
+        }
+        for (int i = 0; i < stations; i++) {
+            SystemState.ChargingStationData station = new SystemState.ChargingStationData();
+            station.setId(readString());
+            station.setName(readString());
+            station.setNumSlots(readVarInt());
+            state.getStations().add(station);
+        }
+        for (int i = 0; i < tasks; i++) {
+            SystemState.TaskData task = new SystemState.TaskData();
+            task.setTaskId(readString());
+            task.setTaskName(readString());
+            task.setDescription(readString());
+            task.setPriority(readRef());
+            task.setStatus(readRef());
+            task.setAssignedTo(readRef());
+            if (version >= 2) {
+                task.setBookId(readString());
+                task.setDurationSeconds(readVarInt());
+                task.setBatteryRequired(readFloat());
+                task.setCreatedAt(readVarLong());
+            }
+            state.getTasks().add(task);
+        }
+        for (int i = 0; i < charging; i++) {
+            state.getChargingQueue().add(readRef());
+        }
+        if (position != end) {
+            throw new IOException("Trailing bytes in state file");
+        }
+    }
+
+    private static void ensureCapacity(List<?> list, int extra) {
+        if (list instanceof ArrayList) {
+            ((ArrayList<?>) list).ensureCapacity(list.size() + extra);
+        }
+    }
+
+    private int readCount() throws IOException {
+        int n = readVarInt();
+        // Every entry takes at least one byte, which bounds any honest count.
+        if (n < 0 || n > end - position) {
+            throw new IOException("Malformed count " + n);
+        }
+        return n;
+    }
+
+    private byte readByte() throws IOException {
+        if (position >= end) {
+            throw new IOException("Truncated state file");
+        }
+        return data[position++];
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private float readFloat() throws IOException {
+        if (end - position < 4) {
+            throw new IOException("Truncated state file");
+        }
+        float value = ByteBuffer.wrap(data, position, 4).getFloat();
+        position += 4;
+        return value;
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        return length == 0 ? null : readUtf8(length - 1);
+    }
+
+    private String readRef() throws IOException {
+        int tag = readVarInt();
+        if (tag == BinaryStateFormat.REF_NULL) {
+            return null;
+        }
+        if (tag == BinaryStateFormat.REF_NEW) {
+            String s = readUtf8(readVarInt());
+            dictionary.add(s);
+            return s;
+        }
+        int id = tag - BinaryStateFormat.REF_BASE;
+        if (id < 0 || id >= dictionary.size()) {
+            throw new IOException("Unknown dictionary entry " + id);
+        }
+        return dictionary.get(id);
+    }
+
+    private String readUtf8(int length) throws IOException {
+        if (length < 0 || length > end - position) {
+            throw new IOException("Malformed length " + length);
+        }
+        String s = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return s;
+    }
+}
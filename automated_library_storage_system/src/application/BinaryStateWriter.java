@@ -0,0 +1,214 @@
+package application;
+
+import application.modules.*;
+import com.google.gson.Gson;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Writes the {@link BinaryStateFormat} form of a state straight from the live
+ * entities, the binary counterpart of {@link StateWriter}: books, shelves and
+ * robots are read as of {@code epoch}, and output goes through a temp file
+ * that replaces the target only once it is complete and forced.
+ */
+class BinaryStateWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Gson gson;
+    private final FileChannel channel;
+    private final long epoch;
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    private BinaryStateWriter(Gson gson, FileChannel channel, long epoch) {
+        this.gson = gson;
+        this.channel = channel;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Writes a complete file to {@code path}. {@code header} supplies tasks,
+     * charging queue, config, journal generation and shard count; when null
+     * (shard files) those are left empty.
+     */
+    static void write(Path path, Gson gson, long epoch, SystemState header, Collection<Book> books,
+            Collection<Shelf> shelves, Collection<Robot> robots, Collection<ChargingStation> stations)
+            throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinaryStateWriter writer = new BinaryStateWriter(gson, channel, epoch);
+            writer.writeState(header, books, shelves, robots, stations);
+            channel.force(false);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeState(SystemState header, Collection<Book> books, Collection<Shelf> shelves,
+            Collection<Robot> robots, Collection<ChargingStation> stations) throws IOException {
+        // Fixed arrays, so the counts in the header match what follows even if
+        // a collection grows during the save.
+        Book[] bookArray = books.toArray(new Book[0]);
+        Shelf[] shelfArray = shelves.toArray(new Shelf[0]);
+        Robot[] robotArray = robots.toArray(new Robot[0]);
+        ChargingStation[] stationArray = stations.toArray(new ChargingStation[0]);
+        List<SystemState.TaskData> tasks = header == null
+                ? Collections.<SystemState.TaskData>emptyList() : new ArrayList<>(header.getTasks());
+        List<String> charging = header == null
+                ? Collections.<String>emptyList() : new ArrayList<>(header.getChargingQueue());
+
+        buf.put(BinaryStateFormat.MAGIC);
+        putVarInt(bookArray.length);
+        putVarInt(shelfArray.length);
+        putVarInt(robotArray.length);
+        putVarInt(stationArray.length);
+        putVarInt(tasks.size());
+        putVarInt(charging.size());
+        putVarLong(header == null ? 0 : header.getJournalGeneration());
+        putVarInt(header == null ? 0 : header.getShards());
+        putString(header == null ? null : gson.toJson(header.getConfig(), SystemConfig.class));
+
+        for (Book book : bookArray) {
+            Book.Record record = book.recordAt(epoch);
+            putString(book.getId());
+            putString(book.getTitle());
+            putRef(book.getAuthor());
+            putRef(book.getCategory());
+            putRef(record.shelfId);
+            putRef(record.status == null ? null : record.status.name());
+        }
+        for (Shelf shelf : shelfArray) {
+            List<Book> contents = shelf.recordAt(epoch).books;
+            putRef(shelf.getId());
+            putString(shelf.getName());
+            putRef(shelf.getCategory());
+            putVarInt(shelf.getDistance());
+            putVarInt(shelf.getMaxCapacity());
+            putVarInt(contents.size());
+            for (Book book : contents) {
+                putString(book.getId());
+            }
+        }
+        for (Robot robot : robotArray) {
+            putString(robot.getId());
+            Robot.Record record = robot.recordAt(epoch);
+            reserve(9);
+            buf.putFloat(record.chargePercent);
+            buf.putFloat(robot.getExecutionDuration());
+            buf.put((byte) (record.docked ? 1 : 0));
+        }
+        for (ChargingStation station : stationArray) {
+            putString(station.getId());
+            putString(station.getName());
+            putVarInt(station.getTotalSlots());
+        }
+        for (SystemState.TaskData task : tasks) {
+            putString(task.getTaskId());
+            putString(task.getTaskName());
+            putString(task.getDescription());
+            putRef(task.getPriority());
+            putRef(task.getStatus());
+            putRef(task.getAssignedTo());
+            putString(task.getBookId());
+            putVarInt(task.getDurationSeconds());
+            reserve(4);
+            buf.putFloat(task.getBatteryRequired());
+            putVarLong(task.getCreatedAt());
+        }
+        for (String robotId : charging) {
+            putRef(robotId);
+        }
+        drain();
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    private void putRef(String s) throws IOException {
+        if (s == null) {
+            putVarInt(BinaryStateFormat.REF_NULL);
+            return;
+        }
+        Integer id = dictionary.get(s);
+        if (id != null) {
+            putVarInt(BinaryStateFormat.REF_BASE + id);
+            return;
+        }
+        dictionary.put(s, dictionary.size());
+        putVarInt(BinaryStateFormat.REF_NEW);
+        putUtf8(s);
+    }
+
+    private void putString(String s) throws IOException {
+        if (s == null) {
+            putVarInt(0);
+            return;
+        }
+        putUtf8Prefixed(s, 1);
+    }
+
+    private void putUtf8(String s) throws IOException {
+        putUtf8Prefixed(s, 0);
+    }
+
+    private void putUtf8Prefixed(String s, int bias) throws IOException {
+        int length = LogLineEncoder.utf8Length(s);
+        if (length + 5 > BUFFER_SIZE) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putVarInt(bytes.length + bias);
+            for (int off = 0; off < bytes.length; off += BUFFER_SIZE) {
+                int n = Math.min(BUFFER_SIZE, bytes.length - off);
+                reserve(n);
+                buf.put(bytes, off, n);
+            }
+            return;
+        }
+        reserve(length + 5);
+        BinaryLogFormat.putVarInt(buf, length + bias);
+        LogLineEncoder.putUtf8(buf, s);
+    }
+
+    private void putVarInt(int value) throws IOException {
+        reserve(5);
+        BinaryLogFormat.putVarInt(buf, value);
+    }
+
+    private void putVarLong(long value) throws IOException {
+        reserve(10);
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buf.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    /** Checksums and writes everything buffered so far. */
+    private void drain() throws IOException {
+        crc.update(buf.array(), 0, buf.position());
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
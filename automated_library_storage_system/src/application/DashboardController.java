@@ -17,7 +17,6 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class DashboardController {
     
@@ -25,6 +24,10 @@ public class DashboardController {
     private Timeline clockTimeline;
     private Timeline logRefreshTimeline;
     private String currentBookFilter = "";
+    private static final int MAX_LOG_ROWS = 100;
+    private final ObservableList<LogDisplay> logItems = FXCollections.observableArrayList();
+    private Logger.Scope logScope;
+    private long logCursor = 0;
 
     @FXML private Label clockLabel;
 
@@ -772,19 +775,31 @@ public class DashboardController {
     
     private void refreshLogs() {
         try {
-            List<String> logLines = Logger.openLogByDate(
-                Logger.Scope.valueOf(cmbLogScope.getValue().equals("ALL") ? "SYSTEM" : cmbLogScope.getValue()),
-                java.time.LocalDate.now()
-            );
-            
-            ObservableList<LogDisplay> logs = FXCollections.observableArrayList();
-            for (String line : logLines) {
-                logs.add(LogDisplay.fromLine(line));
+            Logger.Scope scope = Logger.Scope.valueOf(
+                cmbLogScope.getValue().equals("ALL") ? "SYSTEM" : cmbLogScope.getValue());
+            if (scope != logScope) {
+                logScope = scope;
+                logCursor = 0;
+                logItems.clear();
+                tblLogs.setItems(logItems);
             }
 
-            logs.sort((a, b) -> b.getTime().compareTo(a.getTime()));
-            
-            tblLogs.setItems(logs.stream().limit(100).collect(Collectors.toCollection(FXCollections::observableArrayList)));
+            LogTail tail = Logger.tail(scope, logCursor);
+            logCursor = tail.getCursor();
+            if (tail.isTruncated()) {
+                logItems.clear();
+            }
+
+            List<LogRecord> records = tail.getRecords();
+            int first = Math.max(0, records.size() - MAX_LOG_ROWS);
+            List<LogDisplay> fresh = new ArrayList<>(records.size() - first);
+            for (int i = records.size() - 1; i >= first; i--) {
+                fresh.add(LogDisplay.fromLine(Logger.formatLine(records.get(i))));
+            }
+            logItems.addAll(0, fresh);
+            if (logItems.size() > MAX_LOG_ROWS) {
+                logItems.remove(MAX_LOG_ROWS, logItems.size());
+            }
         } catch (Exception e) {
             Logger.logSystem("ERROR", "Failed to refresh logs: " + e.getMessage());
         }
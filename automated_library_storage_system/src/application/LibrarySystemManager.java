@@ -11,6 +11,11 @@ public class LibrarySystemManager {
     private UnifiedConcurrentSystem concurrentSystem;
     private SystemState systemState;
     private SystemConfig config;
+    private StateJournal journal;
+    private StateShards shards;
+    private TaskArchive taskArchive;
+    private TaskHistory taskHistory;
+    private StateTimeline timeline;
     
     private Map<String, Robot> robotMap;
     private Map<String, ChargingStation> stationMap;
@@ -19,6 +24,7 @@ public class LibrarySystemManager {
     
     private ScheduledExecutorService stateUpdateExecutor;
     private ScheduledExecutorService autoSaveExecutor;
+    private final Timer reshelveTimer = new Timer("reshelve", true);
 
     private final IntegerProperty totalBooks = new SimpleIntegerProperty(0);
     private final IntegerProperty totalShelves = new SimpleIntegerProperty(0);
@@ -40,6 +46,8 @@ public class LibrarySystemManager {
         
         loadSystemState();
         initializeSystem();
+        startPersistence();
+        restoreBacklog();
         startBackgroundTasks();
         
         Logger.logSystem("INFO", "LibrarySystemManager initialized");
@@ -48,53 +56,119 @@ public class LibrarySystemManager {
     private void loadSystemState() {
         systemState = SystemState.load();
         config = systemState.getConfig();
-    }
-    
-    private void initializeSystem() {
-        library = new Library();
+        Logger.applyConfig(config);
 
-        for (SystemState.ShelfData shelfData : systemState.getShelves()) {
-            Shelf shelf = new Shelf(
-                shelfData.getId(), 
-                shelfData.getName(), 
-                shelfData.getCategory(),
-                shelfData.getDistance(),
-                shelfData.getMaxCapacity()
-            );
-            library.addShelf(shelf);
-            shelfMap.put(shelf.getId(), shelf);
+        if (config.getStateShards() > 0) {
+            shards = new StateShards(config.getStateShards());
+            if (systemState.getShards() != shards.getCount()
+                    || systemState.getFormat() != config.getStateFormat()) {
+                shards.markAllDirty();
+            }
         }
-
-        for (SystemState.BookData bookData : systemState.getBooks()) {
-            Book book = new Book(
-                bookData.getId(), 
-                bookData.getTitle(), 
-                bookData.getAuthor(), 
-                bookData.getCategory()
-            );
-            book.setShelfId(bookData.getShelfId());
-
+        if (config.isStateJournal()) {
             try {
-                book.setStatus(Book.BookStatus.valueOf(bookData.getStatus()));
+                int records = StateJournal.replay(StateJournal.DEFAULT_DIR, systemState, shards);
+                if (records > 0) {
+                    Logger.logSystem("INFO", "Replayed " + records + " journal records");
+                }
             } catch (Exception e) {
-                book.setStatus(Book.BookStatus.AVAILABLE);
+                Logger.logSystem("ERROR", "Failed to replay state journal: " + e.getMessage());
             }
-            
-            library.addBook(book);
-            bookMap.put(book.getId(), book);
+        }
+    }
 
-            if (book.isAvailable() && bookData.getShelfId() != null) {
-                Shelf shelf = shelfMap.get(bookData.getShelfId());
-                if (shelf != null && !shelf.isFull() && 
-                    shelf.getCategory().equalsIgnoreCase(book.getCategory())) {
-                    try {
-                        shelf.addBook(book);
-                    } catch (Exception e) {
-                        Logger.logSystem("WARN", "Could not add book to shelf: " + e.getMessage());
-                    }
-                }
+    private void startPersistence() {
+        if (shards != null) {
+            shards.track(bookMap.values(), shelfMap.values(), robotMap.values());
+            StateChanges.addListener(shards);
+        }
+        try {
+            taskArchive = TaskArchive.open(TaskArchive.DEFAULT_DIR, config.getTaskHistoryWindow(),
+                config.getTaskArchiveSegmentBytes());
+            StateChanges.addListener(taskArchive);
+        } catch (Exception e) {
+            Logger.logSystem("ERROR", "Failed to open task archive: " + e.getMessage());
+        }
+        try {
+            taskHistory = TaskHistory.open(TaskHistory.DEFAULT_FILE);
+            StateChanges.addListener(taskHistory);
+        } catch (Exception e) {
+            Logger.logSystem("ERROR", "Failed to open task history: " + e.getMessage());
+        }
+        if (!config.isStateJournal()) {
+            return;
+        }
+        try {
+            journal = StateJournal.open(StateJournal.DEFAULT_DIR, systemState.getJournalGeneration(),
+                config.getJournalGroupCommitMillis());
+            StateChanges.addListener(journal);
+        } catch (Exception e) {
+            Logger.logSystem("ERROR", "Failed to open state journal: " + e.getMessage());
+            return;
+        }
+        if (config.getCheckpointIntervalMinutes() > 0) {
+            try {
+                timeline = StateTimeline.open(StateTimeline.DEFAULT_DIR, StateJournal.DEFAULT_DIR,
+                    TimeUnit.HOURS.toMillis(config.getCheckpointRetentionHours()), config.getMaxCheckpoints());
+            } catch (Exception e) {
+                Logger.logSystem("ERROR", "Failed to open state timeline: " + e.getMessage());
             }
         }
+        deleteFoldedJournal(systemState.getJournalGeneration());
+    }
+
+    /** Drops journal files the snapshot has folded, unless a checkpoint still replays them. */
+    private void deleteFoldedJournal(long generation) {
+        try {
+            journal.deleteBefore(timeline == null ? generation : Math.min(generation, timeline.oldestGeneration()));
+        } catch (Exception e) {
+            Logger.logSystem("ERROR", "Failed to delete old journal files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a timeline checkpoint: the live entities plus the unfinished
+     * tasks and charging order, tagged with the current journal generation.
+     */
+    private void checkpoint() {
+        if (timeline == null) {
+            return;
+        }
+        try {
+            long generation = journal.getGeneration();
+            SystemState header = new SystemState();
+            header.setConfig(config);
+            WarmRestart.capture(header, concurrentSystem);
+            timeline.checkpoint(header, generation, bookMap.values(), shelfMap.values(), robotMap.values(),
+                stationMap.values());
+            deleteFoldedJournal(systemState.getJournalGeneration());
+        } catch (Exception e) {
+            Logger.logSystem("ERROR", "Failed to write state checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the state as of {@code millis} from the nearest earlier
+     * checkpoint and the journal.
+     *
+     * @throws java.io.IOException if the timeline is off or does not reach back that far
+     */
+    public StateView getStateAt(long millis) throws java.io.IOException {
+        if (timeline == null) {
+            throw new java.io.IOException("State timeline is not enabled");
+        }
+        journal.sync();
+        return timeline.at(millis);
+    }
+    
+    private void initializeSystem() {
+        library = new Library();
+
+        shelfMap = new ConcurrentHashMap<>(systemState.getShelves().size());
+        bookMap = new ConcurrentHashMap<>(systemState.getBooks().size());
+        CatalogLoader catalog = new CatalogLoader(systemState);
+        catalog.load(library, shelfMap, bookMap);
+        Logger.logSystem("INFO", catalog.summary());
 
         for (SystemState.ChargingStationData stationData : systemState.getStations()) {
             ChargingStation station = new ChargingStation(
@@ -121,11 +195,25 @@ public class LibrarySystemManager {
             config.getNumChargingStations(), 
             systemState.getRobots().size()
         );
+        concurrentSystem.setTaskAgingMillis(TimeUnit.SECONDS.toMillis(config.getTaskAgingSeconds()));
+        concurrentSystem.setDispatchWindow(config.getDispatchWindow());
+        concurrentSystem.setDispatchPolicy(config.getDispatchPolicy());
 
         concurrentSystem.setChargingStations(new ArrayList<>(stationMap.values()));
+    }
 
-        for (Robot robot : robotMap.values()) {
-            concurrentSystem.addRobot(robot);
+    /**
+     * Puts the robots and the saved backlog back to work. Runs once the
+     * journal and shards are listening, so the rollbacks and the first
+     * dispatches are persisted rather than redone on every restart.
+     */
+    private void restoreBacklog() {
+        WarmRestart restart = new WarmRestart(systemState);
+        restart.addRobots(concurrentSystem, robotMap);
+        for (Task task : restart.restoreTasks(concurrentSystem, bookMap, shelfMap)) {
+            if (task.getRelatedBook() != null && task.getTaskName().contains("Return")) {
+                reshelveWhenDelivered(task.getRelatedBook(), (task.getTaskDurationSeconds() + 1) * 1000L);
+            }
         }
         
         updateObservableProperties();
@@ -139,7 +227,11 @@ public class LibrarySystemManager {
         }, 0, 500, TimeUnit.MILLISECONDS);
         
         autoSaveExecutor = Executors.newScheduledThreadPool(1);
-        autoSaveExecutor.scheduleAtFixedRate(this::saveState, 30, 30, TimeUnit.SECONDS);
+        autoSaveExecutor.scheduleAtFixedRate(this::autoSave, 30, 30, TimeUnit.SECONDS);
+        if (timeline != null) {
+            autoSaveExecutor.scheduleAtFixedRate(this::checkpoint, 0, config.getCheckpointIntervalMinutes(),
+                TimeUnit.MINUTES);
+        }
     }
     
     private void updateObservableProperties() {
@@ -155,46 +247,44 @@ public class LibrarySystemManager {
         tasksFailed.set(concurrentSystem.getTotalTasksFailed());
     }
     
+    /**
+     * With the journal on, a snapshot is only written once the journal has
+     * grown past the threshold; with shards, only the dirty shards are written.
+     * Buffered task history rows are flushed on every tick.
+     */
+    private void autoSave() {
+        if (taskHistory != null) {
+            try {
+                taskHistory.flush();
+            } catch (Exception e) {
+                Logger.logSystem("ERROR", "Failed to flush task history: " + e.getMessage());
+            }
+        }
+        if (journal == null || journal.size() >= config.getJournalCompactBytes()) {
+            saveState();
+        }
+    }
+
+    /**
+     * Writes a snapshot. With the journal on this is the compaction step:
+     * new mutations go to a fresh generation, the snapshot records it, and
+     * the folded generations are deleted once the snapshot is in place.
+     */
     public void saveState() {
         try {
-
-            systemState.getBooks().clear();
-            for (Book book : bookMap.values()) {
-                SystemState.BookData bookData = new SystemState.BookData();
-                bookData.setId(book.getId());
-                bookData.setTitle(book.getTitle());
-                bookData.setAuthor(book.getAuthor());
-                bookData.setCategory(book.getCategory());
-                bookData.setShelfId(book.getShelfId());
-                bookData.setStatus(book.getStatus().toString());
-                systemState.getBooks().add(bookData);
-            }
-            
-            systemState.getShelves().clear();
-            for (Shelf shelf : shelfMap.values()) {
-                SystemState.ShelfData shelfData = new SystemState.ShelfData();
-                shelfData.setId(shelf.getId());
-                shelfData.setName(shelf.getName());
-                shelfData.setCategory(shelf.getCategory());
-                shelfData.setDistance(shelf.getDistance());
-                shelfData.setMaxCapacity(shelf.getMaxCapacity());
-                shelfData.setBookIds(new ArrayList<>());
-                for (Book book : shelf.getBooks()) {
-                    shelfData.getBookIds().add(book.getId());
-                }
-                systemState.getShelves().add(shelfData);
+            long generation = journal != null ? journal.roll() : systemState.getJournalGeneration();
+            systemState.setJournalGeneration(generation);
+            WarmRestart.capture(systemState, concurrentSystem);
+            boolean saved;
+            if (shards != null) {
+                saved = systemState.save(shards, stationMap.values());
+            } else {
+                systemState.setShards(0);
+                saved = systemState.save(bookMap.values(), shelfMap.values(), robotMap.values(), stationMap.values());
             }
-            
-            systemState.getRobots().clear();
-            for (Robot robot : robotMap.values()) {
-                SystemState.RobotData robotData = new SystemState.RobotData();
-                robotData.setId(robot.getId());
-                robotData.setCurrentChargePercent(robot.getCurrentChargePercent());
-                robotData.setExecutionDuration(robot.getExecutionDuration());
-                systemState.getRobots().add(robotData);
+            if (saved && journal != null) {
+                deleteFoldedJournal(generation);
             }
-            
-            systemState.save();
         } catch (Exception e) {
             Logger.logSystem("ERROR", "Failed to save state: " + e.getMessage());
             setStatusMessage("Error saving state: " + e.getMessage());
@@ -243,6 +333,7 @@ public class LibrarySystemManager {
             task.setRelatedBook(book);
             task.setTaskDurationSeconds(taskDuration);
             task.setBatteryRequired(batteryRequired);
+            task.setShelfDistance(shelf.getDistance());
 
             try {
                 shelf.removeBook(book);
@@ -310,29 +401,14 @@ public class LibrarySystemManager {
             task.setRelatedBook(book);
             task.setTaskDurationSeconds(taskDuration);
             task.setBatteryRequired(batteryRequired);
+            task.setShelfDistance(targetShelf.getDistance());
 
-            book.setStatus(Book.BookStatus.IN_TRANSIT);
             book.setShelfId(targetShelf.getId());
+            book.setStatus(Book.BookStatus.IN_TRANSIT);
             
             concurrentSystem.addTask(task);
 
-            java.util.Timer timer = new java.util.Timer();
-            timer.schedule(new java.util.TimerTask() {
-                @Override
-                public void run() {
-                    if (book.getStatus() == Book.BookStatus.AVAILABLE && book.getShelfId() != null) {
-                        Shelf shelf = shelfMap.get(book.getShelfId());
-                        if (shelf != null && !shelf.getBooks().contains(book) && !shelf.isFull()) {
-                            try {
-                                shelf.addBook(book);
-                                Logger.logStorage(shelf.getId(), "INFO", "Book returned to shelf: " + book.getTitle());
-                            } catch (Exception e) {
-                                Logger.logSystem("WARN", "Could not add book back to shelf: " + e.getMessage());
-                            }
-                        }
-                    }
-                }
-            }, (taskDuration + 1) * 1000);
+            reshelveWhenDelivered(book, (taskDuration + 1) * 1000L);
             
             setStatusMessage("Task created: Return " + book.getTitle() + 
                 " (" + taskDuration + "s, " + String.format("%.1f", batteryRequired) + "% battery)");
@@ -346,6 +422,33 @@ public class LibrarySystemManager {
         }
     }
 
+    /**
+     * Puts a returned book on its target shelf once the robot has delivered
+     * it; checks again every second while the return is still queued or running.
+     */
+    private void reshelveWhenDelivered(Book book, long delayMillis) {
+        reshelveTimer.schedule(new java.util.TimerTask() {
+            @Override
+            public void run() {
+                if (book.getStatus() == Book.BookStatus.IN_TRANSIT) {
+                    reshelveWhenDelivered(book, 1000);
+                    return;
+                }
+                if (book.getStatus() == Book.BookStatus.AVAILABLE && book.getShelfId() != null) {
+                    Shelf shelf = shelfMap.get(book.getShelfId());
+                    if (shelf != null && !shelf.getBooks().contains(book) && !shelf.isFull()) {
+                        try {
+                            shelf.addBook(book);
+                            Logger.logStorage(shelf.getId(), "INFO", "Book returned to shelf: " + book.getTitle());
+                        } catch (Exception e) {
+                            Logger.logSystem("WARN", "Could not add book back to shelf: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        }, delayMillis);
+    }
+
     public void addBook(String title, String author, String category) {
         try {
             String bookId = "BOOK-" + (bookMap.size() + 1);
@@ -362,6 +465,7 @@ public class LibrarySystemManager {
             
             library.addBook(book);
             bookMap.put(book.getId(), book);
+            StateChanges.book(book);
             
             setStatusMessage("Book added: " + title + " [" + category + "] to " + shelf.getName());
             Logger.logSystem("INFO", "Book added: " + title + " [" + category + "] to " + shelf.getId());
@@ -407,6 +511,7 @@ public class LibrarySystemManager {
             ChargingStation station = new ChargingStation(id, name, numSlots);
             library.addStation(station);
             stationMap.put(station.getId(), station);
+            StateChanges.stationAdded(station);
             
             concurrentSystem.setChargingStations(new ArrayList<>(stationMap.values()));
             
@@ -424,6 +529,7 @@ public class LibrarySystemManager {
             Shelf shelf = new Shelf(id, name, category, distance, maxCapacity);
             library.addShelf(shelf);
             shelfMap.put(shelf.getId(), shelf);
+            StateChanges.shelfAdded(shelf);
             
             setStatusMessage("Shelf added: " + name + " [" + category + ", " + distance + "m]");
             Logger.logSystem("INFO", "Shelf added: " + name + " [" + category + ", distance: " + distance + "]");
@@ -464,6 +570,10 @@ public class LibrarySystemManager {
     public Library getLibrary() { return library; }
     public UnifiedConcurrentSystem getConcurrentSystem() { return concurrentSystem; }
     public SystemConfig getConfig() { return config; }
+    /** Finished tasks; null if the archive could not be opened. */
+    public TaskArchive getTaskArchive() { return taskArchive; }
+    /** Finished tasks for aggregate queries; null if the history could not be opened. */
+    public TaskHistory getTaskHistory() { return taskHistory; }
     
     public Collection<Robot> getAllRobots() { return robotMap.values(); }
     public Collection<ChargingStation> getAllStations() { return stationMap.values(); }
@@ -483,6 +593,7 @@ public class LibrarySystemManager {
     public IntegerProperty chargingRobotsProperty() { return chargingRobots; }
     public IntegerProperty chargingQueueSizeProperty() { return chargingQueueSize; }
     public IntegerProperty tasksInQueueProperty() { return tasksInQueue; }
+    public Map<TaskPriority, Integer> getTaskQueueDepths() { return concurrentSystem.getTaskQueueDepths(); }
     public IntegerProperty tasksCompletedProperty() { return tasksCompleted; }
     public IntegerProperty tasksFailedProperty() { return tasksFailed; }
     public StringProperty statusMessageProperty() { return statusMessage; }
@@ -506,5 +617,36 @@ public class LibrarySystemManager {
         if (concurrentSystem != null) {
             concurrentSystem.shutdown();
         }
+        reshelveTimer.cancel();
+
+        if (shards != null) {
+            StateChanges.removeListener(shards);
+        }
+        if (journal != null) {
+            StateChanges.removeListener(journal);
+            try {
+                journal.close();
+            } catch (Exception e) {
+                Logger.logSystem("ERROR", "Failed to close state journal: " + e.getMessage());
+            }
+        }
+        if (taskArchive != null) {
+            StateChanges.removeListener(taskArchive);
+            try {
+                taskArchive.close();
+            } catch (Exception e) {
+                Logger.logSystem("ERROR", "Failed to close task archive: " + e.getMessage());
+            }
+        }
+        if (taskHistory != null) {
+            StateChanges.removeListener(taskHistory);
+            try {
+                taskHistory.close();
+            } catch (Exception e) {
+                Logger.logSystem("ERROR", "Failed to close task history: " + e.getMessage());
+            }
+        }
+        
+        Logger.flush();
     }
 }
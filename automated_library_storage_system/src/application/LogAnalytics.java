@@ -0,0 +1,494 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Offline analytics over the resources and tasks logs. Every day is parsed
+ * once, days are processed in parallel on a fork/join pool and the partial
+ * results are merged in day order, so a task started before midnight and
+ * finished after it still gets its duration.
+ *
+ * Usage: {@code java application.LogAnalytics [from dd-MM-yyyy|-] [to dd-MM-yyyy|-] [log dir]}
+ */
+public class LogAnalytics {
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    static final String RATE_LIMIT_DROPPED = "Rate limit dropped ";
+
+    public static void main(String[] args) throws IOException {
+        LocalDate from = args.length > 0 ? parseDay(args[0]) : null;
+        LocalDate to = args.length > 1 ? parseDay(args[1]) : null;
+        Path root = args.length > 2 ? Paths.get(args[2]) : Paths.get("automated_library_storage_system", "logs");
+        System.out.print(analyze(root, from, to).format());
+    }
+
+    private static LocalDate parseDay(String arg) {
+        return arg.isEmpty() || arg.equals("-") ? null : LocalDate.parse(arg, DATE_FMT);
+    }
+
+    /** Analyses the days between {@code from} and {@code to} inclusive; null bounds are open. */
+    public static Report analyze(Path root, LocalDate from, LocalDate to) throws IOException {
+        long start = System.nanoTime();
+        TreeMap<LocalDate, List<Path>> days = new TreeMap<>();
+        int files = 0;
+        for (LogFiles.Name name : LogFiles.list(root)) {
+            boolean wanted = name.extension.equals("log")
+                    && (name.prefix.equals("resources") || name.prefix.equals("tasks"))
+                    && (from == null || !name.date.isBefore(from))
+                    && (to == null || !name.date.isAfter(to));
+            if (wanted) {
+                days.computeIfAbsent(name.date, d -> new ArrayList<>()).add(name.path);
+                files++;
+            }
+        }
+        List<List<Path>> groups = new ArrayList<>(days.values());
+        Stats stats = groups.isEmpty() ? new Stats()
+                : ForkJoinPool.commonPool().invoke(new DayRange(groups, 0, groups.size()));
+        stats.finish();
+        LocalDate first = days.isEmpty() ? from : days.firstKey();
+        LocalDate last = days.isEmpty() ? to : days.lastKey();
+        return new Report(stats, first, last, files, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static class DayRange extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<Path>> days;
+        private final int lo;
+        private final int hi;
+
+        DayRange(List<List<Path>> days, int lo, int hi) {
+            this.days = days;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (hi - lo == 1) {
+                Stats stats = new Stats();
+                for (Path file : days.get(lo)) {
+                    stats.read(file);
+                }
+                return stats;
+            }
+            int mid = (lo + hi) >>> 1;
+            DayRange right = new DayRange(days, mid, hi);
+            right.fork();
+            Stats left = new DayRange(days, lo, mid).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    public static class RobotStats {
+        private final String robotId;
+        private int tasksAssigned;
+        private int tasksCompleted;
+        private int tasksFailed;
+        private int timedTasks;
+        private long totalTaskMillis;
+        private long maxTaskMillis;
+        private int chargeCycles;
+        private int queueWaits;
+        private long totalQueueWaitMillis;
+        private long maxQueueWaitMillis;
+        private int leftQueue;
+
+        RobotStats(String robotId) {
+            this.robotId = robotId;
+        }
+
+        public String getRobotId() { return robotId; }
+
+        public int getTasksAssigned() { return tasksAssigned; }
+
+        public int getTasksCompleted() { return tasksCompleted; }
+
+        public int getTasksFailed() { return tasksFailed; }
+
+        public double getAverageTaskSeconds() { return timedTasks == 0 ? 0 : totalTaskMillis / 1000.0 / timedTasks; }
+
+        public double getMaxTaskSeconds() { return maxTaskMillis / 1000.0; }
+
+        public int getChargeCycles() { return chargeCycles; }
+
+        public int getQueueWaits() { return queueWaits; }
+
+        public double getAverageQueueWaitSeconds() { return queueWaits == 0 ? 0 : totalQueueWaitMillis / 1000.0 / queueWaits; }
+
+        public double getMaxQueueWaitSeconds() { return maxQueueWaitMillis / 1000.0; }
+
+        public int getLeftQueue() { return leftQueue; }
+
+        void addTask(long millis) {
+            timedTasks++;
+            totalTaskMillis += millis;
+            maxTaskMillis = Math.max(maxTaskMillis, millis);
+        }
+
+        void addQueueWait(long millis) {
+            queueWaits++;
+            totalQueueWaitMillis += millis;
+            maxQueueWaitMillis = Math.max(maxQueueWaitMillis, millis);
+        }
+
+        void add(RobotStats o) {
+            tasksAssigned += o.tasksAssigned;
+            tasksCompleted += o.tasksCompleted;
+            tasksFailed += o.tasksFailed;
+            timedTasks += o.timedTasks;
+            totalTaskMillis += o.totalTaskMillis;
+            maxTaskMillis = Math.max(maxTaskMillis, o.maxTaskMillis);
+            chargeCycles += o.chargeCycles;
+            queueWaits += o.queueWaits;
+            totalQueueWaitMillis += o.totalQueueWaitMillis;
+            maxQueueWaitMillis = Math.max(maxQueueWaitMillis, o.maxQueueWaitMillis);
+            leftQueue += o.leftQueue;
+        }
+    }
+
+    /**
+     * Partial result of a run of days. Events whose opening line lies in an
+     * earlier partial (a completion without its start, a dequeue without its
+     * enqueue) are kept as orphans and resolved when the partials are merged.
+     */
+    private static class Stats {
+        private static final int COMPLETED = 0;
+        private static final int FAILED = 1;
+        private static final int INTERRUPTED = 2;
+        private static final int DEQUEUED = 3;
+
+        final Map<String, RobotStats> robots = new HashMap<>();
+        final Map<String, Integer> failureReasons = new HashMap<>();
+        final Map<String, Integer> taskActions = new HashMap<>();
+        final Map<String, OpenTask> openTasks = new HashMap<>();
+        final Map<String, Long> openQueue = new HashMap<>();
+        final List<Orphan> orphans = new ArrayList<>();
+        long lines;
+        int tasksCreated;
+        long droppedRecords;
+
+        private final TimestampParser timestamps = new TimestampParser();
+
+        void read(Path file) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(LogFiles.open(file), StandardCharsets.UTF_8), 64 * 1024)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    accept(line);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Line layout: "[yyyy-MM-dd HH:mm:ss] SCOPE.LEVEL(name): message". */
+        private void accept(String line) {
+            if (line.length() < 23 || line.charAt(0) != '[' || line.charAt(20) != ']') {
+                return;
+            }
+            int msg = line.indexOf("): ", 22);
+            if (msg < 0) {
+                return;
+            }
+            long ts = timestamps.parse(line);
+            if (ts == Long.MIN_VALUE) {
+                return;
+            }
+            if (line.startsWith(RATE_LIMIT_DROPPED, msg + 3)) {
+                // The limiter's own report; the records it counts are not in the file.
+                int from = msg + 3 + RATE_LIMIT_DROPPED.length();
+                try {
+                    droppedRecords += Long.parseLong(word(line, from));
+                } catch (NumberFormatException e) {
+                    return;
+                }
+            } else if (line.startsWith("RESOURCES.", 22)) {
+                resource(line, msg + 3, ts);
+            } else if (line.startsWith("TASKS.", 22)) {
+                task(line, msg + 3);
+            }
+        }
+
+        private void resource(String line, int m, long ts) {
+            if (line.startsWith("Task ", m)) {
+                int idEnd = line.indexOf(' ', m + 5);
+                if (idEnd < 0) {
+                    return;
+                }
+                String taskId = line.substring(m + 5, idEnd);
+                if (line.startsWith(" assigned to ", idEnd)) {
+                    robot(word(line, idEnd + 13)).tasksAssigned++;
+                } else if (line.startsWith(" started execution on ", idEnd)) {
+                    openTasks.put(taskId, new OpenTask(ts, word(line, idEnd + 22)));
+                } else if (line.startsWith(" completed successfully on ", idEnd)) {
+                    String robotId = word(line, idEnd + 27);
+                    robot(robotId).tasksCompleted++;
+                    close(new Orphan(COMPLETED, taskId, robotId, ts, null));
+                } else if (line.startsWith(" failed on ", idEnd)) {
+                    int colon = line.indexOf(": ", idEnd + 11);
+                    String robotId = colon < 0 ? word(line, idEnd + 11) : line.substring(idEnd + 11, colon);
+                    String reason = colon < 0 ? "unknown" : line.substring(colon + 2);
+                    close(new Orphan(FAILED, taskId, robotId, ts, reason));
+                } else if (line.startsWith(" interrupted", idEnd)) {
+                    close(new Orphan(INTERRUPTED, taskId, null, ts, "interrupted"));
+                }
+            } else if (line.startsWith("AGV ", m)) {
+                int end = line.indexOf(" completed charging", m + 4);
+                if (end > 0) {
+                    robot(line.substring(m + 4, end)).chargeCycles++;
+                }
+            } else {
+                int sp = line.indexOf(' ', m);
+                if (sp < 0) {
+                    return;
+                }
+                String robotId = line.substring(m, sp);
+                if (line.startsWith(" added to charging queue", sp)) {
+                    openQueue.put(robotId, ts);
+                } else if (line.startsWith(" removed from queue", sp)) {
+                    Long queued = openQueue.remove(robotId);
+                    if (queued != null) {
+                        robot(robotId).addQueueWait(ts - queued);
+                    } else {
+                        orphans.add(new Orphan(DEQUEUED, null, robotId, ts, null));
+                    }
+                } else if (line.startsWith(" left charging queue", sp)) {
+                    openQueue.remove(robotId);
+                    robot(robotId).leftQueue++;
+                }
+            }
+        }
+
+        private void task(String line, int m) {
+            if (line.indexOf(" task created: ", m) > 0) {
+                tasksCreated++;
+            } else if (line.startsWith("[", m)) {
+                int colon = line.indexOf(": ", m);
+                int space = line.indexOf("] ", m);
+                if (space > 0 && colon > space) {
+                    taskActions.merge(line.substring(space + 2, colon), 1, Integer::sum);
+                }
+            }
+        }
+
+        /** Completes a task event against its start, or keeps it for the merge. */
+        private void close(Orphan event) {
+            OpenTask open = openTasks.remove(event.taskId);
+            if (open == null) {
+                orphans.add(event);
+            } else {
+                resolve(event, open);
+            }
+        }
+
+        private void resolve(Orphan event, OpenTask open) {
+            String robotId = event.robotId != null ? event.robotId : open == null ? "unknown" : open.robotId;
+            if (event.kind == COMPLETED) {
+                if (open != null) {
+                    robot(robotId).addTask(event.ts - open.start);
+                }
+            } else if (event.kind != DEQUEUED) {
+                robot(robotId).tasksFailed++;
+                failureReasons.merge(event.reason, 1, Integer::sum);
+            }
+        }
+
+        Stats merge(Stats right) {
+            lines += right.lines;
+            tasksCreated += right.tasksCreated;
+            droppedRecords += right.droppedRecords;
+            right.robots.forEach((id, r) -> robot(id).add(r));
+            right.failureReasons.forEach((k, v) -> failureReasons.merge(k, v, Integer::sum));
+            right.taskActions.forEach((k, v) -> taskActions.merge(k, v, Integer::sum));
+            for (Orphan event : right.orphans) {
+                if (event.kind == DEQUEUED) {
+                    Long queued = openQueue.remove(event.robotId);
+                    if (queued != null) {
+                        robot(event.robotId).addQueueWait(event.ts - queued);
+                    } else {
+                        orphans.add(event);
+                    }
+                } else {
+                    close(event);
+                }
+            }
+            openTasks.putAll(right.openTasks);
+            openQueue.putAll(right.openQueue);
+            return this;
+        }
+
+        /** Counts the events that never found their opening line. */
+        void finish() {
+            for (Orphan event : orphans) {
+                resolve(event, null);
+            }
+            orphans.clear();
+        }
+
+        private RobotStats robot(String id) {
+            return robots.computeIfAbsent(id, RobotStats::new);
+        }
+
+        private static String word(String line, int from) {
+            int end = line.indexOf(' ', from);
+            return end < 0 ? line.substring(from) : line.substring(from, end);
+        }
+    }
+
+    private static class OpenTask {
+        final long start;
+        final String robotId;
+
+        OpenTask(long start, String robotId) {
+            this.start = start;
+            this.robotId = robotId;
+        }
+    }
+
+    private static class Orphan {
+        final int kind;
+        final String taskId;
+        final String robotId;
+        final long ts;
+        final String reason;
+
+        Orphan(int kind, String taskId, String robotId, long ts, String reason) {
+            this.kind = kind;
+            this.taskId = taskId;
+            this.robotId = robotId;
+            this.ts = ts;
+            this.reason = reason;
+        }
+    }
+
+    /** Parses "[yyyy-MM-dd HH:mm:ss" at the start of a line, reusing the epoch of the current hour. */
+    private static class TimestampParser {
+        private final char[] hourKey = new char[13];
+        private long hourMillis = Long.MIN_VALUE;
+
+        long parse(String line) {
+            boolean same = hourMillis != Long.MIN_VALUE;
+            for (int i = 0; i < 13 && same; i++) {
+                same = hourKey[i] == line.charAt(i + 1);
+            }
+            try {
+                if (!same) {
+                    LocalDate date = LocalDate.of(digits(line, 1, 4), digits(line, 6, 2), digits(line, 9, 2));
+                    hourMillis = date.atTime(digits(line, 12, 2), 0).atZone(ZoneId.systemDefault())
+                            .toInstant().toEpochMilli();
+                    line.getChars(1, 14, hourKey, 0);
+                }
+                return hourMillis + digits(line, 15, 2) * 60_000L + digits(line, 18, 2) * 1000L;
+            } catch (RuntimeException e) {
+                hourMillis = Long.MIN_VALUE;
+                return Long.MIN_VALUE;
+            }
+        }
+
+        private static int digits(String s, int from, int count) {
+            int v = 0;
+            for (int i = from; i < from + count; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw new NumberFormatException(s);
+                }
+                v = v * 10 + (c - '0');
+            }
+            return v;
+        }
+    }
+
+    public static class Report {
+        private final Map<String, RobotStats> robots = new TreeMap<>();
+        private final Map<String, Integer> failureReasons = new LinkedHashMap<>();
+        private final Map<String, Integer> taskActions;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final int files;
+        private final long lines;
+        private final int tasksCreated;
+        private final long droppedRecords;
+        private final long elapsedMillis;
+
+        private Report(Stats stats, LocalDate from, LocalDate to, int files, long elapsedMillis) {
+            this.robots.putAll(stats.robots);
+            stats.failureReasons.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(e -> failureReasons.put(e.getKey(), e.getValue()));
+            this.taskActions = new TreeMap<>(stats.taskActions);
+            this.from = from;
+            this.to = to;
+            this.files = files;
+            this.lines = stats.lines;
+            this.tasksCreated = stats.tasksCreated;
+            this.droppedRecords = stats.droppedRecords;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Map<String, RobotStats> getRobots() { return robots; }
+
+        public RobotStats getRobot(String robotId) { return robots.get(robotId); }
+
+        public Map<String, Integer> getFailureReasons() { return failureReasons; }
+
+        public Map<String, Integer> getTaskActions() { return taskActions; }
+
+        public int getTasksCreated() { return tasksCreated; }
+
+        public long getLines() { return lines; }
+
+        /** Records of the analysed scopes the rate limit dropped before they reached the files. */
+        public long getDroppedRecords() { return droppedRecords; }
+
+        /** False when the rate limit dropped records, so the counts may be low. */
+        public boolean isComplete() { return droppedRecords == 0; }
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Log analytics %s .. %s: %d files, %d lines in %d ms%n",
+                    from == null ? "-" : from.format(DATE_FMT), to == null ? "-" : to.format(DATE_FMT),
+                    files, lines, elapsedMillis));
+            if (!isComplete()) {
+                sb.append(String.format("INCOMPLETE: the log rate limit dropped %d records; counts may be low%n",
+                        droppedRecords));
+            }
+            sb.append(String.format("Tasks created: %d %s%n", tasksCreated, taskActions.isEmpty() ? "" : taskActions));
+            sb.append(String.format("%-12s %6s %6s %5s %8s %8s %7s %7s %9s %9s %5s%n", "ROBOT", "assign",
+                    "done", "fail", "avg s", "max s", "charges", "queued", "avgwait s", "maxwait s", "left"));
+            for (RobotStats r : robots.values()) {
+                sb.append(String.format("%-12s %6d %6d %5d %8.1f %8.1f %7d %7d %9.1f %9.1f %5d%n", r.robotId,
+                        r.tasksAssigned, r.tasksCompleted, r.tasksFailed, r.getAverageTaskSeconds(),
+                        r.getMaxTaskSeconds(), r.chargeCycles, r.queueWaits, r.getAverageQueueWaitSeconds(),
+                        r.getMaxQueueWaitSeconds(), r.leftQueue));
+            }
+            if (!failureReasons.isEmpty()) {
+                sb.append(String.format("Failure reasons:%n"));
+                failureReasons.forEach((reason, count) -> sb.append(String.format("%6d  %s%n", count, reason)));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return format();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Naming of the log segments. A day file {@code <base>.log} (or {@code .bin})
+ * is the active segment; once it is full it is renamed to {@code <base>.<n>.log}
+ * and later compressed to {@code <base>.<n>.log.gz}. Segments of a day are read
+ * in segment order with the active one last.
+ */
+class LogFiles {
+    static final int ACTIVE = Integer.MAX_VALUE;
+
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final Pattern NAME_PATTERN = Pattern.compile(
+            "^([a-z-]+)-(\\d{2}-\\d{2}-\\d{4})(?:\\.(\\d+))?\\.(log|bin)(\\.gz)?$");
+
+    static final Comparator<Name> ORDER = Comparator.comparing((Name n) -> n.prefix)
+            .thenComparing(n -> n.date)
+            .thenComparingInt(n -> n.segment);
+
+    /** Parsed segment file name. */
+    static class Name {
+        final Path path;
+        final String prefix;
+        final LocalDate date;
+        final int segment;
+        final String extension;
+        final boolean compressed;
+
+        private Name(Path path, String prefix, LocalDate date, int segment, String extension, boolean compressed) {
+            this.path = path;
+            this.prefix = prefix;
+            this.date = date;
+            this.segment = segment;
+            this.extension = extension;
+            this.compressed = compressed;
+        }
+
+        boolean isActive() {
+            return segment == ACTIVE;
+        }
+
+        String base() {
+            return prefix + "-" + date.format(DATE_FMT);
+        }
+
+        Path segmentPath(int n) {
+            return path.resolveSibling(base() + "." + n + "." + extension);
+        }
+    }
+
+    static Name parse(Path path) {
+        Matcher m = NAME_PATTERN.matcher(path.getFileName().toString());
+        if (!m.matches()) {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.parse(m.group(2), DATE_FMT);
+            int segment = m.group(3) == null ? ACTIVE : Integer.parseInt(m.group(3));
+            return new Name(path, m.group(1), date, segment, m.group(4), m.group(5) != null);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Every segment file under {@code root}, sorted by prefix, day and segment. */
+    static List<Name> list(Path root) throws IOException {
+        List<Name> names = new ArrayList<>();
+        if (!Files.exists(root)) {
+            return names;
+        }
+        try (Stream<Path> paths = Files.list(root)) {
+            paths.forEach(p -> {
+                Name name = parse(p);
+                if (name != null) {
+                    names.add(name);
+                }
+            });
+        }
+        names.sort(ORDER);
+        return names;
+    }
+
+    /** Segments of one day file in read order, the active segment last. */
+    static List<Path> segments(Path activeFile) throws IOException {
+        Name active = parse(activeFile);
+        List<Path> files = new ArrayList<>();
+        if (active == null || !Files.exists(activeFile.getParent())) {
+            if (Files.exists(activeFile)) {
+                files.add(activeFile);
+            }
+            return files;
+        }
+        String base = active.base();
+        List<Name> found = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(activeFile.getParent())) {
+            paths.filter(p -> p.getFileName().toString().startsWith(base)).forEach(p -> {
+                Name name = parse(p);
+                if (name != null && name.prefix.equals(active.prefix) && name.date.equals(active.date)
+                        && name.extension.equals(active.extension)) {
+                    found.add(name);
+                }
+            });
+        }
+        found.sort(ORDER);
+        for (Name name : found) {
+            files.add(name.path);
+        }
+        return files;
+    }
+
+    /** Next free segment number for the day file {@code activeFile}. */
+    static int nextSegment(Path activeFile) throws IOException {
+        int max = 0;
+        for (Path p : segments(activeFile)) {
+            Name name = parse(p);
+            if (!name.isActive()) {
+                max = Math.max(max, name.segment);
+            }
+        }
+        return max + 1;
+    }
+
+    static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    static InputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return isCompressed(file) ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    static List<String> readAllLines(Path file) throws IOException {
+        if (!isCompressed(file)) {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,381 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Sidecar index of a text log file ({@code <file>.idx}) mapping the equipment
+ * name of every record to the byte offset of its line, plus a sparse time
+ * index with the offset of the first record of every minute.
+ *
+ * <pre>
+ * header : magic "ALI" + version byte, startOffset:long (bytes before it are not indexed)
+ * entry  : DICT  id:varint len:varint utf8
+ *          BLOCK id:varint count:varint offsets:long[count]
+ *          MINUTE epochMinute:long offset:long
+ *          MARK  coveredEnd:long (every line before it is indexed)
+ * </pre>
+ *
+ * Offsets are grouped per name on every flush so a lookup can skip the
+ * blocks of other names without decoding them.
+ */
+class LogIndex {
+    static final String SUFFIX = ".idx";
+    private static final byte[] MAGIC = { 'A', 'L', 'I', 1 };
+    private static final byte TYPE_DICT = 1;
+    private static final byte TYPE_BLOCK = 2;
+    private static final byte TYPE_MARK = 3;
+    private static final byte TYPE_MINUTE = 4;
+
+    private final long startOffset;
+    private final long coveredEnd;
+    private final long[] offsets;
+
+    private LogIndex(long startOffset, long coveredEnd, long[] offsets) {
+        this.startOffset = startOffset;
+        this.coveredEnd = coveredEnd;
+        this.offsets = offsets;
+    }
+
+    static Path sidecarOf(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName().toString() + SUFFIX);
+    }
+
+    long getStartOffset() { return startOffset; }
+
+    long getCoveredEnd() { return coveredEnd; }
+
+    /** Sorted line offsets of every record whose name matches. */
+    long[] getOffsets() { return offsets; }
+
+    static LogIndex load(Path logFile, Predicate<String> nameFilter) throws IOException {
+        Path sidecar = sidecarOf(logFile);
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        Map<Integer, Boolean> matches = new HashMap<>();
+        long[] found = new long[64];
+        int count = 0;
+        long coveredEnd;
+        long startOffset;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar), 64 * 1024))) {
+            startOffset = readHeader(in);
+            coveredEnd = startOffset;
+            List<long[]> pending = new ArrayList<>();
+            int pendingCount = 0;
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == TYPE_DICT) {
+                        int id = readVarInt(in);
+                        matches.put(id, nameFilter.test(readString(in)));
+                    } else if (type == TYPE_BLOCK) {
+                        int id = readVarInt(in);
+                        int n = readVarInt(in);
+                        if (Boolean.TRUE.equals(matches.get(id))) {
+                            long[] block = new long[n];
+                            for (int i = 0; i < n; i++) {
+                                block[i] = in.readLong();
+                            }
+                            pending.add(block);
+                            pendingCount += n;
+                        } else {
+                            skipFully(in, 8L * n);
+                        }
+                    } else if (type == TYPE_MINUTE) {
+                        skipFully(in, 16);
+                    } else if (type == TYPE_MARK) {
+                        coveredEnd = in.readLong();
+                        if (count + pendingCount > found.length) {
+                            found = Arrays.copyOf(found, Math.max(found.length * 2, count + pendingCount));
+                        }
+                        for (long[] block : pending) {
+                            System.arraycopy(block, 0, found, count, block.length);
+                            count += block.length;
+                        }
+                        pending.clear();
+                        pendingCount = 0;
+                    } else {
+                        break;
+                    }
+                }
+            } catch (EOFException e) {
+                // torn tail: keep everything up to the last MARK
+            }
+        }
+        long[] offsets = Arrays.copyOf(found, count);
+        Arrays.sort(offsets);
+        return new LogIndex(startOffset, coveredEnd, offsets);
+    }
+
+    /**
+     * Offset of the first record of the latest indexed minute strictly before
+     * {@code epochMinute}, which is where a scan for that minute can start.
+     * Returns 0 when there is no sidecar or no earlier minute.
+     */
+    static long seekOffset(Path logFile, long epochMinute) throws IOException {
+        Path sidecar = sidecarOf(logFile);
+        if (!Files.exists(sidecar)) {
+            return 0;
+        }
+        long candidate = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar), 64 * 1024))) {
+            readHeader(in);
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == TYPE_DICT) {
+                        readVarInt(in);
+                        skipFully(in, readVarInt(in));
+                    } else if (type == TYPE_BLOCK) {
+                        readVarInt(in);
+                        skipFully(in, 8L * readVarInt(in));
+                    } else if (type == TYPE_MINUTE) {
+                        long minute = in.readLong();
+                        long offset = in.readLong();
+                        if (minute >= epochMinute) {
+                            break;
+                        }
+                        candidate = offset;
+                    } else if (type == TYPE_MARK) {
+                        in.readLong();
+                    } else {
+                        break;
+                    }
+                }
+            } catch (EOFException e) {
+                // lines are flushed before their index entries, so any complete entry is usable
+            }
+        }
+        return candidate;
+    }
+
+    private static long readHeader(DataInputStream in) throws IOException {
+        for (byte b : MAGIC) {
+            if (in.readByte() != b) {
+                throw new IOException("Not a log index file");
+            }
+        }
+        return in.readLong();
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipFully(DataInputStream in, long n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes((int) Math.min(n, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            n -= skipped;
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /** Appends offsets for one text log file; driven by {@link LogSink}. */
+    static class Appender {
+        private final DataOutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final Map<Integer, long[]> pending = new HashMap<>();
+        private final Map<Integer, Integer> pendingCounts = new HashMap<>();
+        private final List<long[]> pendingMinutes = new ArrayList<>();
+        private long coveredEnd = -1;
+        private long lastMinute = Long.MIN_VALUE;
+
+        Appender(Path logFile, long logSize) throws IOException {
+            Path sidecar = sidecarOf(logFile);
+            long keep = recover(sidecar, logSize);
+            if (keep < 0) {
+                try (DataOutputStream header = new DataOutputStream(Files.newOutputStream(sidecar))) {
+                    header.write(MAGIC);
+                    header.writeLong(logSize);
+                }
+            } else {
+                try (RandomAccessFile raf = new RandomAccessFile(sidecar.toFile(), "rw")) {
+                    raf.setLength(keep);
+                }
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecar.toFile(), true)));
+            if (keep >= 0) {
+                backfill(logFile, logSize);
+            }
+        }
+
+        void add(String name, long offset, long timestamp) throws IOException {
+            long minute = Math.floorDiv(timestamp, 60_000L);
+            if (minute > lastMinute) {
+                pendingMinutes.add(new long[] { minute, offset });
+                lastMinute = minute;
+            }
+            Integer id = dictionary.get(name);
+            if (id == null) {
+                id = dictionary.size();
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeByte(TYPE_DICT);
+                writeVarInt(out, id);
+                writeVarInt(out, bytes.length);
+                out.write(bytes);
+                dictionary.put(name, id);
+            }
+            long[] block = pending.get(id);
+            int n = pendingCounts.getOrDefault(id, 0);
+            if (block == null || n == block.length) {
+                block = block == null ? new long[16] : Arrays.copyOf(block, block.length * 2);
+                pending.put(id, block);
+            }
+            block[n] = offset;
+            pendingCounts.put(id, n + 1);
+        }
+
+        void flush(long coveredEnd) throws IOException {
+            if (!pending.isEmpty()) {
+                for (long[] minute : pendingMinutes) {
+                    out.writeByte(TYPE_MINUTE);
+                    out.writeLong(minute[0]);
+                    out.writeLong(minute[1]);
+                }
+                pendingMinutes.clear();
+                for (Map.Entry<Integer, long[]> entry : pending.entrySet()) {
+                    int n = pendingCounts.get(entry.getKey());
+                    out.writeByte(TYPE_BLOCK);
+                    writeVarInt(out, entry.getKey());
+                    writeVarInt(out, n);
+                    long[] block = entry.getValue();
+                    for (int i = 0; i < n; i++) {
+                        out.writeLong(block[i]);
+                    }
+                }
+                pending.clear();
+                pendingCounts.clear();
+                out.writeByte(TYPE_MARK);
+                out.writeLong(coveredEnd);
+            }
+            out.flush();
+        }
+
+        void close(long coveredEnd) throws IOException {
+            flush(coveredEnd);
+            out.close();
+        }
+
+        /**
+         * Rebuilds the dictionary from an existing sidecar and returns the
+         * length to keep (up to the last MARK), or -1 to start a new one.
+         */
+        private long recover(Path sidecar, long logSize) throws IOException {
+            if (!Files.exists(sidecar)) {
+                return -1;
+            }
+            long keep;
+            int committedNames = 0;
+            long minute = Long.MIN_VALUE;
+            Map<String, Integer> names = new HashMap<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+                long position = MAGIC.length + 8;
+                coveredEnd = readHeader(in);
+                keep = position;
+                try {
+                    while (true) {
+                        byte type = in.readByte();
+                        position++;
+                        if (type == TYPE_DICT) {
+                            int id = readVarInt(in);
+                            byte[] bytes = new byte[readVarInt(in)];
+                            in.readFully(bytes);
+                            names.put(new String(bytes, StandardCharsets.UTF_8), id);
+                            position += BinaryLogFormat.varIntSize(id) + BinaryLogFormat.varIntSize(bytes.length)
+                                    + bytes.length;
+                        } else if (type == TYPE_BLOCK) {
+                            int id = readVarInt(in);
+                            int n = readVarInt(in);
+                            skipFully(in, 8L * n);
+                            position += BinaryLogFormat.varIntSize(id) + BinaryLogFormat.varIntSize(n) + 8L * n;
+                        } else if (type == TYPE_MINUTE) {
+                            minute = in.readLong();
+                            in.readLong();
+                            position += 16;
+                        } else if (type == TYPE_MARK) {
+                            coveredEnd = in.readLong();
+                            position += 8;
+                            keep = position;
+                            committedNames = names.size();
+                            lastMinute = minute;
+                        } else {
+                            break;
+                        }
+                    }
+                } catch (EOFException e) {
+                    // torn tail is cut off by the caller
+                }
+            } catch (IOException e) {
+                return -1;
+            }
+            if (coveredEnd > logSize) {
+                return -1;
+            }
+            for (Map.Entry<String, Integer> entry : names.entrySet()) {
+                if (entry.getValue() < committedNames) {
+                    dictionary.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return keep;
+        }
+
+        private void backfill(Path logFile, long logSize) throws IOException {
+            if (coveredEnd < 0 || coveredEnd >= logSize) {
+                return;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(logFile.toFile(), "r")) {
+                raf.seek(coveredEnd);
+                long offset = coveredEnd;
+                String line;
+                while ((line = raf.readLine()) != null) {
+                    LogRecord record = Logger.parseLine(new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8));
+                    if (record != null) {
+                        add(record.getName(), offset, record.getTimestamp());
+                    }
+                    offset = raf.getFilePointer();
+                }
+            }
+            flush(logSize);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Encodes a {@link LogRecord} as a UTF-8 text line straight into a reusable
+ * buffer. The "[yyyy-MM-dd HH:mm:ss] " prefix is rebuilt only when the second
+ * changes, scope and level come from pre-encoded tables and ASCII text is
+ * copied char by char, so encoding a line allocates nothing.
+ * One instance per thread, see {@link #get()}.
+ */
+public class LogLineEncoder {
+    private static final DateTimeFormatter TS_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[][] SCOPES = new byte[Logger.Scope.values().length][];
+    private static final byte[][] LEVELS = new byte[Logger.Level.values().length][];
+    private static final ThreadLocal<LogLineEncoder> ENCODERS = ThreadLocal.withInitial(LogLineEncoder::new);
+
+    static {
+        for (Logger.Scope scope : Logger.Scope.values()) {
+            SCOPES[scope.ordinal()] = (scope.name() + ".").getBytes(StandardCharsets.US_ASCII);
+        }
+        for (Logger.Level level : Logger.Level.values()) {
+            LEVELS[level.ordinal()] = (level.name() + "(").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final byte[] prefix = new byte[22];
+    private long prefixSecond = Long.MIN_VALUE;
+    private ByteBuffer buffer = ByteBuffer.allocate(512);
+
+    public static LogLineEncoder get() {
+        return ENCODERS.get();
+    }
+
+    /**
+     * Encodes the line followed by the platform line separator. The returned
+     * buffer is flipped and stays valid until the next call on this thread.
+     */
+    public ByteBuffer encode(LogRecord record) {
+        return encode(record, true);
+    }
+
+    ByteBuffer encode(LogRecord record, boolean newline) {
+        String name = record.getName();
+        String message = record.getMessage();
+        int max = prefix.length + 16 + 3 * (length(record.getLevel()) + length(name) + length(message))
+                + LINE_SEPARATOR.length + 8;
+        if (buffer.capacity() < max) {
+            buffer = ByteBuffer.allocate(Math.max(max, buffer.capacity() * 2));
+        }
+        ByteBuffer buf = buffer;
+        buf.clear();
+        buf.put(prefix(record.getTimestamp()));
+        buf.put(SCOPES[record.getScope().ordinal()]);
+        Logger.Level level = Logger.Level.parse(record.getLevel());
+        if (level != null) {
+            buf.put(LEVELS[level.ordinal()]);
+        } else {
+            putUtf8(buf, String.valueOf(record.getLevel()));
+            buf.put((byte) '(');
+        }
+        putUtf8(buf, String.valueOf(name));
+        buf.put((byte) ')').put((byte) ':').put((byte) ' ');
+        putUtf8(buf, String.valueOf(message));
+        if (newline) {
+            buf.put(LINE_SEPARATOR);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private byte[] prefix(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        if (second != prefixSecond) {
+            String ts = Logger.toDateTime(millis).format(TS_FMT);
+            prefix[0] = '[';
+            for (int i = 0; i < 19; i++) {
+                prefix[i + 1] = (byte) ts.charAt(i);
+            }
+            prefix[20] = ']';
+            prefix[21] = ' ';
+            prefixSecond = second;
+        }
+        return prefix;
+    }
+
+    private static int length(String s) {
+        return s == null ? 4 : s.length();
+    }
+
+    /** Writes {@code s} as UTF-8; the heap buffer must have room for 3 bytes per char. */
+    static void putUtf8(ByteBuffer buf, String s) {
+        byte[] a = buf.array();
+        int p = buf.arrayOffset() + buf.position();
+        int len = s.length();
+        int i = 0;
+        for (; i < len; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            a[p++] = (byte) c;
+        }
+        for (; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                a[p++] = (byte) c;
+            } else if (c < 0x800) {
+                a[p++] = (byte) (0xC0 | (c >> 6));
+                a[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                a[p++] = (byte) (0xF0 | (cp >> 18));
+                a[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                a[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                a[p++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                a[p++] = '?';
+            } else {
+                a[p++] = (byte) (0xE0 | (c >> 12));
+                a[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                a[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buf.position(p - buf.arrayOffset());
+    }
+
+    /** Number of bytes {@link #putUtf8} writes for {@code s}. */
+    static int utf8Length(String s) {
+        int len = s.length();
+        int bytes = len;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+}
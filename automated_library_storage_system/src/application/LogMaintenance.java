@@ -0,0 +1,157 @@
+package application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Background housekeeping of the log directory on a single low-priority
+ * thread: seals the active files of past days, gzips sealed segments and
+ * applies the retention limits. Runs are coalesced, so scheduling is cheap.
+ */
+class LogMaintenance {
+    private final LogSink sink;
+    private final Path root;
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "log-maintenance");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private volatile boolean compress = true;
+    private volatile int retentionDays = 30;
+    private volatile long retentionBytes = 1024L * 1024 * 1024;
+
+    LogMaintenance(LogSink sink, Path root) {
+        this.sink = sink;
+        this.root = root;
+    }
+
+    void configure(boolean compress, int retentionDays, long retentionBytes) {
+        this.compress = compress;
+        this.retentionDays = retentionDays;
+        this.retentionBytes = retentionBytes;
+    }
+
+    void schedule() {
+        if (pending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                pending.set(false);
+                run();
+            });
+        }
+    }
+
+    /** Runs a pass on the maintenance thread and waits for it. */
+    void runNow() {
+        try {
+            executor.submit(this::run).get(5, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void run() {
+        try {
+            LocalDate today = LocalDate.now();
+            for (LogFiles.Name name : LogFiles.list(root)) {
+                if (name.isActive() && name.date.isBefore(today)) {
+                    sink.sealIfIdle(name.path);
+                }
+            }
+            if (compress) {
+                for (LogFiles.Name name : LogFiles.list(root)) {
+                    if (!name.isActive() && !name.compressed) {
+                        compress(name.path);
+                    }
+                }
+            }
+            applyRetention(today);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void compress(Path file) {
+        Path target = file.resolveSibling(file.getFileName() + ".gz");
+        Path tmp = file.resolveSibling(file.getFileName() + ".gz.tmp");
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                in.transferTo(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Path sidecar = LogIndex.sidecarOf(file);
+            if (Files.exists(sidecar)) {
+                Files.move(sidecar, LogIndex.sidecarOf(target), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.delete(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void applyRetention(LocalDate today) throws IOException {
+        List<LogFiles.Name> names = LogFiles.list(root);
+        names.sort(Comparator.comparing((LogFiles.Name n) -> n.date).thenComparingInt(n -> n.segment));
+        List<LogFiles.Name> kept = new ArrayList<>();
+        long total = 0;
+        for (LogFiles.Name name : names) {
+            if (retentionDays > 0 && name.date.isBefore(today.minusDays(retentionDays))) {
+                delete(name.path);
+            } else {
+                kept.add(name);
+                total += size(name.path);
+            }
+        }
+        if (retentionBytes <= 0) {
+            return;
+        }
+        for (LogFiles.Name name : kept) {
+            if (total <= retentionBytes) {
+                break;
+            }
+            if (name.isActive() && !name.date.isBefore(today)) {
+                continue;
+            }
+            total -= size(name.path);
+            delete(name.path);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            Path sidecar = LogIndex.sidecarOf(file);
+            return Files.size(file) + (Files.exists(sidecar) ? Files.size(sidecar) : 0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(LogIndex.sidecarOf(file));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Time-range query over the day files. Every scope is read on its own, day by
+ * day, starting at the minute offset from the {@link LogIndex} sidecar and
+ * stopping once the records are past the end of the range; the scopes are then
+ * merged by timestamp. Nothing is materialised, so memory stays flat no matter
+ * how many days the range covers.
+ */
+class LogQuery {
+    /** Records are appended in roughly, not strictly, increasing time order. */
+    static final long ORDER_SLACK_MILLIS = 2000;
+
+    private final Set<Logger.Level> levels;
+    private final String equipmentName;
+    private final long from;
+    private final long to;
+
+    LogQuery(Set<Logger.Level> levels, String equipmentName, long from, long to) {
+        this.levels = levels == null || levels.isEmpty() ? null : levels;
+        this.equipmentName = equipmentName == null || equipmentName.trim().isEmpty() ? null : equipmentName.trim();
+        this.from = from;
+        this.to = to;
+    }
+
+    Stream<LogRecord> run(Set<Logger.Scope> scopes) {
+        List<ScopeRecords> sources = new ArrayList<>();
+        for (Logger.Scope scope : Logger.Scope.values()) {
+            if (scopes == null || scopes.isEmpty() || scopes.contains(scope)) {
+                sources.add(new ScopeRecords(scope));
+            }
+        }
+        Merge merge = new Merge(sources);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merge,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(merge::close);
+    }
+
+    boolean matches(LogRecord record) {
+        long ts = record.getTimestamp();
+        if (ts < from || ts >= to) {
+            return false;
+        }
+        if (levels != null && !levels.contains(Logger.Level.parse(record.getLevel()))) {
+            return false;
+        }
+        return equipmentName == null || equipmentName.equalsIgnoreCase(record.getName());
+    }
+
+    /** Records of one scope in file order, day after day. */
+    private class ScopeRecords implements Iterator<LogRecord> {
+        private final Logger.Scope scope;
+        private final LocalDate lastDay;
+        private LocalDate day;
+        private Iterator<Path> files;
+        private Source source;
+        private LogRecord next;
+        private boolean done = false;
+
+        ScopeRecords(Logger.Scope scope) {
+            this.scope = scope;
+            this.day = Logger.toDateTime(from).toLocalDate();
+            this.lastDay = Logger.toDateTime(Math.max(from, to - 1)).toLocalDate();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = advance();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public LogRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LogRecord record = next;
+            next = null;
+            return record;
+        }
+
+        void close() {
+            if (source != null) {
+                source.close();
+                source = null;
+            }
+            done = true;
+        }
+
+        private LogRecord advance() {
+            try {
+                while (true) {
+                    if (source != null) {
+                        while (source.hasNext()) {
+                            LogRecord record = source.next();
+                            if (record.getTimestamp() >= to + ORDER_SLACK_MILLIS) {
+                                close();
+                                return null;
+                            }
+                            if (matches(record)) {
+                                return record;
+                            }
+                        }
+                        source.close();
+                        source = null;
+                    }
+                    if (files == null || !files.hasNext()) {
+                        if (day.isAfter(lastDay)) {
+                            return null;
+                        }
+                        files = dayFiles(day).iterator();
+                        day = day.plusDays(1);
+                        continue;
+                    }
+                    source = open(files.next());
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<Path> dayFiles(LocalDate date) throws IOException {
+            List<Path> files = Logger.dayFiles(scope, date);
+            if (files.isEmpty() && !Logger.isTextLogging()) {
+                files = Logger.byteStreamFiles(date);
+            }
+            return files;
+        }
+
+        private Source open(Path file) throws IOException {
+            String fileName = file.getFileName().toString();
+            if (fileName.endsWith(".bin") || fileName.endsWith(".bin.gz")) {
+                return new BinarySource(BinaryLogReader.open(file), scope);
+            }
+            long seek = LogIndex.seekOffset(file, Math.floorDiv(from, 60_000L));
+            String name = equipmentName;
+            return new TextSource(new LogSearch.IndexedLines(file,
+                    name == null ? null : n -> n.equalsIgnoreCase(name), seek));
+        }
+    }
+
+    private interface Source extends Iterator<LogRecord> {
+        void close();
+    }
+
+    private static class TextSource implements Source {
+        private final LogSearch.IndexedLines lines;
+        private LogRecord next;
+
+        TextSource(LogSearch.IndexedLines lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && lines.hasNext()) {
+                next = Logger.parseLine(lines.next());
+            }
+            return next != null;
+        }
+
+        @Override
+        public LogRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LogRecord record = next;
+            next = null;
+            return record;
+        }
+
+        @Override
+        public void close() {
+            lines.close();
+        }
+    }
+
+    private static class BinarySource implements Source {
+        private final BinaryLogReader reader;
+        private final Logger.Scope scope;
+        private LogRecord next;
+
+        BinarySource(BinaryLogReader reader, Logger.Scope scope) {
+            this.reader = reader;
+            this.scope = scope;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && reader.hasNext()) {
+                LogRecord record = reader.next();
+                if (record.getScope() == scope) {
+                    next = record;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public LogRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LogRecord record = next;
+            next = null;
+            return record;
+        }
+
+        @Override
+        public void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** k-way merge of the per-scope iterators by timestamp; ties keep scope order. */
+    private static class Merge implements Iterator<LogRecord> {
+        private final List<ScopeRecords> sources;
+        private final PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> {
+            int c = Long.compare(a.record.getTimestamp(), b.record.getTimestamp());
+            return c != 0 ? c : Integer.compare(a.source, b.source);
+        });
+        private boolean started = false;
+
+        Merge(List<ScopeRecords> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                for (int i = 0; i < sources.size(); i++) {
+                    pull(i);
+                }
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public LogRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head head = heads.poll();
+            pull(head.source);
+            return head.record;
+        }
+
+        void close() {
+            for (ScopeRecords source : sources) {
+                source.close();
+            }
+        }
+
+        private void pull(int source) {
+            ScopeRecords records = sources.get(source);
+            if (records.hasNext()) {
+                heads.add(new Head(records.next(), source));
+            }
+        }
+    }
+
+    private static class Head {
+        final LogRecord record;
+        final int source;
+
+        Head(LogRecord record, int source) {
+            this.record = record;
+            this.source = source;
+        }
+    }
+}
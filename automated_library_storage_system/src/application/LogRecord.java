@@ -0,0 +1,32 @@
+package application;
+
+public class LogRecord {
+    private final long timestamp;
+    private final Logger.Scope scope;
+    private final String name;
+    private final String level;
+    private final String message;
+
+    public LogRecord(long timestamp, Logger.Scope scope, String name, String level, String message) {
+        this.timestamp = timestamp;
+        this.scope = scope;
+        this.name = name;
+        this.level = level;
+        this.message = message;
+    }
+
+    public long getTimestamp() { return timestamp; }
+
+    public Logger.Scope getScope() { return scope; }
+
+    public String getName() { return name; }
+
+    public String getLevel() { return level; }
+
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return Logger.formatLine(this);
+    }
+}
@@ -0,0 +1,67 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded window of the most recent records of one scope. Every record gets
+ * a sequence number; a cursor is the sequence number of the next record the
+ * caller has not seen yet.
+ */
+class LogRingBuffer {
+    private final LogRecord[] entries;
+    private long next = 0;
+    private long first = 0;
+    private boolean seeded = false;
+
+    LogRingBuffer(int capacity) {
+        this.entries = new LogRecord[Math.max(1, capacity)];
+    }
+
+    synchronized void append(LogRecord record) {
+        entries[(int) (next % entries.length)] = record;
+        next++;
+    }
+
+    synchronized LogTail since(long cursor) {
+        long oldest = Math.max(first, next - entries.length);
+        long from = Math.max(Math.max(0, cursor), oldest);
+        List<LogRecord> records = new ArrayList<>((int) Math.max(0, next - from));
+        for (long seq = from; seq < next; seq++) {
+            records.add(entries[(int) (seq % entries.length)]);
+        }
+        return new LogTail(records, next, cursor < oldest);
+    }
+
+    synchronized long cursor() {
+        return next;
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    synchronized boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Replaces the retained window with {@code history} (oldest first), which
+     * then fills the sequence numbers just below the cursor. The sequence
+     * never goes back, so cursors handed out earlier stay valid; a caller
+     * behind the history is told its view was truncated.
+     */
+    synchronized void seed(List<LogRecord> history) {
+        int size = Math.min(history.size(), entries.length);
+        int start = history.size() - size;
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        next = Math.max(next, size);
+        first = next - size;
+        for (int i = 0; i < size; i++) {
+            entries[(int) ((first + i) % entries.length)] = history.get(start + i);
+        }
+        seeded = true;
+    }
+}
@@ -0,0 +1,258 @@
+package application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Equipment search over the text logs. Indexed files are read only at the
+ * offsets listed in their {@link LogIndex} sidecar; the parts an index does
+ * not cover (lines written before it existed, or after its last mark) are
+ * scanned.
+ */
+class LogSearch {
+
+    static Stream<String> byEquipment(Path root, String equipmentName) throws IOException {
+        String term = equipmentName.trim().toLowerCase();
+        Path[] files = LogFiles.list(root).stream()
+                .filter(name -> name.extension.equals("log"))
+                .map(name -> name.path)
+                .toArray(Path[]::new);
+        return Arrays.stream(files).flatMap(file -> matches(file, term));
+    }
+
+    private static Stream<String> matches(Path file, String term) {
+        try {
+            String prefix = file.getFileName().toString() + ": ";
+            IndexedLines lines = new IndexedLines(file, name -> name.toLowerCase().contains(term), 0);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(lines, Spliterator.ORDERED), false)
+                    .onClose(lines::close)
+                    .map(line -> prefix + line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Raw lines of one text file from {@code seekOffset} on whose record name
+     * passes {@code nameFilter}, or every line when the filter is null.
+     */
+    static class IndexedLines implements Iterator<String> {
+        private final Predicate<String> nameFilter;
+        private final LineReader reader;
+        private final long[] offsets;
+        private final long prefixEnd;
+        private final long tailStart;
+        private int phase = 0;
+        private int nextOffset;
+        private String next;
+
+        IndexedLines(Path file, Predicate<String> nameFilter, long seekOffset) throws IOException {
+            this.nameFilter = nameFilter;
+            LogIndex index = nameFilter == null ? null : LogIndex.load(file, nameFilter);
+            if (index == null) {
+                offsets = new long[0];
+                prefixEnd = Long.MAX_VALUE;
+                tailStart = Long.MAX_VALUE;
+            } else {
+                offsets = index.getOffsets();
+                prefixEnd = index.getStartOffset();
+                tailStart = Math.max(seekOffset, index.getCoveredEnd());
+            }
+            int first = Arrays.binarySearch(offsets, seekOffset);
+            this.nextOffset = first >= 0 ? first : -first - 1;
+            this.reader = new LineReader(file);
+            this.reader.seek(seekOffset);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = next;
+            next = null;
+            return line;
+        }
+
+        void close() {
+            reader.close();
+        }
+
+        private boolean accept(String line) {
+            if (nameFilter == null) {
+                return true;
+            }
+            LogRecord record = Logger.parseLine(line);
+            if (record == null) {
+                return nameFilter.test(line);
+            }
+            return record.getName() != null && nameFilter.test(record.getName());
+        }
+
+        private String advance() {
+            try {
+                if (phase == 0) {
+                    String line;
+                    while (reader.position() < prefixEnd && (line = reader.readLine()) != null) {
+                        if (accept(line)) {
+                            return line;
+                        }
+                    }
+                    phase = 1;
+                }
+                if (phase == 1) {
+                    while (nextOffset < offsets.length) {
+                        reader.seek(offsets[nextOffset++]);
+                        String line = reader.readLine();
+                        if (line != null) {
+                            return line;
+                        }
+                    }
+                    phase = 2;
+                    reader.seek(tailStart);
+                }
+                if (phase == 2) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (accept(line)) {
+                            return line;
+                        }
+                    }
+                    phase = 3;
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Buffered line reader over a log segment that supports cheap forward seeks.
+     * Compressed segments are decompressed as a stream; seeking backwards in
+     * them reopens the file.
+     */
+    static class LineReader {
+        private final Path file;
+        private final RandomAccessFile raf;
+        private InputStream in;
+        private long inPos = 0;
+        private final byte[] buf = new byte[64 * 1024];
+        private long bufStart = 0;
+        private int bufLen = 0;
+        private long pos = 0;
+        private byte[] line = new byte[256];
+
+        LineReader(Path file) throws IOException {
+            this.file = file;
+            this.raf = LogFiles.isCompressed(file) ? null : new RandomAccessFile(file.toFile(), "r");
+        }
+
+        long position() {
+            return pos;
+        }
+
+        void seek(long offset) {
+            pos = offset;
+        }
+
+        String readLine() throws IOException {
+            int len = 0;
+            while (true) {
+                if (pos < bufStart || pos >= bufStart + bufLen) {
+                    if (!fill()) {
+                        return len == 0 ? null : decode(len);
+                    }
+                }
+                int i = (int) (pos - bufStart);
+                while (i < bufLen) {
+                    byte b = buf[i++];
+                    pos++;
+                    if (b == '\n') {
+                        return decode(len);
+                    }
+                    if (len == line.length) {
+                        line = Arrays.copyOf(line, len * 2);
+                    }
+                    line[len++] = b;
+                }
+            }
+        }
+
+        void close() {
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private boolean fill() throws IOException {
+            int n;
+            if (raf != null) {
+                raf.seek(pos);
+                n = raf.read(buf, 0, buf.length);
+            } else {
+                n = readCompressed();
+            }
+            bufStart = pos;
+            bufLen = Math.max(0, n);
+            return n > 0;
+        }
+
+        private int readCompressed() throws IOException {
+            if (in == null || pos < inPos) {
+                if (in != null) {
+                    in.close();
+                }
+                in = LogFiles.open(file);
+                inPos = 0;
+            }
+            while (inPos < pos) {
+                long skipped = in.skip(pos - inPos);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        return -1;
+                    }
+                    skipped = 1;
+                }
+                inPos += skipped;
+            }
+            int n = in.readNBytes(buf, 0, buf.length);
+            inPos += n;
+            return n == 0 ? -1 : n;
+        }
+
+        private String decode(int len) {
+            if (len > 0 && line[len - 1] == '\r') {
+                len--;
+            }
+            return new String(line, 0, len, StandardCharsets.UTF_8);
+        }
+    }
+}
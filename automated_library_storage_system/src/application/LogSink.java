@@ -0,0 +1,194 @@
+package application;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the per-scope day files and the binary byte stream open between writes.
+ * Everything is rolled over when the first record of a new day arrives, and a
+ * file is sealed as a numbered segment (see {@link LogFiles}) once it grows past
+ * the segment size; sealed segments are handed to {@link LogMaintenance}.
+ * The byte stream is always written; text files can be switched off and are
+ * then rendered from the byte stream on demand. Each text file carries a
+ * {@link LogIndex} sidecar with the offset of every line by equipment name.
+ */
+class LogSink {
+    private final Map<Path, TextFile> writers = new HashMap<>();
+    private final LogMaintenance maintenance;
+    private BinaryLogWriter byteStream;
+    private LocalDate currentDay;
+    private volatile boolean textEnabled = true;
+    private volatile long segmentBytes = 32L * 1024 * 1024;
+
+    LogSink(Path root) {
+        this.maintenance = new LogMaintenance(this, root);
+    }
+
+    LogMaintenance getMaintenance() {
+        return maintenance;
+    }
+
+    void setSegmentBytes(long segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    void setTextEnabled(boolean textEnabled) {
+        this.textEnabled = textEnabled;
+    }
+
+    boolean isTextEnabled() {
+        return textEnabled;
+    }
+
+    synchronized void write(List<LogRecord> records) {
+        for (LogRecord record : records) {
+            append(record);
+        }
+        flush();
+    }
+
+    synchronized void append(LogRecord record) {
+        LocalDate day = Logger.toDateTime(record.getTimestamp()).toLocalDate();
+        if (!day.equals(currentDay)) {
+            boolean rolled = currentDay != null;
+            closeAll();
+            currentDay = day;
+            if (rolled) {
+                maintenance.schedule();
+            }
+        }
+
+        if (textEnabled) {
+            try {
+                Path file = Logger.resolveLogFile(record.getScope(), record.getName(), day);
+                TextFile text = writers.get(file);
+                if (text == null) {
+                    text = new TextFile(file);
+                    writers.put(file, text);
+                }
+                text.append(record);
+                if (text.position >= segmentBytes) {
+                    text.close();
+                    writers.remove(file);
+                    seal(file);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        try {
+            if (byteStream == null) {
+                byteStream = new BinaryLogWriter(Logger.resolveByteStreamFile(day));
+            }
+            byteStream.append(record);
+            if (byteStream.size() >= segmentBytes) {
+                BinaryLogWriter full = byteStream;
+                byteStream = null;
+                full.close();
+                seal(full.getFile());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Seals an active day file that is no longer being written. */
+    synchronized void sealIfIdle(Path file) {
+        if (writers.containsKey(file) || (byteStream != null && byteStream.getFile().equals(file))) {
+            return;
+        }
+        try {
+            seal(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void seal(Path file) throws IOException {
+        LogFiles.Name name = LogFiles.parse(file);
+        if (name == null || !Files.exists(file)) {
+            return;
+        }
+        Path target = name.segmentPath(LogFiles.nextSegment(file));
+        Files.move(file, target);
+        Path sidecar = LogIndex.sidecarOf(file);
+        if (Files.exists(sidecar)) {
+            Files.move(sidecar, LogIndex.sidecarOf(target), StandardCopyOption.REPLACE_EXISTING);
+        }
+        maintenance.schedule();
+    }
+
+    synchronized void flush() {
+        for (TextFile writer : writers.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    synchronized void close() {
+        closeAll();
+        currentDay = null;
+    }
+
+    private void closeAll() {
+        for (TextFile writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        writers.clear();
+        if (byteStream != null) {
+            try {
+                byteStream.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            byteStream = null;
+        }
+    }
+
+    private static class TextFile {
+        private final OutputStream out;
+        private final LogIndex.Appender index;
+        private long position;
+
+        TextFile(Path file) throws IOException {
+            this.position = file.toFile().length();
+            this.index = new LogIndex.Appender(file, position);
+            this.out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 16 * 1024);
+        }
+
+        void append(LogRecord record) throws IOException {
+            ByteBuffer line = LogLineEncoder.get().encode(record);
+            index.add(record.getName() == null ? "all" : record.getName(), position, record.getTimestamp());
+            out.write(line.array(), 0, line.limit());
+            position += line.limit();
+        }
+
+        void flush() throws IOException {
+            out.flush();
+            index.flush(position);
+        }
+
+        void close() throws IOException {
+            out.close();
+            index.close(position);
+        }
+    }
+}
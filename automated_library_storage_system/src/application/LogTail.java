@@ -0,0 +1,30 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogTail {
+    private final List<LogRecord> records;
+    private final long cursor;
+    private final boolean truncated;
+
+    public LogTail(List<LogRecord> records, long cursor, boolean truncated) {
+        this.records = records;
+        this.cursor = cursor;
+        this.truncated = truncated;
+    }
+
+    public List<LogRecord> getRecords() { return records; }
+
+    public long getCursor() { return cursor; }
+
+    public boolean isTruncated() { return truncated; }
+
+    public List<String> getLines() {
+        List<String> lines = new ArrayList<>(records.size());
+        for (LogRecord record : records) {
+            lines.add(Logger.formatLine(record));
+        }
+        return lines;
+    }
+}
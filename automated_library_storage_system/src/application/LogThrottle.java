@@ -0,0 +1,266 @@
+package application;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Duplicate suppression and per-scope rate limiting in front of the sink.
+ *
+ * Records are keyed by scope, name, level and message template (the message
+ * itself when the caller passed a plain string). A record whose text equals
+ * the last one written for its key within the window is counted instead of
+ * written; the count is reported as "[repeated N times in T, from .. to ..]"
+ * once the text changes, the window ends or the logger is flushed. A summary
+ * is stamped when it is written, not when the repeats were seen, so the
+ * files, byte stream and minute index stay in time order; a sweep closes
+ * windows that ended so summaries are not held back. Records that pass are
+ * then charged against a token bucket of their scope; ERROR is never dropped.
+ */
+class LogThrottle {
+    static final int MAX_KEYS = 4096;
+    static final long SWEEP_MILLIS = 1000;
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private volatile TokenBucket[] buckets = new TokenBucket[Logger.Scope.values().length];
+    private volatile boolean dedupe = true;
+    private volatile long windowMillis = 60_000;
+    private ScheduledExecutorService sweeper;
+
+    void configure(boolean dedupe, long windowMillis, Map<Logger.Scope, Integer> ratePerSecond) {
+        this.dedupe = dedupe;
+        this.windowMillis = windowMillis;
+        TokenBucket[] updated = new TokenBucket[Logger.Scope.values().length];
+        if (ratePerSecond != null) {
+            for (Map.Entry<Logger.Scope, Integer> e : ratePerSecond.entrySet()) {
+                if (e.getKey() != null && e.getValue() != null && e.getValue() > 0) {
+                    updated[e.getKey().ordinal()] = new TokenBucket(e.getValue());
+                }
+            }
+        }
+        buckets = updated;
+    }
+
+    /** Passes {@code record} and any pending summaries to {@code out}, or swallows it. */
+    void admit(LogRecord record, String template, Consumer<LogRecord> out) {
+        if (dedupe) {
+            if (entries.size() > MAX_KEYS) {
+                drain(out);
+                entries.clear();
+            }
+            Key key = new Key(record, template == null ? record.getMessage() : template);
+            long now = record.getTimestamp();
+            LogRecord summary;
+            while (true) {
+                Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+                synchronized (entry) {
+                    if (entry.closed) {
+                        continue;
+                    }
+                    if (Objects.equals(entry.message, record.getMessage()) && now - entry.windowStart < windowMillis) {
+                        if (entry.repeats++ == 0) {
+                            entry.firstRepeat = now;
+                        }
+                        entry.lastRepeat = now;
+                        return;
+                    }
+                    summary = entry.summary(key, now);
+                    entry.message = record.getMessage();
+                    entry.windowStart = now;
+                    break;
+                }
+            }
+            if (summary != null) {
+                limit(summary, out);
+            }
+        }
+        limit(record, out);
+    }
+
+    /** Writes the summaries of every key with suppressed repeats, then any unreported drops. */
+    void drain(Consumer<LogRecord> out) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            LogRecord summary;
+            Entry entry = e.getValue();
+            synchronized (entry) {
+                summary = entry.summary(e.getKey(), now);
+            }
+            if (summary != null) {
+                limit(summary, out);
+            }
+        }
+        reportDrops(now, out);
+    }
+
+    /** Writes the summaries of windows that ended before {@code now} and forgets those keys. */
+    void expire(long now, Consumer<LogRecord> out) {
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            LogRecord summary;
+            Entry entry = e.getValue();
+            synchronized (entry) {
+                if (now - entry.windowStart < windowMillis) {
+                    continue;
+                }
+                summary = entry.summary(e.getKey(), now);
+                entry.closed = true;
+                entries.remove(e.getKey(), entry);
+            }
+            if (summary != null) {
+                limit(summary, out);
+            }
+        }
+    }
+
+    /** Runs {@link #expire} and {@link #reportDrops} every {@link #SWEEP_MILLIS} on a daemon thread. */
+    synchronized void sweep(Consumer<LogRecord> out) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "log-throttle");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                expire(now, out);
+                reportDrops(now, out);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void limit(LogRecord record, Consumer<LogRecord> out) {
+        TokenBucket bucket = buckets[record.getScope().ordinal()];
+        if (bucket == null || "ERROR".equals(record.getLevel())) {
+            out.accept(record);
+            return;
+        }
+        long dropped = bucket.acquire(record.getTimestamp());
+        if (dropped < 0) {
+            return;
+        }
+        if (dropped > 0) {
+            out.accept(dropReport(record.getTimestamp(), record.getScope(), dropped));
+        }
+        out.accept(record);
+    }
+
+    /** Reports drops no record has passed since, so a burst is always accounted for. */
+    void reportDrops(long now, Consumer<LogRecord> out) {
+        TokenBucket[] current = buckets;
+        for (Logger.Scope scope : Logger.Scope.values()) {
+            TokenBucket bucket = current[scope.ordinal()];
+            long dropped = bucket == null ? 0 : bucket.takeDropped();
+            if (dropped > 0) {
+                out.accept(dropReport(now, scope, dropped));
+            }
+        }
+    }
+
+    /** LogAnalytics reads these to flag its counts as incomplete. */
+    private static LogRecord dropReport(long now, Logger.Scope scope, long dropped) {
+        return new LogRecord(now, scope, "all", "WARN",
+                LogAnalytics.RATE_LIMIT_DROPPED + dropped + " " + scope + " records");
+    }
+
+    private static class Key {
+        final Logger.Scope scope;
+        final String name;
+        final String level;
+        final String text;
+        final int hash;
+
+        Key(LogRecord record, String text) {
+            this.scope = record.getScope();
+            this.name = record.getName();
+            this.level = record.getLevel();
+            this.text = text;
+            this.hash = ((scope.hashCode() * 31 + Objects.hashCode(name)) * 31
+                    + Objects.hashCode(level)) * 31 + Objects.hashCode(text);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && scope == k.scope && Objects.equals(name, k.name)
+                    && Objects.equals(level, k.level) && Objects.equals(text, k.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+        String message;
+        long windowStart;
+        long firstRepeat;
+        long lastRepeat;
+        int repeats;
+        boolean closed;
+
+        /**
+         * Summary of the suppressed repeats stamped {@code now}, resetting
+         * the count; null when there were none.
+         */
+        LogRecord summary(Key key, long now) {
+            if (repeats == 0) {
+                return null;
+            }
+            LogRecord summary = new LogRecord(Math.max(now, lastRepeat), key.scope, key.name, key.level,
+                    String.format("%s [repeated %d times in %.1fs, from %s to %s]", message, repeats,
+                            (lastRepeat - firstRepeat) / 1000.0, TIME_FMT.format(Logger.toDateTime(firstRepeat)),
+                            TIME_FMT.format(Logger.toDateTime(lastRepeat))));
+            repeats = 0;
+            return summary;
+        }
+    }
+
+    private static class TokenBucket {
+        private final double ratePerMilli;
+        private final double capacity;
+        private double tokens;
+        private long last;
+        private long dropped;
+
+        TokenBucket(int ratePerSecond) {
+            this.ratePerMilli = ratePerSecond / 1000.0;
+            this.capacity = ratePerSecond;
+            this.tokens = capacity;
+        }
+
+        /** -1 when the record must be dropped, else the number dropped since the last pass. */
+        synchronized long acquire(long now) {
+            if (last != 0 && now > last) {
+                tokens = Math.min(capacity, tokens + (now - last) * ratePerMilli);
+            }
+            last = Math.max(last, now);
+            if (tokens < 1) {
+                dropped++;
+                return -1;
+            }
+            tokens -= 1;
+            return takeDropped();
+        }
+
+        synchronized long takeDropped() {
+            long passed = dropped;
+            dropped = 0;
+            return passed;
+        }
+    }
+}
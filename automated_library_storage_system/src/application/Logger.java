@@ -1,21 +1,27 @@
 package application;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class Logger {
@@ -23,39 +29,239 @@ public class Logger {
     private static final DateTimeFormatter TS_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final Path LOG_ROOT = Paths.get("automated_library_storage_system", "logs");
 
+    private static final Pattern LINE_PATTERN = Pattern.compile(
+            "^\\[(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})\\] ([A-Z]+)\\.([A-Z]+)\\((.*?)\\): (.*)$");
     private static final Pattern RAW_PATTERN = Pattern.compile(
             "^(TASKS|RESOURCES|STORAGE|SYSTEM|COMMON):([^|]*)\\|([A-Z]+)\\|(.+)$");
 
     public enum Scope { TASKS, RESOURCES, STORAGE, SYSTEM, COMMON }
 
+    public enum OverflowPolicy { BLOCK, DROP_DEBUG, SAMPLE }
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR;
+
+        public static Level parse(String level) {
+            if (level == null) {
+                return null;
+            }
+            switch (level) {
+                case "DEBUG": return DEBUG;
+                case "INFO": return INFO;
+                case "WARN": return WARN;
+                case "ERROR": return ERROR;
+                default: return null;
+            }
+        }
+    }
+
+    private static final LogSink sink = new LogSink(LOG_ROOT);
+    private static final LogThrottle throttle = new LogThrottle();
+    private static volatile AsyncLogWriter asyncWriter;
+    private static boolean shutdownHookRegistered = false;
+    private static volatile Level[] minLevels = defaultLevels();
+    private static volatile LogRingBuffer[] recent = createRecent(1000);
+
+    static {
+        throttle.sweep(Logger::emit);
+    }
+
+    public static synchronized void applyConfig(SystemConfig config) {
+        sink.setTextEnabled(config.isTextLogging());
+        setMinLevels(config.getLogLevels());
+        setTailCapacity(config.getLogTailCapacity());
+        sink.setSegmentBytes(config.getLogSegmentBytes());
+        sink.getMaintenance().configure(config.isLogCompression(),
+                config.getLogRetentionDays(), config.getLogRetentionBytes());
+        sink.getMaintenance().schedule();
+        throttle.configure(config.isLogDedupe(), config.getLogDedupeWindowSeconds() * 1000L,
+                config.getLogRateLimits());
+        if (config.isAsyncLogging()) {
+            enableAsync(config.getLogQueueCapacity(), config.getLogOverflowPolicy());
+        } else {
+            disableAsync();
+        }
+    }
+
+    public static synchronized void enableAsync(int queueCapacity, OverflowPolicy policy) {
+        disableAsync();
+        asyncWriter = new AsyncLogWriter(sink, queueCapacity, policy == null ? OverflowPolicy.BLOCK : policy);
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Logger::shutdown, "log-shutdown"));
+            shutdownHookRegistered = true;
+        }
+    }
+
+    public static synchronized void disableAsync() {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            asyncWriter = null;
+            writer.close();
+        }
+    }
+
+    public static boolean isAsync() {
+        return asyncWriter != null;
+    }
+
+    public static void flush() {
+        throttle.drain(Logger::emit);
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.flush();
+        }
+        sink.flush();
+    }
+
+    /** Seals, compresses and prunes old log segments now instead of in the background. */
+    public static void runLogMaintenance() {
+        flush();
+        sink.getMaintenance().runNow();
+    }
+
+    public static void shutdown() {
+        throttle.drain(Logger::emit);
+        disableAsync();
+        sink.close();
+    }
+
+    public static synchronized void setTailCapacity(int capacity) {
+        if (capacity > 0 && capacity != recent[0].capacity()) {
+            recent = createRecent(capacity);
+        }
+    }
+
+    public static LogTail tail(Scope scope, long cursor) {
+        LogRingBuffer buffer = recent[scope.ordinal()];
+        if (!buffer.isSeeded()) {
+            seedRecent(scope, buffer);
+        }
+        return buffer.since(cursor);
+    }
+
+    public static void setMinLevel(Scope scope, Level level) {
+        Level[] levels = minLevels.clone();
+        levels[scope.ordinal()] = level == null ? Level.DEBUG : level;
+        minLevels = levels;
+    }
+
+    public static void setMinLevels(Map<Scope, Level> levels) {
+        Level[] updated = defaultLevels();
+        if (levels != null) {
+            for (Map.Entry<Scope, Level> entry : levels.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    updated[entry.getKey().ordinal()] = entry.getValue();
+                }
+            }
+        }
+        minLevels = updated;
+    }
+
+    public static Level getMinLevel(Scope scope) {
+        return minLevels[scope.ordinal()];
+    }
+
+    public static boolean isEnabled(Scope scope, String level) {
+        Level parsed = Level.parse(level);
+        return parsed == null || parsed.ordinal() >= minLevels[scope.ordinal()].ordinal();
+    }
+
+    public static void log(Scope scope, String name, String level, Supplier<String> message) {
+        if (isEnabled(scope, level)) {
+            write(scope, name, level, null, message.get());
+        }
+    }
+
+    public static void log(Scope scope, String name, String level, String template, Object... args) {
+        if (isEnabled(scope, level)) {
+            write(scope, name, level, template, String.format(template, args));
+        }
+    }
+
     public static void logSystem(String level, String message) {
         write(Scope.SYSTEM, "all", level, message);
     }
 
+    public static void logSystem(String level, Supplier<String> message) {
+        log(Scope.SYSTEM, "all", level, message);
+    }
+
+    public static void logSystem(String level, String template, Object... args) {
+        log(Scope.SYSTEM, "all", level, template, args);
+    }
+
     public static void logTasks(String level, String message) {
         write(Scope.TASKS, "all", level, message);
     }
 
+    public static void logTasks(String level, Supplier<String> message) {
+        log(Scope.TASKS, "all", level, message);
+    }
+
+    public static void logTasks(String level, String template, Object... args) {
+        log(Scope.TASKS, "all", level, template, args);
+    }
+
     public static void logResources(String name, String level, String message) {
         write(Scope.RESOURCES, name, level, message);
     }
 
+    public static void logResources(String name, String level, Supplier<String> message) {
+        log(Scope.RESOURCES, name, level, message);
+    }
+
+    public static void logResources(String name, String level, String template, Object... args) {
+        log(Scope.RESOURCES, name, level, template, args);
+    }
+
     public static void logStorage(String name, String level, String message) {
         write(Scope.STORAGE, name, level, message);
     }
 
+    public static void logStorage(String name, String level, Supplier<String> message) {
+        log(Scope.STORAGE, name, level, message);
+    }
+
+    public static void logStorage(String name, String level, String template, Object... args) {
+        log(Scope.STORAGE, name, level, template, args);
+    }
+
     public static void logCommon(String level, String message) {
         write(Scope.COMMON, "all", level, message);
     }
 
+    public static void logCommon(String level, Supplier<String> message) {
+        log(Scope.COMMON, "all", level, message);
+    }
+
+    public static void logCommon(String level, String template, Object... args) {
+        log(Scope.COMMON, "all", level, template, args);
+    }
+
     public static void logRobot(String robotId, String level, String message) {
         write(Scope.RESOURCES, robotId, level, message);
     }
 
+    public static void logRobot(String robotId, String level, Supplier<String> message) {
+        log(Scope.RESOURCES, robotId, level, message);
+    }
+
+    public static void logRobot(String robotId, String level, String template, Object... args) {
+        log(Scope.RESOURCES, robotId, level, template, args);
+    }
+
     public static void logCharging(String stationName, String level, String message) {
         write(Scope.RESOURCES, stationName, level, message);
     }
 
+    public static void logCharging(String stationName, String level, Supplier<String> message) {
+        log(Scope.RESOURCES, stationName, level, message);
+    }
+
+    public static void logCharging(String stationName, String level, String template, Object... args) {
+        log(Scope.RESOURCES, stationName, level, template, args);
+    }
+
     public static void logFromRaw(String raw) {
         Matcher m = RAW_PATTERN.matcher(raw);
         if (!m.matches()) {
@@ -70,13 +276,44 @@ public class Logger {
     }
 
     public static List<String> openLogByDate(Scope scope, LocalDate date) throws IOException {
-        Path file = resolveLogFile(scope, "all", date);
-        if (Files.exists(file)) {
-            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        List<Path> files = dayFiles(scope, date);
+        if (!files.isEmpty()) {
+            List<String> lines = new ArrayList<>();
+            for (Path file : files) {
+                lines.addAll(LogFiles.readAllLines(file));
+            }
+            return lines;
+        }
+        if (!sink.isTextEnabled()) {
+            return renderByteStream(scope, date);
         }
         return List.of();
     }
 
+    public static BinaryLogReader openByteStream(LocalDate date) throws IOException {
+        Path bin = resolveByteStreamFile(date);
+        if (!Files.exists(bin)) {
+            return null;
+        }
+        return BinaryLogReader.open(bin);
+    }
+
+    public static List<String> renderByteStream(Scope scope, LocalDate date) throws IOException {
+        flush();
+        List<String> lines = new ArrayList<>();
+        for (Path file : byteStreamFiles(date)) {
+            try (BinaryLogReader reader = BinaryLogReader.open(file)) {
+                while (reader.hasNext()) {
+                    LogRecord record = reader.next();
+                    if (scope == null || record.getScope() == scope) {
+                        lines.add(formatLine(record));
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
     public static List<String> openLogByDateString(String dateStr) throws IOException {
         try {
             LocalDate date = LocalDate.parse(dateStr, DATE_FMT);
@@ -92,70 +329,121 @@ public class Logger {
     }
 
     public static List<String> searchLogsByEquipment(String equipmentName) throws IOException {
-        List<String> results = new ArrayList<>();
-        if (equipmentName == null || equipmentName.trim().isEmpty()) {
-            return results;
+        try (Stream<String> matches = streamLogsByEquipment(equipmentName)) {
+            return matches.collect(Collectors.toList());
         }
-        String searchTerm = equipmentName.trim().toLowerCase();
-        
-        if (!Files.exists(LOG_ROOT)) {
-            return results;
-        }
-        
-        try (Stream<Path> paths = Files.list(LOG_ROOT)) {
-            for (Path file : paths.toArray(Path[]::new)) {
-                String fileName = file.getFileName().toString();
-                if (fileName.endsWith(".log")) {
-                    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-                    for (String line : lines) {
-                        if (line.toLowerCase().contains(searchTerm)) {
-                            results.add(fileName + ": " + line);
-                        }
-                    }
-                }
-            }
+    }
+
+    public static Stream<String> streamLogsByEquipment(String equipmentName) throws IOException {
+        if (equipmentName == null || equipmentName.trim().isEmpty() || !Files.exists(LOG_ROOT)) {
+            return Stream.empty();
         }
-        return results;
+        flush();
+        return LogSearch.byEquipment(LOG_ROOT, equipmentName);
+    }
+
+    /**
+     * Lazily streams the records of the given scopes, levels and equipment
+     * between {@code from} (inclusive) and {@code to} (exclusive) in time
+     * order. A null or empty filter matches everything. Close the stream.
+     */
+    public static Stream<LogRecord> query(Set<Scope> scopes, Set<Level> levels, String equipmentName,
+                                          LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            return Stream.empty();
+        }
+        flush();
+        long fromMillis = from.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long toMillis = to.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new LogQuery(levels, equipmentName, fromMillis, toMillis).run(scopes);
+    }
+
+    /** Per-robot task, charging and queue statistics over the resources and tasks logs. */
+    public static LogAnalytics.Report analyzeLogs(LocalDate from, LocalDate to) throws IOException {
+        flush();
+        return LogAnalytics.analyze(LOG_ROOT, from, to);
     }
 
     public static List<String> listAvailableLogFiles() throws IOException {
         List<String> files = new ArrayList<>();
-        if (!Files.exists(LOG_ROOT)) {
-            return files;
-        }
-        try (Stream<Path> paths = Files.list(LOG_ROOT)) {
-            for (Path file : paths.toArray(Path[]::new)) {
-                String fileName = file.getFileName().toString();
-                if (fileName.endsWith(".log")) {
-                    files.add(fileName);
-                }
+        for (LogFiles.Name name : LogFiles.list(LOG_ROOT)) {
+            if (name.extension.equals("log")) {
+                files.add(name.path.getFileName().toString());
             }
         }
         return files;
     }
 
     private static void write(Scope scope, String name, String level, String message) {
+        write(scope, name, level, null, message);
+    }
+
+    /** {@code template} keys duplicate suppression; null keys by the message itself. */
+    private static void write(Scope scope, String name, String level, String template, String message) {
+        if (!isEnabled(scope, level)) {
+            return;
+        }
+        LogRecord record = new LogRecord(System.currentTimeMillis(), scope, name, level, message);
+        throttle.admit(record, template, Logger::emit);
+    }
+
+    private static void emit(LogRecord record) {
+        Scope scope = record.getScope();
+        recent[scope.ordinal()].append(record);
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null && writer.offer(record)) {
+            return;
+        }
         ensureLogRoot();
-        LocalDateTime now = LocalDateTime.now();
-        String line = String.format("[%s] %s.%s(%s): %s", now.format(TS_FMT), scope, level, name, message);
-        Path file = resolveLogFile(scope, name, now.toLocalDate());
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile(), true))) {
-            bw.write(line);
-            bw.newLine();
-        } catch (IOException e) {
-            e.printStackTrace();
+        synchronized (sink) {
+            sink.append(record);
+            sink.flush();
         }
+    }
+
+    static String formatLine(LogRecord record) {
+        ByteBuffer line = LogLineEncoder.get().encode(record, false);
+        return new String(line.array(), 0, line.limit(), StandardCharsets.UTF_8);
+    }
 
-        Path bin = LOG_ROOT.resolve("byte-stream-" + now.format(DATE_FMT) + ".bin");
-        try (FileOutputStream fos = new FileOutputStream(bin.toFile(), true)) {
-            byte[] payload = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
-            fos.write(payload);
-        } catch (IOException e) {
-            e.printStackTrace();
+    static LogRecord parseLine(String line) {
+        Matcher m = LINE_PATTERN.matcher(line);
+        if (!m.matches()) {
+            return null;
         }
+        try {
+            long millis = LocalDateTime.parse(m.group(1), TS_FMT)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return new LogRecord(millis, Scope.valueOf(m.group(2)), m.group(4), m.group(3), m.group(5));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    static boolean isTextLogging() {
+        return sink.isTextEnabled();
+    }
+
+    /** Text segments holding the records of a scope for one day, oldest first. */
+    static List<Path> dayFiles(Scope scope, LocalDate date) throws IOException {
+        return LogFiles.segments(resolveLogFile(scope, "all", date));
+    }
+
+    static List<Path> byteStreamFiles(LocalDate date) throws IOException {
+        return LogFiles.segments(resolveByteStreamFile(date));
+    }
+
+    static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
     }
 
-    private static Path resolveLogFile(Scope scope, String name, LocalDate date) {
+    static Path resolveByteStreamFile(LocalDate date) {
+        Path p = LOG_ROOT.resolve("byte-stream-" + date.format(DATE_FMT) + ".bin");
+        ensureParent(p);
+        return p;
+    }
+
+    static Path resolveLogFile(Scope scope, String name, LocalDate date) {
         String baseName;
         switch (scope) {
             case SYSTEM:
@@ -181,6 +469,81 @@ public class Logger {
         return p;
     }
 
+    private static void seedRecent(Scope scope, LogRingBuffer buffer) {
+        synchronized (buffer) {
+            if (buffer.isSeeded()) {
+                return;
+            }
+            List<LogRecord> history = new ArrayList<>();
+            try {
+                flush();
+                Path file = resolveLogFile(scope, "all", LocalDate.now());
+                if (Files.exists(file)) {
+                    for (String line : readLastLines(file, buffer.capacity())) {
+                        LogRecord record = parseLine(line);
+                        if (record != null) {
+                            history.add(record);
+                        }
+                    }
+                    buffer.seed(history);
+                    return;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            buffer.seed(buffer.since(0).getRecords());
+        }
+    }
+
+    static List<String> readLastLines(Path file, int maxLines) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long end = raf.length();
+            long start = end;
+            int newlines = 0;
+            byte[] chunk = new byte[64 * 1024];
+            while (start > 0 && newlines < maxLines) {
+                int len = (int) Math.min(chunk.length, start);
+                raf.seek(start - len);
+                raf.readFully(chunk, 0, len);
+                int i = len - 1;
+                for (; i >= 0; i--) {
+                    if (chunk[i] == '\n' && (start - len + i) != end - 1 && ++newlines >= maxLines) {
+                        break;
+                    }
+                }
+                if (i >= 0) {
+                    start = start - len + i + 1;
+                    break;
+                }
+                start -= len;
+            }
+            byte[] tail = new byte[(int) (end - start)];
+            raf.seek(start);
+            raf.readFully(tail);
+            List<String> lines = new ArrayList<>();
+            for (String line : new String(tail, StandardCharsets.UTF_8).split("\\r?\\n")) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+            return lines;
+        }
+    }
+
+    private static LogRingBuffer[] createRecent(int capacity) {
+        LogRingBuffer[] buffers = new LogRingBuffer[Scope.values().length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new LogRingBuffer(capacity);
+        }
+        return buffers;
+    }
+
+    private static Level[] defaultLevels() {
+        Level[] levels = new Level[Scope.values().length];
+        Arrays.fill(levels, Level.DEBUG);
+        return levels;
+    }
+
     private static void ensureLogRoot() {
         if (!Files.exists(LOG_ROOT)) {
             try {
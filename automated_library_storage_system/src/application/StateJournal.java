@@ -0,0 +1,621 @@
+package application;
+
+import application.modules.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of state mutations between snapshots.
+ *
+ * Mutations reported through {@link StateChanges} are encoded into a pending
+ * buffer by the calling thread; a single "state-journal" thread writes
+ * whatever has accumulated and forces it to disk once per group, at most
+ * every {@code groupCommitMillis}. Each record is framed as
+ * [int length][int crc32][payload] so a torn tail is detected on replay.
+ *
+ * Files are named state-&lt;generation&gt;.journal. Compaction calls
+ * {@link #roll()} to start a new generation, writes a snapshot that records
+ * it, then drops the older files with {@link #deleteBefore(long)}, or keeps
+ * them while {@link StateTimeline} checkpoints still need them. Every
+ * record is an upsert or a set operation, so replaying records that the
+ * snapshot already contains is harmless.
+ *
+ * A TIME record with the wall clock precedes the first record of each
+ * millisecond, so {@link #replayUntil} can stop at a past instant.
+ */
+public class StateJournal implements StateChanges.Listener, Closeable {
+    public static final Path DEFAULT_DIR = Paths.get("automated_library_storage_system/journal");
+
+    static final byte BOOK = 1;
+    static final byte SHELF_ADD = 2;
+    static final byte SHELF_REMOVE = 3;
+    static final byte SHELF = 4;
+    static final byte STATION = 5;
+    static final byte ROBOT = 6;
+    static final byte TASK = 7;
+    static final byte TIME = 8;
+
+    private static final Pattern NAME = Pattern.compile("^state-(\\d+)\\.journal$");
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final long groupCommitMillis;
+    private final Object writeLock = new Object();
+    private final Thread writer;
+
+    private Bytes pending = new Bytes();
+    private Bytes spare = new Bytes();
+    private boolean closed;
+    private long stamped;
+
+    private FileChannel channel;
+    private long generation;
+    private long totalBytes;
+
+    private StateJournal(Path dir, long generation, long existingBytes, long groupCommitMillis) throws IOException {
+        this.dir = dir;
+        this.generation = generation;
+        this.totalBytes = existingBytes;
+        this.groupCommitMillis = groupCommitMillis;
+        this.channel = openGeneration(generation);
+        this.writer = new Thread(this::run, "state-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens a journal appending to a fresh generation, never before
+     * {@code minGeneration}, so a torn tail of an earlier file is never
+     * followed by new records. Files older than {@code minGeneration} are
+     * already folded into the snapshot; they are kept until
+     * {@link #deleteBefore(long)} removes them.
+     */
+    public static StateJournal open(Path dir, long minGeneration, long groupCommitMillis) throws IOException {
+        Files.createDirectories(dir);
+        long next = minGeneration;
+        long existing = 0;
+        for (Map.Entry<Long, Path> e : generations(dir).entrySet()) {
+            next = Math.max(next, e.getKey() + 1);
+            if (e.getKey() >= minGeneration) {
+                existing += Files.size(e.getValue());
+            }
+        }
+        return new StateJournal(dir, next, existing, groupCommitMillis);
+    }
+
+    public long getGeneration() {
+        synchronized (writeLock) {
+            return generation;
+        }
+    }
+
+    /** Bytes held by the journal files that a snapshot has not folded yet. */
+    public long size() {
+        synchronized (writeLock) {
+            return totalBytes;
+        }
+    }
+
+    /** Blocks until every record appended before the call is on disk. */
+    public void sync() throws IOException {
+        commit();
+    }
+
+    /**
+     * Commits what is pending and starts a new generation, returning it.
+     * Records appended from now on belong to the new generation, and
+     * {@link #size()} counts from here on: the caller is about to fold
+     * everything older into a snapshot.
+     */
+    public long roll() throws IOException {
+        synchronized (writeLock) {
+            commit();
+            channel.close();
+            generation++;
+            channel = openGeneration(generation);
+            totalBytes = 0;
+            synchronized (this) {
+                stamped = 0;
+            }
+            return generation;
+        }
+    }
+
+    /** Removes the files of generations older than {@code keep}. */
+    public void deleteBefore(long keep) throws IOException {
+        synchronized (writeLock) {
+            for (Map.Entry<Long, Path> e : generations(dir).entrySet()) {
+                if (e.getKey() < keep && e.getKey() < generation) {
+                    Files.deleteIfExists(e.getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            commit();
+            channel.close();
+        }
+    }
+
+    @Override
+    public void bookChanged(Book book) {
+        synchronized (this) {
+            int start = begin(BOOK);
+            pending.writeString(book.getId());
+            pending.writeString(book.getTitle());
+            pending.writeString(book.getAuthor());
+            pending.writeString(book.getCategory());
+            pending.writeString(book.getShelfId());
+            pending.writeString(String.valueOf(book.getStatus()));
+            end(start);
+        }
+    }
+
+    @Override
+    public void shelfChanged(Shelf shelf, Book book, boolean added) {
+        synchronized (this) {
+            int start = begin(added ? SHELF_ADD : SHELF_REMOVE);
+            pending.writeString(shelf.getId());
+            pending.writeString(book.getId());
+            end(start);
+        }
+    }
+
+    @Override
+    public void shelfAdded(Shelf shelf) {
+        synchronized (this) {
+            int start = begin(SHELF);
+            pending.writeString(shelf.getId());
+            pending.writeString(shelf.getName());
+            pending.writeString(shelf.getCategory());
+            pending.writeInt(shelf.getDistance());
+            pending.writeInt(shelf.getMaxCapacity());
+            end(start);
+        }
+    }
+
+    @Override
+    public void stationAdded(ChargingStation station) {
+        synchronized (this) {
+            int start = begin(STATION);
+            pending.writeString(station.getId());
+            pending.writeString(station.getName());
+            pending.writeInt(station.getTotalSlots());
+            end(start);
+        }
+    }
+
+    @Override
+    public void robotChanged(Robot robot) {
+        synchronized (this) {
+            int start = begin(ROBOT);
+            pending.writeString(robot.getId());
+            pending.writeInt(Float.floatToIntBits(robot.getCurrentChargePercent()));
+            pending.writeInt(Float.floatToIntBits(robot.getExecutionDuration()));
+            pending.write(robot.isDocked() ? 1 : 0);
+            end(start);
+        }
+    }
+
+    @Override
+    public void taskChanged(Task task) {
+        synchronized (this) {
+            int start = begin(TASK);
+            pending.writeString(task.getTaskId());
+            pending.writeString(task.getTaskName());
+            pending.writeString(task.getDescription());
+            pending.writeString(String.valueOf(task.getPriority()));
+            pending.writeString(String.valueOf(task.getStatus()));
+            pending.writeString(task.getAssignedTo());
+            pending.writeString(task.getRelatedBook() == null ? null : task.getRelatedBook().getId());
+            pending.writeInt(task.getTaskDurationSeconds());
+            pending.writeInt(Float.floatToIntBits(task.getBatteryRequired()));
+            pending.writeLong(task.getCreatedAtMillis());
+            end(start);
+        }
+    }
+
+    /**
+     * Reserves the frame header, after a TIME record if the clock moved
+     * since the last one; caller holds the monitor.
+     */
+    private int begin(byte type) {
+        long now = System.currentTimeMillis();
+        if (now != stamped && !closed) {
+            stamped = now;
+            int start = pending.size();
+            pending.writeInt(0);
+            pending.writeInt(0);
+            pending.write(TIME);
+            pending.writeLong(now);
+            seal(start);
+        }
+        int start = pending.size();
+        pending.writeInt(0);
+        pending.writeInt(0);
+        pending.write(type);
+        return start;
+    }
+
+    private void end(int start) {
+        if (closed) {
+            pending.truncate(start);
+            return;
+        }
+        seal(start);
+        notifyAll();
+    }
+
+    private void seal(int start) {
+        int length = pending.size() - start - HEADER;
+        CRC32 crc = new CRC32();
+        crc.update(pending.array(), start + HEADER, length);
+        pending.putInt(start, length);
+        pending.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            if (groupCommitMillis > 0) {
+                try {
+                    Thread.sleep(groupCommitMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            try {
+                commit();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** Writes the pending group and forces it; one fsync per group. */
+    private void commit() throws IOException {
+        synchronized (writeLock) {
+            Bytes batch;
+            synchronized (this) {
+                batch = pending;
+                pending = spare;
+                spare = batch;
+            }
+            if (batch.size() > 0) {
+                ByteBuffer buf = ByteBuffer.wrap(batch.array(), 0, batch.size());
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                channel.force(false);
+                totalBytes += batch.size();
+                batch.reset();
+            }
+        }
+    }
+
+    private FileChannel openGeneration(long gen) throws IOException {
+        return FileChannel.open(dir.resolve("state-" + gen + ".journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static SortedMap<Long, Path> generations(Path dir) throws IOException {
+        SortedMap<Long, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                Matcher m = NAME.matcher(p.getFileName().toString());
+                if (m.matches()) {
+                    files.put(Long.parseLong(m.group(1)), p);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Applies the records of every generation from the snapshot's onwards to
+     * {@code state}, stopping at the first torn or corrupt record of a file.
+     * Returns the number of records applied.
+     */
+    public static int replay(Path dir, SystemState state) throws IOException {
+        return replay(dir, state, null);
+    }
+
+    /** As {@link #replay(Path, SystemState)}, also marking the shards of replayed entities dirty. */
+    public static int replay(Path dir, SystemState state, StateShards touched) throws IOException {
+        return replay(dir, state, touched, Long.MAX_VALUE);
+    }
+
+    /**
+     * As {@link #replay(Path, SystemState)}, stopping at the first record
+     * stamped after {@code untilMillis}.
+     */
+    public static int replayUntil(Path dir, SystemState state, long untilMillis) throws IOException {
+        return replay(dir, state, null, untilMillis);
+    }
+
+    private static int replay(Path dir, SystemState state, StateShards touched, long untilMillis) throws IOException {
+        Replay replay = new Replay(state, touched);
+        int records = 0;
+        files:
+        for (Map.Entry<Long, Path> e : generations(dir).entrySet()) {
+            if (e.getKey() < state.getJournalGeneration()) {
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(e.getValue())))) {
+                byte[] payload = new byte[256];
+                CRC32 crc = new CRC32();
+                while (true) {
+                    int length;
+                    int checksum;
+                    try {
+                        length = in.readInt();
+                        checksum = in.readInt();
+                    } catch (EOFException eof) {
+                        break;
+                    }
+                    if (length <= 0 || length > (1 << 24)) {
+                        break;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length * 2)];
+                    }
+                    if (in.readNBytes(payload, 0, length) < length) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    if (payload[0] == TIME) {
+                        if (ByteBuffer.wrap(payload, 1, 8).getLong() > untilMillis) {
+                            break files;
+                        }
+                        continue;
+                    }
+                    replay.apply(new DataInputStream(new ByteArrayInputStream(payload, 0, length)));
+                    records++;
+                }
+            }
+        }
+        replay.finish();
+        return records;
+    }
+
+    /** Folds records into the DTO lists of a loaded snapshot. */
+    private static class Replay {
+        private final SystemState state;
+        private final StateShards touched;
+        private final Map<String, SystemState.BookData> books = new HashMap<>();
+        private final Map<String, SystemState.ShelfData> shelves = new HashMap<>();
+        private final Map<String, SystemState.RobotData> robots = new HashMap<>();
+        private final Map<String, SystemState.ChargingStationData> stations = new HashMap<>();
+        private final Map<String, SystemState.TaskData> tasks = new LinkedHashMap<>();
+
+        Replay(SystemState state, StateShards touched) {
+            this.state = state;
+            this.touched = touched;
+            for (SystemState.BookData b : state.getBooks()) books.put(b.getId(), b);
+            for (SystemState.ShelfData s : state.getShelves()) shelves.put(s.getId(), s);
+            for (SystemState.RobotData r : state.getRobots()) robots.put(r.getId(), r);
+            for (SystemState.ChargingStationData c : state.getStations()) stations.put(c.getId(), c);
+            if (state.getTasks() != null) {
+                for (SystemState.TaskData t : state.getTasks()) tasks.put(t.getTaskId(), t);
+            }
+        }
+
+        void apply(DataInputStream in) throws IOException {
+            byte type = in.readByte();
+            switch (type) {
+                case BOOK: {
+                    String id = readString(in);
+                    SystemState.BookData b = books.get(id);
+                    if (b == null) {
+                        b = new SystemState.BookData();
+                        b.setId(id);
+                        books.put(id, b);
+                        state.getBooks().add(b);
+                    }
+                    b.setTitle(readString(in));
+                    b.setAuthor(readString(in));
+                    b.setCategory(readString(in));
+                    b.setShelfId(readString(in));
+                    b.setStatus(readString(in));
+                    if (touched != null) {
+                        touched.markBook(id);
+                    }
+                    break;
+                }
+                case SHELF_ADD:
+                case SHELF_REMOVE: {
+                    String shelfId = readString(in);
+                    SystemState.ShelfData s = shelves.get(shelfId);
+                    String bookId = readString(in);
+                    if (touched != null) {
+                        touched.markShelf(shelfId);
+                        touched.markBook(bookId);
+                    }
+                    if (s != null) {
+                        if (s.getBookIds() == null) {
+                            s.setBookIds(new ArrayList<>());
+                        }
+                        s.getBookIds().remove(bookId);
+                        if (type == SHELF_ADD) {
+                            s.getBookIds().add(bookId);
+                        }
+                    }
+                    SystemState.BookData b = books.get(bookId);
+                    if (b != null) {
+                        b.setShelfId(type == SHELF_ADD && s != null ? s.getId() : null);
+                    }
+                    break;
+                }
+                case SHELF: {
+                    String id = readString(in);
+                    SystemState.ShelfData s = shelves.get(id);
+                    if (s == null) {
+                        s = new SystemState.ShelfData();
+                        s.setId(id);
+                        s.setBookIds(new ArrayList<>());
+                        shelves.put(id, s);
+                        state.getShelves().add(s);
+                    }
+                    s.setName(readString(in));
+                    s.setCategory(readString(in));
+                    s.setDistance(in.readInt());
+                    s.setMaxCapacity(in.readInt());
+                    if (touched != null) {
+                        touched.markShelf(id);
+                    }
+                    break;
+                }
+                case STATION: {
+                    String id = readString(in);
+                    SystemState.ChargingStationData c = stations.get(id);
+                    if (c == null) {
+                        c = new SystemState.ChargingStationData();
+                        c.setId(id);
+                        stations.put(id, c);
+                        state.getStations().add(c);
+                    }
+                    c.setName(readString(in));
+                    c.setNumSlots(in.readInt());
+                    break;
+                }
+                case ROBOT: {
+                    String id = readString(in);
+                    SystemState.RobotData r = robots.get(id);
+                    if (r == null) {
+                        r = new SystemState.RobotData();
+                        r.setId(id);
+                        robots.put(id, r);
+                        state.getRobots().add(r);
+                    }
+                    r.setCurrentChargePercent(Float.intBitsToFloat(in.readInt()));
+                    r.setExecutionDuration(Float.intBitsToFloat(in.readInt()));
+                    if (in.available() > 0) {
+                        r.setDocked(in.readByte() != 0);
+                    }
+                    if (touched != null) {
+                        touched.markRobot(id);
+                    }
+                    break;
+                }
+                case TASK: {
+                    SystemState.TaskData t = new SystemState.TaskData();
+                    t.setTaskId(readString(in));
+                    t.setTaskName(readString(in));
+                    t.setDescription(readString(in));
+                    t.setPriority(readString(in));
+                    t.setStatus(readString(in));
+                    t.setAssignedTo(readString(in));
+                    if (in.available() > 0) {
+                        t.setBookId(readString(in));
+                        t.setDurationSeconds(in.readInt());
+                        t.setBatteryRequired(Float.intBitsToFloat(in.readInt()));
+                        t.setCreatedAt(in.readLong());
+                    }
+                    if ("COMPLETED".equals(t.getStatus()) || "CANCELLED".equals(t.getStatus())) {
+                        tasks.remove(t.getTaskId());
+                    } else {
+                        tasks.put(t.getTaskId(), t);
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown journal record type " + type);
+            }
+        }
+
+        void finish() {
+            state.setTasks(new ArrayList<>(tasks.values()));
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Growable byte buffer with in-place patching of frame headers. */
+    private static class Bytes extends ByteArrayOutputStream {
+        Bytes() {
+            super(64 * 1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        void truncate(int size) {
+            count = size;
+        }
+
+        void writeInt(int v) {
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        void putInt(int at, int v) {
+            buf[at] = (byte) (v >>> 24);
+            buf[at + 1] = (byte) (v >>> 16);
+            buf[at + 2] = (byte) (v >>> 8);
+            buf[at + 3] = (byte) v;
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package application;
+
+import application.modules.*;
+import com.google.gson.Gson;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Books, shelves and robots split by id hash into a fixed number of shard
+ * files next to the state file (store.bin -&gt; store/books-007.bin, or the
+ * .json equivalents when the state is kept as JSON).
+ *
+ * Registered as a {@link StateChanges} listener, it marks the shard of every
+ * changed entity dirty; {@link #writeDirty} rewrites only those shards, so
+ * the cost of a save follows the churn rather than the catalog size. A
+ * shard's dirty bit is cleared before it is written, so a change racing
+ * with the write marks it again for the next save.
+ */
+public class StateShards implements StateChanges.Listener {
+    private static final int BOOKS = 0;
+    private static final int SHELVES = 1;
+    private static final int ROBOTS = 2;
+    private static final String[] KINDS = { "books", "shelves", "robots" };
+
+    private final int count;
+    private final List<Map<String, Book>> books;
+    private final List<Map<String, Shelf>> shelves;
+    private final List<Map<String, Robot>> robots;
+    private final AtomicIntegerArray dirty;
+
+    public StateShards(int count) {
+        this.count = Math.max(1, count);
+        this.books = maps(this.count);
+        this.shelves = maps(this.count);
+        this.robots = maps(this.count);
+        this.dirty = new AtomicIntegerArray(KINDS.length * this.count);
+    }
+
+    private static <T> List<Map<String, T>> maps(int count) {
+        List<Map<String, T>> maps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            maps.add(new ConcurrentHashMap<>());
+        }
+        return maps;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    int shardOf(String id) {
+        return Math.floorMod(id.hashCode(), count);
+    }
+
+    /** Registers entities without marking them dirty, e.g. after loading. */
+    public void track(Collection<Book> books, Collection<Shelf> shelves, Collection<Robot> robots) {
+        for (Book b : books) this.books.get(shardOf(b.getId())).put(b.getId(), b);
+        for (Shelf s : shelves) this.shelves.get(shardOf(s.getId())).put(s.getId(), s);
+        for (Robot r : robots) this.robots.get(shardOf(r.getId())).put(r.getId(), r);
+    }
+
+    public void markAllDirty() {
+        for (int i = 0; i < dirty.length(); i++) {
+            dirty.set(i, 1);
+        }
+    }
+
+    public void markBook(String id) {
+        dirty.set(BOOKS * count + shardOf(id), 1);
+    }
+
+    public void markShelf(String id) {
+        dirty.set(SHELVES * count + shardOf(id), 1);
+    }
+
+    public void markRobot(String id) {
+        dirty.set(ROBOTS * count + shardOf(id), 1);
+    }
+
+    public int dirtyCount() {
+        int n = 0;
+        for (int i = 0; i < dirty.length(); i++) {
+            n += dirty.get(i);
+        }
+        return n;
+    }
+
+    @Override
+    public void bookChanged(Book book) {
+        books.get(shardOf(book.getId())).putIfAbsent(book.getId(), book);
+        markBook(book.getId());
+    }
+
+    @Override
+    public void shelfChanged(Shelf shelf, Book book, boolean added) {
+        markShelf(shelf.getId());
+        if (books.get(shardOf(book.getId())).containsKey(book.getId())) {
+            markBook(book.getId());
+        }
+    }
+
+    @Override
+    public void shelfAdded(Shelf shelf) {
+        shelves.get(shardOf(shelf.getId())).putIfAbsent(shelf.getId(), shelf);
+        markShelf(shelf.getId());
+    }
+
+    @Override
+    public void stationAdded(ChargingStation station) {
+    }
+
+    @Override
+    public void robotChanged(Robot robot) {
+        robots.get(shardOf(robot.getId())).putIfAbsent(robot.getId(), robot);
+        markRobot(robot.getId());
+    }
+
+    @Override
+    public void taskChanged(Task task) {
+    }
+
+    static Path directory(Path stateFile) {
+        String name = stateFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return stateFile.resolveSibling(dot > 0 ? name.substring(0, dot) : name + ".d");
+    }
+
+    static Path file(Path dir, String kind, int shard, SystemState.Format format) {
+        return dir.resolve(String.format("%s-%03d.%s", kind, shard, format.extension()));
+    }
+
+    /** Rewrites every dirty shard and returns how many were written. */
+    int writeDirty(Path dir, Gson gson, long epoch, SystemState.Format format) throws IOException {
+        Files.createDirectories(dir);
+        int written = 0;
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            for (int shard = 0; shard < count; shard++) {
+                int slot = kind * count + shard;
+                if (dirty.getAndSet(slot, 0) == 0) {
+                    continue;
+                }
+                try {
+                    writeShard(dir, gson, epoch, format, kind, shard);
+                } catch (IOException | RuntimeException e) {
+                    dirty.set(slot, 1);
+                    throw e;
+                }
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private void writeShard(Path dir, Gson gson, long epoch, SystemState.Format format, int kind, int shard)
+            throws IOException {
+        Path path = file(dir, KINDS[kind], shard, format);
+        if (format == SystemState.Format.BINARY) {
+            BinaryStateWriter.write(path, gson, epoch, null,
+                    kind == BOOKS ? books.get(shard).values() : Collections.<Book>emptyList(),
+                    kind == SHELVES ? shelves.get(shard).values() : Collections.<Shelf>emptyList(),
+                    kind == ROBOTS ? robots.get(shard).values() : Collections.<Robot>emptyList(),
+                    Collections.<ChargingStation>emptyList());
+            return;
+        }
+        switch (kind) {
+            case BOOKS:
+                StateWriter.write(path, gson, epoch, w -> w.writeBooks(books.get(shard).values()));
+                break;
+            case SHELVES:
+                StateWriter.write(path, gson, epoch, w -> w.writeShelves(shelves.get(shard).values()));
+                break;
+            default:
+                StateWriter.write(path, gson, epoch, w -> w.writeRobots(robots.get(shard).values()));
+                break;
+        }
+    }
+
+    /** Removes shard files beyond {@code count}, left over from a larger shard count. */
+    void deleteStale(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        for (SystemState.Format format : SystemState.Format.values()) {
+            for (String kind : KINDS) {
+                for (int shard = count; Files.exists(file(dir, kind, shard, format)); shard++) {
+                    Files.delete(file(dir, kind, shard, format));
+                }
+            }
+        }
+    }
+
+    /** Appends the contents of {@code shards} shard files to the DTO lists of {@code state}. */
+    static void read(Path dir, int shards, SystemState state, Gson gson, SystemState.Format format)
+            throws IOException {
+        if (format == SystemState.Format.BINARY) {
+            for (String kind : KINDS) {
+                for (int shard = 0; shard < shards; shard++) {
+                    Path path = file(dir, kind, shard, format);
+                    if (Files.exists(path)) {
+                        BinaryStateReader.read(path, gson, state);
+                    }
+                }
+            }
+            return;
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            state.getBooks().addAll(readShard(file(dir, "books", shard, format), gson, SystemState.BookData[].class));
+            state.getShelves().addAll(readShard(file(dir, "shelves", shard, format), gson, SystemState.ShelfData[].class));
+            state.getRobots().addAll(readShard(file(dir, "robots", shard, format), gson, SystemState.RobotData[].class));
+        }
+    }
+
+    private static <T> List<T> readShard(Path path, Gson gson, Class<T[]> type) throws IOException {
+        if (!Files.exists(path)) {
+            return Collections.emptyList();
+        }
+        try (Reader reader = Files.newBufferedReader(path)) {
+            T[] items = gson.fromJson(reader, type);
+            return items == null ? Collections.emptyList() : Arrays.asList(items);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package application;
+
+import application.modules.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rebuilds the state of any recent instant from periodic checkpoints and the
+ * {@link StateJournal}.
+ *
+ * A checkpoint is a full binary snapshot named
+ * checkpoint-&lt;millis&gt;-&lt;generation&gt;.bin, the time its epoch was
+ * taken and the journal generation current at that moment. {@link #at}
+ * loads the newest checkpoint at or before the instant and replays the
+ * journal from its generation up to the instant, so the work is bounded by
+ * the checkpoint interval rather than the age of the instant. Checkpoints
+ * older than the retention are deleted, keeping the newest one beyond it so
+ * the whole retention window stays reachable; {@link #oldestGeneration()}
+ * tells compaction which journal files must be kept.
+ *
+ * Each checkpoint is a copy of the whole catalog, so disk use is at most
+ * {@code maxCheckpoints} snapshots however long the retention or short the
+ * interval. Past the cap the checkpoint closest to its neighbours is dropped,
+ * never the oldest or newest: the window stays reachable and only the replay
+ * for instants in the widened gaps gets longer.
+ */
+public class StateTimeline {
+    public static final Path DEFAULT_DIR = Paths.get("automated_library_storage_system/timeline");
+
+    private static final Pattern NAME = Pattern.compile("^checkpoint-(\\d+)-(\\d+)\\.bin$");
+
+    private final Path dir;
+    private final Path journalDir;
+    private final long retentionMillis;
+    private final int maxCheckpoints;
+    private final TreeMap<Long, Checkpoint> checkpoints = new TreeMap<>();
+
+    private static final class Checkpoint {
+        final long time;
+        final long generation;
+        final Path file;
+
+        Checkpoint(long time, long generation, Path file) {
+            this.time = time;
+            this.generation = generation;
+            this.file = file;
+        }
+    }
+
+    private StateTimeline(Path dir, Path journalDir, long retentionMillis, int maxCheckpoints) {
+        this.dir = dir;
+        this.journalDir = journalDir;
+        this.retentionMillis = retentionMillis;
+        this.maxCheckpoints = Math.max(2, maxCheckpoints);
+    }
+
+    /**
+     * Opens the checkpoints in {@code dir}, replaying from the journal in
+     * {@code journalDir}, keeping at most {@code maxCheckpoints} (at least 2).
+     */
+    public static StateTimeline open(Path dir, Path journalDir, long retentionMillis, int maxCheckpoints)
+            throws IOException {
+        Files.createDirectories(dir);
+        StateTimeline timeline = new StateTimeline(dir, journalDir, retentionMillis, maxCheckpoints);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                Matcher m = NAME.matcher(p.getFileName().toString());
+                if (m.matches()) {
+                    long time = Long.parseLong(m.group(1));
+                    timeline.checkpoints.put(time, new Checkpoint(time, Long.parseLong(m.group(2)), p));
+                }
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Writes a checkpoint of the live entities; {@code header} supplies tasks
+     * and charging order, {@code generation} is the journal's current one.
+     * Returns the checkpoint time.
+     */
+    public synchronized long checkpoint(SystemState header, long generation, Collection<Book> books,
+                                        Collection<Shelf> shelves, Collection<Robot> robots,
+                                        Collection<ChargingStation> stations) throws IOException {
+        header.setJournalGeneration(generation);
+        header.setShards(0);
+        Path tmp = dir.resolve("checkpoint.bin");
+        long time = header.writeCheckpoint(tmp, books, shelves, robots, stations);
+        // Two checkpoints in one millisecond: keep the later one.
+        Checkpoint replaced = checkpoints.get(time);
+        Path file = dir.resolve("checkpoint-" + time + "-" + generation + ".bin");
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        if (replaced != null && !replaced.file.equals(file)) {
+            Files.deleteIfExists(replaced.file);
+        }
+        checkpoints.put(time, new Checkpoint(time, generation, file));
+        prune(time - retentionMillis);
+        thin();
+        return time;
+    }
+
+    /** Oldest journal generation a checkpoint replays from; Long.MAX_VALUE without checkpoints. */
+    public synchronized long oldestGeneration() {
+        return checkpoints.isEmpty() ? Long.MAX_VALUE : checkpoints.firstEntry().getValue().generation;
+    }
+
+    /** Time of the oldest checkpoint, the earliest instant {@link #at} can rebuild; -1 without checkpoints. */
+    public synchronized long earliest() {
+        return checkpoints.isEmpty() ? -1 : checkpoints.firstKey();
+    }
+
+    public synchronized int size() {
+        return checkpoints.size();
+    }
+
+    /**
+     * The state as of {@code millis}. Journal records not yet committed are
+     * not seen; sync the journal first for the last few milliseconds.
+     *
+     * @throws IOException if {@code millis} is before the oldest checkpoint
+     *         or a file cannot be read
+     */
+    public synchronized StateView at(long millis) throws IOException {
+        Map.Entry<Long, Checkpoint> floor = checkpoints.floorEntry(millis);
+        if (floor == null) {
+            throw new IOException("No checkpoint at or before " + millis + "; earliest is " + earliest());
+        }
+        Checkpoint base = floor.getValue();
+        SystemState state = SystemState.readCheckpoint(base.file);
+        int records = StateJournal.replayUntil(journalDir, state, millis);
+        return new StateView(state, millis, base.time, records);
+    }
+
+    private void prune(long cutoff) throws IOException {
+        Long keep = checkpoints.floorKey(cutoff);
+        if (keep == null) {
+            return;
+        }
+        Iterator<Checkpoint> it = checkpoints.headMap(keep, false).values().iterator();
+        while (it.hasNext()) {
+            Files.deleteIfExists(it.next().file);
+            it.remove();
+        }
+    }
+
+    /** Drops the interior checkpoints that leave the smallest gaps until the cap holds. */
+    private void thin() throws IOException {
+        while (checkpoints.size() > maxCheckpoints) {
+            Long drop = null;
+            long narrowest = Long.MAX_VALUE;
+            Long previous = null;
+            for (Long time : checkpoints.keySet()) {
+                Long next = checkpoints.higherKey(time);
+                if (previous != null && next != null && next - previous < narrowest) {
+                    narrowest = next - previous;
+                    drop = time;
+                }
+                previous = time;
+            }
+            Files.deleteIfExists(checkpoints.remove(drop).file);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package application;
+
+import java.util.*;
+
+/**
+ * Read-only view of the state at one past instant, as rebuilt by
+ * {@link StateTimeline#at}. Entities are looked up by id; lists are
+ * unmodifiable and in snapshot order.
+ */
+public class StateView {
+    private final long time;
+    private final long checkpointTime;
+    private final int replayedRecords;
+    private final Map<String, SystemState.BookData> books = new LinkedHashMap<>();
+    private final Map<String, SystemState.ShelfData> shelves = new LinkedHashMap<>();
+    private final Map<String, SystemState.RobotData> robots = new LinkedHashMap<>();
+    private final Map<String, SystemState.TaskData> tasks = new LinkedHashMap<>();
+
+    StateView(SystemState state, long time, long checkpointTime, int replayedRecords) {
+        this.time = time;
+        this.checkpointTime = checkpointTime;
+        this.replayedRecords = replayedRecords;
+        for (SystemState.BookData b : state.getBooks()) books.put(b.getId(), b);
+        for (SystemState.ShelfData s : state.getShelves()) shelves.put(s.getId(), s);
+        for (SystemState.RobotData r : state.getRobots()) robots.put(r.getId(), r);
+        for (SystemState.TaskData t : state.getTasks()) tasks.put(t.getTaskId(), t);
+    }
+
+    /** The instant viewed, in epoch milliseconds. */
+    public long getTime() { return time; }
+    /** Time of the checkpoint the view was rebuilt from. */
+    public long getCheckpointTime() { return checkpointTime; }
+    /** Journal records replayed on top of the checkpoint. */
+    public int getReplayedRecords() { return replayedRecords; }
+
+    public int getBookCount() { return books.size(); }
+    public int getShelfCount() { return shelves.size(); }
+    public int getRobotCount() { return robots.size(); }
+
+    /** Status name of book {@code id}, or null if it did not exist. */
+    public String getBookStatus(String id) {
+        SystemState.BookData b = books.get(id);
+        return b == null ? null : b.getStatus();
+    }
+
+    public String getBookShelf(String id) {
+        SystemState.BookData b = books.get(id);
+        return b == null ? null : b.getShelfId();
+    }
+
+    public List<String> getBooksWithStatus(String status) {
+        List<String> ids = new ArrayList<>();
+        for (SystemState.BookData b : books.values()) {
+            if (status.equals(b.getStatus())) {
+                ids.add(b.getId());
+            }
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    public List<String> getBooksInTransit() {
+        return getBooksWithStatus("IN_TRANSIT");
+    }
+
+    public List<String> getShelfContents(String shelfId) {
+        SystemState.ShelfData s = shelves.get(shelfId);
+        return s == null || s.getBookIds() == null ? Collections.<String>emptyList()
+            : Collections.unmodifiableList(new ArrayList<>(s.getBookIds()));
+    }
+
+    /** Robots docked at a charging station. */
+    public List<String> getChargingRobots() {
+        List<String> ids = new ArrayList<>();
+        for (SystemState.RobotData r : robots.values()) {
+            if (r.isDocked()) {
+                ids.add(r.getId());
+            }
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    /** Charge percent of robot {@code id}, or NaN if it did not exist. */
+    public float getRobotCharge(String id) {
+        SystemState.RobotData r = robots.get(id);
+        return r == null ? Float.NaN : r.getCurrentChargePercent();
+    }
+
+    /** Tasks waiting for a robot. */
+    public int getQueueDepth() {
+        return getTasksWithStatus("PENDING").size();
+    }
+
+    public List<String> getTasksWithStatus(String status) {
+        List<String> ids = new ArrayList<>();
+        for (SystemState.TaskData t : tasks.values()) {
+            if (status.equals(t.getStatus())) {
+                ids.add(t.getTaskId());
+            }
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    public String getTaskStatus(String id) {
+        SystemState.TaskData t = tasks.get(id);
+        return t == null ? null : t.getStatus();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("State at %tF %<tT: %d books (%d in transit), %d robots (%d charging), %d tasks queued",
+            time, books.size(), getBooksInTransit().size(), robots.size(), getChargingRobots().size(), getQueueDepth());
+    }
+}
@@ -0,0 +1,172 @@
+package application;
+
+import application.modules.*;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Streams a {@link SystemState} document field by field with a compact
+ * {@link JsonWriter}, reading straight from the live entities so no DTO
+ * lists or whole-document string are built. The layout matches what Gson
+ * produces for {@link SystemState}, so {@link SystemState#load()} reads it back.
+ * Output goes to a temp file which replaces the target only once complete.
+ * Books, shelves and robots are read as of {@code epoch} (see
+ * {@link StateEpoch}), so the document is a consistent cut even while
+ * tasks keep mutating them.
+ */
+class StateWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Type TASKS_TYPE = new TypeToken<List<SystemState.TaskData>>() {}.getType();
+
+    private final Gson gson;
+    private final JsonWriter out;
+    private final long epoch;
+
+    StateWriter(Gson gson, Writer writer, long epoch) {
+        this.gson = gson;
+        this.epoch = epoch;
+        this.out = new JsonWriter(writer);
+        this.out.setSerializeNulls(false);
+    }
+
+    interface Body {
+        void writeTo(StateWriter writer) throws IOException;
+    }
+
+    static void write(Path path, Gson gson, Body body) throws IOException {
+        write(path, gson, StateEpoch.LATEST, body);
+    }
+
+    /** Writes the document produced by {@code body} to a temp file and moves it over {@code path}. */
+    static void write(Path path, Gson gson, long epoch, Body body) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1),
+                    BUFFER_SIZE);
+            StateWriter state = new StateWriter(gson, writer, epoch);
+            body.writeTo(state);
+            state.flush();
+            channel.force(false);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Gson's own reflective form of {@code state}, for callers that still hold DTOs. */
+    void writeObject(SystemState state) throws IOException {
+        gson.toJson(state, SystemState.class, out);
+    }
+
+    void writeState(SystemState state, Collection<Book> books, Collection<Shelf> shelves,
+            Collection<Robot> robots, Collection<ChargingStation> stations) throws IOException {
+        out.beginObject();
+        out.name("books");
+        writeBooks(books);
+        out.name("shelves");
+        writeShelves(shelves);
+        out.name("robots");
+        writeRobots(robots);
+        out.name("stations").beginArray();
+        for (ChargingStation station : stations) {
+            out.beginObject();
+            out.name("id").value(station.getId());
+            out.name("name").value(station.getName());
+            out.name("numSlots").value(station.getTotalSlots());
+            out.endObject();
+        }
+        out.endArray();
+        out.name("tasks");
+        gson.toJson(state.getTasks(), TASKS_TYPE, out);
+        out.name("chargingQueue").beginArray();
+        for (String robotId : state.getChargingQueue()) {
+            out.value(robotId);
+        }
+        out.endArray();
+        out.name("config");
+        gson.toJson(state.getConfig(), SystemConfig.class, out);
+        out.name("journalGeneration").value(state.getJournalGeneration());
+        out.name("shards").value(state.getShards());
+        out.endObject();
+    }
+
+    void writeBooks(Collection<Book> books) throws IOException {
+        out.beginArray();
+        for (Book book : books) {
+            writeBook(book);
+        }
+        out.endArray();
+    }
+
+    void writeShelves(Collection<Shelf> shelves) throws IOException {
+        out.beginArray();
+        for (Shelf shelf : shelves) {
+            writeShelf(shelf);
+        }
+        out.endArray();
+    }
+
+    void writeRobots(Collection<Robot> robots) throws IOException {
+        out.beginArray();
+        for (Robot robot : robots) {
+            Robot.Record record = robot.recordAt(epoch);
+            out.beginObject();
+            out.name("id").value(robot.getId());
+            out.name("currentChargePercent").value((Number) record.chargePercent);
+            out.name("executionDuration").value((Number) robot.getExecutionDuration());
+            out.name("docked").value(record.docked);
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    private void writeBook(Book book) throws IOException {
+        Book.Record record = book.recordAt(epoch);
+        out.beginObject();
+        out.name("id").value(book.getId());
+        out.name("title").value(book.getTitle());
+        out.name("author").value(book.getAuthor());
+        out.name("category").value(book.getCategory());
+        out.name("shelfId").value(record.shelfId);
+        out.name("status").value(String.valueOf(record.status));
+        out.endObject();
+    }
+
+    private void writeShelf(Shelf shelf) throws IOException {
+        out.beginObject();
+        out.name("id").value(shelf.getId());
+        out.name("name").value(shelf.getName());
+        out.name("category").value(shelf.getCategory());
+        out.name("distance").value(shelf.getDistance());
+        out.name("maxCapacity").value(shelf.getMaxCapacity());
+        out.name("bookIds").beginArray();
+        for (Book book : shelf.recordAt(epoch).books) {
+            out.value(book.getId());
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -1,11 +1,41 @@
 package application;
 
+import application.modules.DispatchPolicy;
+import java.util.EnumMap;
+import java.util.Map;
+
 public class SystemConfig {
     private float batteryThreshold = 15.0f;
     private int logRefreshInterval = 2;
     private int numChargingStations = 2;
     private int numSlotsPerStation = 1;
     private int maxShelfCapacity = 10;
+    private boolean asyncLogging = true;
+    private int logQueueCapacity = 8192;
+    private Logger.OverflowPolicy logOverflowPolicy = Logger.OverflowPolicy.DROP_DEBUG;
+    private boolean textLogging = true;
+    private Map<Logger.Scope, Logger.Level> logLevels = defaultLogLevels();
+    private int logTailCapacity = 1000;
+    private long logSegmentBytes = 32L * 1024 * 1024;
+    private boolean logCompression = true;
+    private int logRetentionDays = 30;
+    private long logRetentionBytes = 1024L * 1024 * 1024;
+    private boolean logDedupe = true;
+    private int logDedupeWindowSeconds = 60;
+    private Map<Logger.Scope, Integer> logRateLimits = defaultLogRateLimits();
+    private boolean stateJournal = true;
+    private int journalGroupCommitMillis = 10;
+    private long journalCompactBytes = 16L * 1024 * 1024;
+    private int stateShards = 64;
+    private SystemState.Format stateFormat = SystemState.Format.BINARY;
+    private int taskHistoryWindow = 1000;
+    private long taskArchiveSegmentBytes = 16L * 1024 * 1024;
+    private int checkpointIntervalMinutes = 60;
+    private int taskAgingSeconds = 60;
+    private int dispatchWindow = 32;
+    private DispatchPolicy dispatchPolicy = DispatchPolicy.GREEDY;
+    private int checkpointRetentionHours = 24;
+    private int maxCheckpoints = 8;
     
     public float getBatteryThreshold() {
         return batteryThreshold;
@@ -46,5 +76,229 @@ public class SystemConfig {
     public void setMaxShelfCapacity(int maxShelfCapacity) {
         this.maxShelfCapacity = maxShelfCapacity;
     }
-}
+    
+    public boolean isAsyncLogging() {
+        return asyncLogging;
+    }
+    
+    public void setAsyncLogging(boolean asyncLogging) {
+        this.asyncLogging = asyncLogging;
+    }
+    
+    public int getLogQueueCapacity() {
+        return logQueueCapacity;
+    }
+    
+    public void setLogQueueCapacity(int logQueueCapacity) {
+        this.logQueueCapacity = logQueueCapacity;
+    }
+    
+    public Logger.OverflowPolicy getLogOverflowPolicy() {
+        return logOverflowPolicy;
+    }
+    
+    public void setLogOverflowPolicy(Logger.OverflowPolicy logOverflowPolicy) {
+        this.logOverflowPolicy = logOverflowPolicy;
+    }
+    
+    public boolean isTextLogging() {
+        return textLogging;
+    }
+    
+    public void setTextLogging(boolean textLogging) {
+        this.textLogging = textLogging;
+    }
+    
+    public Map<Logger.Scope, Logger.Level> getLogLevels() {
+        return logLevels;
+    }
+    
+    public void setLogLevels(Map<Logger.Scope, Logger.Level> logLevels) {
+        this.logLevels = logLevels;
+    }
+    
+    public int getLogTailCapacity() {
+        return logTailCapacity;
+    }
+    
+    public void setLogTailCapacity(int logTailCapacity) {
+        this.logTailCapacity = logTailCapacity;
+    }
+    
+    public long getLogSegmentBytes() {
+        return logSegmentBytes;
+    }
+
+    public void setLogSegmentBytes(long logSegmentBytes) {
+        this.logSegmentBytes = logSegmentBytes;
+    }
+
+    public boolean isLogCompression() {
+        return logCompression;
+    }
+
+    public void setLogCompression(boolean logCompression) {
+        this.logCompression = logCompression;
+    }
+
+    public int getLogRetentionDays() {
+        return logRetentionDays;
+    }
+
+    public void setLogRetentionDays(int logRetentionDays) {
+        this.logRetentionDays = logRetentionDays;
+    }
+
+    public long getLogRetentionBytes() {
+        return logRetentionBytes;
+    }
+
+    public void setLogRetentionBytes(long logRetentionBytes) {
+        this.logRetentionBytes = logRetentionBytes;
+    }
+
+    public boolean isLogDedupe() {
+        return logDedupe;
+    }
+
+    public void setLogDedupe(boolean logDedupe) {
+        this.logDedupe = logDedupe;
+    }
+
+    public int getLogDedupeWindowSeconds() {
+        return logDedupeWindowSeconds;
+    }
+
+    public void setLogDedupeWindowSeconds(int logDedupeWindowSeconds) {
+        this.logDedupeWindowSeconds = logDedupeWindowSeconds;
+    }
+
+    public Map<Logger.Scope, Integer> getLogRateLimits() {
+        return logRateLimits;
+    }
+
+    public void setLogRateLimits(Map<Logger.Scope, Integer> logRateLimits) {
+        this.logRateLimits = logRateLimits;
+    }
+
+    public boolean isStateJournal() {
+        return stateJournal;
+    }
+
+    public void setStateJournal(boolean stateJournal) {
+        this.stateJournal = stateJournal;
+    }
+
+    public int getJournalGroupCommitMillis() {
+        return journalGroupCommitMillis;
+    }
+
+    public void setJournalGroupCommitMillis(int journalGroupCommitMillis) {
+        this.journalGroupCommitMillis = journalGroupCommitMillis;
+    }
+
+    public long getJournalCompactBytes() {
+        return journalCompactBytes;
+    }
+
+    public void setJournalCompactBytes(long journalCompactBytes) {
+        this.journalCompactBytes = journalCompactBytes;
+    }
+
+    public int getStateShards() {
+        return stateShards;
+    }
+
+    public void setStateShards(int stateShards) {
+        this.stateShards = stateShards;
+    }
+
+    public SystemState.Format getStateFormat() {
+        return stateFormat;
+    }
+
+    public void setStateFormat(SystemState.Format stateFormat) {
+        this.stateFormat = stateFormat;
+    }
+
+    public int getTaskHistoryWindow() {
+        return taskHistoryWindow;
+    }
 
+    public void setTaskHistoryWindow(int taskHistoryWindow) {
+        this.taskHistoryWindow = taskHistoryWindow;
+    }
+
+    public long getTaskArchiveSegmentBytes() {
+        return taskArchiveSegmentBytes;
+    }
+
+    public void setTaskArchiveSegmentBytes(long taskArchiveSegmentBytes) {
+        this.taskArchiveSegmentBytes = taskArchiveSegmentBytes;
+    }
+
+    public int getTaskAgingSeconds() {
+        return taskAgingSeconds;
+    }
+
+    public void setTaskAgingSeconds(int taskAgingSeconds) {
+        this.taskAgingSeconds = taskAgingSeconds;
+    }
+
+    public int getDispatchWindow() {
+        return dispatchWindow;
+    }
+
+    public void setDispatchWindow(int dispatchWindow) {
+        this.dispatchWindow = dispatchWindow;
+    }
+
+    public DispatchPolicy getDispatchPolicy() {
+        return dispatchPolicy;
+    }
+
+    public void setDispatchPolicy(DispatchPolicy dispatchPolicy) {
+        this.dispatchPolicy = dispatchPolicy;
+    }
+
+    public int getCheckpointIntervalMinutes() {
+        return checkpointIntervalMinutes;
+    }
+
+    public void setCheckpointIntervalMinutes(int checkpointIntervalMinutes) {
+        this.checkpointIntervalMinutes = checkpointIntervalMinutes;
+    }
+
+    public int getCheckpointRetentionHours() {
+        return checkpointRetentionHours;
+    }
+
+    public void setCheckpointRetentionHours(int checkpointRetentionHours) {
+        this.checkpointRetentionHours = checkpointRetentionHours;
+    }
+
+    /** Each checkpoint is a full snapshot, so this caps the timeline's disk use. */
+    public int getMaxCheckpoints() {
+        return maxCheckpoints;
+    }
+
+    public void setMaxCheckpoints(int maxCheckpoints) {
+        this.maxCheckpoints = maxCheckpoints;
+    }
+
+    private static Map<Logger.Scope, Integer> defaultLogRateLimits() {
+        Map<Logger.Scope, Integer> limits = new EnumMap<>(Logger.Scope.class);
+        for (Logger.Scope scope : Logger.Scope.values()) {
+            limits.put(scope, 1000);
+        }
+        return limits;
+    }
+
+    private static Map<Logger.Scope, Logger.Level> defaultLogLevels() {
+        Map<Logger.Scope, Logger.Level> levels = new EnumMap<>(Logger.Scope.class);
+        for (Logger.Scope scope : Logger.Scope.values()) {
+            levels.put(scope, Logger.Level.INFO);
+        }
+        return levels;
+    }
+}
@@ -9,8 +9,28 @@ import java.util.*;
 
 public class SystemState {
     private static final String STATE_FILE = "automated_library_storage_system/store.json";
+    private static final String BINARY_STATE_FILE = "automated_library_storage_system/store.bin";
+
+    /** On-disk form of the state; JSON stays readable and is used for import and export. */
+    public enum Format {
+        JSON("json"), BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        /** The format implied by a file name: .bin is binary, anything else JSON. */
+        public static Format of(Path path) {
+            return path.getFileName().toString().endsWith("." + BINARY.extension) ? BINARY : JSON;
+        }
+    }
     private static final Gson gson = new GsonBuilder()
-        .setPrettyPrinting()
         .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
         .create();
     
@@ -19,7 +39,11 @@ public class SystemState {
     private List<RobotData> robots;
     private List<ChargingStationData> stations;
     private List<TaskData> tasks;
+    private List<String> chargingQueue;
     private SystemConfig config;
+    private long journalGeneration;
+    private int shards;
+    private transient Format format;
     
     public SystemState() {
         this.books = new ArrayList<>();
@@ -27,36 +51,181 @@ public class SystemState {
         this.robots = new ArrayList<>();
         this.stations = new ArrayList<>();
         this.tasks = new ArrayList<>();
+        this.chargingQueue = new ArrayList<>();
         this.config = new SystemConfig();
     }
     
+    /**
+     * Loads the newest of store.bin and store.json, falling back to the other
+     * one if it cannot be read, and to the default state if neither can.
+     */
     public static SystemState load() {
+        List<Path> candidates = new ArrayList<>();
+        for (String file : new String[] { BINARY_STATE_FILE, STATE_FILE }) {
+            if (Files.exists(Paths.get(file))) {
+                candidates.add(Paths.get(file));
+            }
+        }
+        candidates.sort(Comparator.comparing(SystemState::lastModified).reversed());
+        for (Path path : candidates) {
+            try {
+                return read(path);
+            } catch (Exception e) {
+                Logger.logSystem("ERROR", "Failed to load state from " + path + ": " + e.getMessage());
+            }
+        }
+        return createDefault();
+    }
+
+    /** Loads {@code path} in the format its extension names; a .json path imports a JSON export. */
+    public static SystemState load(Path path) {
         try {
-            Path path = Paths.get(STATE_FILE);
             if (Files.exists(path)) {
-                String json = Files.readString(path);
-                SystemState state = gson.fromJson(json, SystemState.class);
-                Logger.logSystem("INFO", "System state loaded from " + STATE_FILE);
-                return state;
+                return read(path);
             }
         } catch (Exception e) {
             Logger.logSystem("ERROR", "Failed to load state: " + e.getMessage());
         }
         return createDefault();
     }
-    
-    public void save() {
+
+    private static SystemState read(Path path) throws IOException {
+        Format format = Format.of(path);
+        SystemState state;
+        if (format == Format.BINARY) {
+            state = BinaryStateReader.read(path, gson);
+        } else {
+            try (Reader reader = Files.newBufferedReader(path)) {
+                state = gson.fromJson(reader, SystemState.class);
+            }
+            if (state == null) {
+                throw new IOException("Empty state file " + path);
+            }
+        }
+        if (state.shards > 0) {
+            StateShards.read(StateShards.directory(path), state.shards, state, gson, format);
+        }
+        state.format = format;
+        Logger.logSystem("INFO", "System state loaded from " + path);
+        return state;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path defaultPath() {
+        Format format = config == null || config.getStateFormat() == null ? Format.JSON : config.getStateFormat();
+        return Paths.get(format == Format.BINARY ? BINARY_STATE_FILE : STATE_FILE);
+    }
+
+    /** Writes the DTO lists as JSON to store.json. */
+    public boolean save() {
+        return save(Paths.get(STATE_FILE), StateEpoch.LATEST, writer -> writer.writeObject(this));
+    }
+
+    /**
+     * Streams the live entities straight to the state file of the configured
+     * format, without building the DTO lists; tasks are taken from this state.
+     */
+    public boolean save(Collection<Book> books, Collection<Shelf> shelves,
+                        Collection<Robot> robots, Collection<ChargingStation> stations) {
+        return save(defaultPath(), books, shelves, robots, stations);
+    }
+
+    /** Saves in the format {@code path}'s extension names; a .json path exports JSON. */
+    public boolean save(Path path, Collection<Book> books, Collection<Shelf> shelves,
+                        Collection<Robot> robots, Collection<ChargingStation> stations) {
+        long epoch = StateEpoch.open();
         try {
-            Path path = Paths.get(STATE_FILE);
-            Files.createDirectories(path.getParent());
-            String json = gson.toJson(this);
-            Files.writeString(path, json);
-            Logger.logSystem("INFO", "System state saved to " + STATE_FILE);
+            if (Format.of(path) == Format.BINARY) {
+                BinaryStateWriter.write(path, gson, epoch, this, books, shelves, robots, stations);
+                Logger.logSystem("INFO", "System state saved to " + path);
+                return true;
+            }
+            return save(path, epoch, writer -> writer.writeState(this, books, shelves, robots, stations));
         } catch (Exception e) {
             Logger.logSystem("ERROR", "Failed to save state: " + e.getMessage());
+            return false;
+        } finally {
+            StateEpoch.close();
         }
     }
-    
+
+    public boolean save(StateShards shards, Collection<ChargingStation> stations) {
+        return save(defaultPath(), shards, stations);
+    }
+
+    /**
+     * Rewrites the dirty shards of {@code shards}, then the small state file
+     * holding config, stations, tasks and the shard count. All shards are
+     * read at the same epoch.
+     */
+    public boolean save(Path path, StateShards shards, Collection<ChargingStation> stations) {
+        long epoch = StateEpoch.open();
+        try {
+            Format format = Format.of(path);
+            Path dir = StateShards.directory(path);
+            int written = shards.writeDirty(dir, gson, epoch, format);
+            if (this.shards != shards.getCount()) {
+                shards.deleteStale(dir);
+            }
+            this.shards = shards.getCount();
+            List<Book> noBooks = Collections.emptyList();
+            List<Shelf> noShelves = Collections.emptyList();
+            List<Robot> noRobots = Collections.emptyList();
+            if (format == Format.BINARY) {
+                BinaryStateWriter.write(path, gson, epoch, this, noBooks, noShelves, noRobots, stations);
+            } else {
+                StateWriter.write(path, gson, writer -> writer.writeState(this, noBooks, noShelves, noRobots, stations));
+            }
+            Logger.logSystem("INFO", "System state saved to " + path + " (" + written + " of "
+                + 3 * shards.getCount() + " shards rewritten)");
+            return true;
+        } catch (Exception e) {
+            Logger.logSystem("ERROR", "Failed to save state: " + e.getMessage());
+            return false;
+        } finally {
+            StateEpoch.close();
+        }
+    }
+
+    /**
+     * Writes a complete binary snapshot of the live entities, with tasks and
+     * charging order from this state, and returns the wall-clock time its
+     * epoch was taken at.
+     */
+    long writeCheckpoint(Path path, Collection<Book> books, Collection<Shelf> shelves,
+                         Collection<Robot> robots, Collection<ChargingStation> stations) throws IOException {
+        long epoch = StateEpoch.open();
+        try {
+            long time = System.currentTimeMillis();
+            BinaryStateWriter.write(path, gson, epoch, this, books, shelves, robots, stations);
+            return time;
+        } finally {
+            StateEpoch.close();
+        }
+    }
+
+    static SystemState readCheckpoint(Path path) throws IOException {
+        return BinaryStateReader.read(path, gson);
+    }
+
+    private static boolean save(Path path, long epoch, StateWriter.Body body) {
+        try {
+            StateWriter.write(path, gson, epoch, body);
+            Logger.logSystem("INFO", "System state saved to " + path);
+            return true;
+        } catch (Exception e) {
+            Logger.logSystem("ERROR", "Failed to save state: " + e.getMessage());
+            return false;
+        }
+    }
+
     private static SystemState createDefault() {
         SystemState state = new SystemState();
 
@@ -151,9 +320,24 @@ public class SystemState {
     public List<TaskData> getTasks() { return tasks; }
     public void setTasks(List<TaskData> tasks) { this.tasks = tasks; }
     
+    /** Ids of robots charging or waiting to charge, in service order. */
+    public List<String> getChargingQueue() { return chargingQueue; }
+    public void setChargingQueue(List<String> chargingQueue) { this.chargingQueue = chargingQueue; }
+    
     public SystemConfig getConfig() { return config; }
     public void setConfig(SystemConfig config) { this.config = config; }
 
+    /** First journal generation not yet folded into this snapshot. */
+    public long getJournalGeneration() { return journalGeneration; }
+    public void setJournalGeneration(long journalGeneration) { this.journalGeneration = journalGeneration; }
+
+    /** Number of shard files books, shelves and robots are split into; 0 keeps them inline. */
+    public int getShards() { return shards; }
+    public void setShards(int shards) { this.shards = shards; }
+
+    /** Format this state was loaded in, or null if it was not loaded from a file. */
+    public Format getFormat() { return format; }
+
     public static class BookData {
         private String id;
         private String title;
@@ -212,6 +396,7 @@ public class SystemState {
         private String id;
         private float currentChargePercent;
         private float executionDuration;
+        private boolean docked;
         
         public String getId() { return id; }
         public void setId(String id) { this.id = id; }
@@ -221,6 +406,10 @@ public class SystemState {
         
         public float getExecutionDuration() { return executionDuration; }
         public void setExecutionDuration(float executionDuration) { this.executionDuration = executionDuration; }
+
+        /** Charging at a station when the state was written. */
+        public boolean isDocked() { return docked; }
+        public void setDocked(boolean docked) { this.docked = docked; }
     }
     
     public static class ChargingStationData {
@@ -245,6 +434,10 @@ public class SystemState {
         private String priority;
         private String status;
         private String assignedTo;
+        private String bookId;
+        private int durationSeconds;
+        private float batteryRequired;
+        private long createdAt;
         
         public String getTaskId() { return taskId; }
         public void setTaskId(String taskId) { this.taskId = taskId; }
@@ -263,6 +456,19 @@ public class SystemState {
         
         public String getAssignedTo() { return assignedTo; }
         public void setAssignedTo(String assignedTo) { this.assignedTo = assignedTo; }
+        
+        public String getBookId() { return bookId; }
+        public void setBookId(String bookId) { this.bookId = bookId; }
+        
+        public int getDurationSeconds() { return durationSeconds; }
+        public void setDurationSeconds(int durationSeconds) { this.durationSeconds = durationSeconds; }
+        
+        public float getBatteryRequired() { return batteryRequired; }
+        public void setBatteryRequired(float batteryRequired) { this.batteryRequired = batteryRequired; }
+        
+        /** Creation time in epoch milliseconds, kept so a restored task keeps its age. */
+        public long getCreatedAt() { return createdAt; }
+        public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
     }
 
     private static class LocalDateTimeAdapter implements JsonSerializer<LocalDateTime>, JsonDeserializer<LocalDateTime> {
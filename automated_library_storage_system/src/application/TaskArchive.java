@@ -0,0 +1,605 @@
+package application;
+
+import application.modules.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk history of finished tasks, so completed and cancelled
+ * {@link Task} objects can be dropped from memory.
+ *
+ * Registered as a {@link StateChanges} listener, it turns each task that
+ * reaches COMPLETED or CANCELLED into a compact {@link Entry} and appends it
+ * to the active segment, tasks-&lt;seq&gt;.archive, framed as
+ * [int length][int crc32][payload]. The last {@code window} entries are also
+ * kept in memory for the dashboard.
+ *
+ * Entries carry a completion time that never decreases, so segments are
+ * ordered by time. When a segment passes {@code segmentBytes} it is sealed:
+ * a tasks-&lt;seq&gt;.idx sidecar gets its time range, a sparse time index
+ * and its id hashes sorted for binary search. Only those few numbers per
+ * sealed segment stay on the heap; the active segment keeps its hashes and
+ * sparse index in primitive arrays until it is sealed.
+ */
+public class TaskArchive implements StateChanges.Listener, Closeable {
+    public static final Path DEFAULT_DIR = Paths.get("automated_library_storage_system/archive");
+
+    private static final Pattern NAME = Pattern.compile("^tasks-(\\d+)\\.archive$");
+    private static final byte[] MAGIC = { 'A', 'T', 'I', 1 };
+    private static final int HEADER = 8;
+    private static final int SPARSE_EVERY = 64;
+    private static final int INDEX_HEADER = MAGIC.length + 4 + 8 + 8 + 4;
+
+    private final Path dir;
+    private final int window;
+    private final long segmentBytes;
+    private final ArrayDeque<Entry> recent = new ArrayDeque<>();
+    private final List<Segment> sealed = new ArrayList<>();
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+
+    private Segment active;
+    private FileChannel channel;
+    private long lastTime;
+    // Payload length of the last entry readNext returned.
+    private int lastLength;
+
+    /** A finished task as kept in the archive. */
+    public static final class Entry {
+        private final String taskId;
+        private final String taskName;
+        private final String description;
+        private final String priority;
+        private final String status;
+        private final String assignedTo;
+        private final String bookId;
+        private final long createdAt;
+        private final long finishedAt;
+
+        Entry(String taskId, String taskName, String description, String priority, String status,
+              String assignedTo, String bookId, long createdAt, long finishedAt) {
+            this.taskId = taskId;
+            this.taskName = taskName;
+            this.description = description;
+            this.priority = priority;
+            this.status = status;
+            this.assignedTo = assignedTo;
+            this.bookId = bookId;
+            this.createdAt = createdAt;
+            this.finishedAt = finishedAt;
+        }
+
+        public String getTaskId() { return taskId; }
+        public String getTaskName() { return taskName; }
+        public String getDescription() { return description; }
+        public String getPriority() { return priority; }
+        public String getStatus() { return status; }
+        public String getAssignedTo() { return assignedTo; }
+        public String getBookId() { return bookId; }
+        /** Epoch milliseconds. */
+        public long getCreatedAt() { return createdAt; }
+        /** Epoch milliseconds; never earlier than the entry archived before it. */
+        public long getFinishedAt() { return finishedAt; }
+
+        @Override
+        public String toString() {
+            return String.format("Task[ID: %s, Name: %s, Priority: %s, Status: %s]", taskId, taskName, priority, status);
+        }
+    }
+
+    private static final class Segment {
+        final long seq;
+        final Path file;
+        int count;
+        long firstTime = Long.MAX_VALUE;
+        long lastTime = Long.MIN_VALUE;
+        long size;
+        // Active segment only; dropped once the index is written.
+        int[] hashes = new int[1024];
+        int[] offsets = new int[1024];
+        long[] sparseTimes = new long[16];
+        int[] sparseOffsets = new int[16];
+        int sparseCount;
+
+        Segment(long seq, Path file) {
+            this.seq = seq;
+            this.file = file;
+        }
+
+        void add(Entry entry, int offset) {
+            if (count == hashes.length) {
+                hashes = Arrays.copyOf(hashes, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            if (count % SPARSE_EVERY == 0) {
+                if (sparseCount == sparseTimes.length) {
+                    sparseTimes = Arrays.copyOf(sparseTimes, sparseCount * 2);
+                    sparseOffsets = Arrays.copyOf(sparseOffsets, sparseCount * 2);
+                }
+                sparseTimes[sparseCount] = entry.finishedAt;
+                sparseOffsets[sparseCount++] = offset;
+            }
+            hashes[count] = entry.taskId.hashCode();
+            offsets[count++] = offset;
+            firstTime = Math.min(firstTime, entry.finishedAt);
+            lastTime = Math.max(lastTime, entry.finishedAt);
+        }
+
+        Path index() {
+            return file.resolveSibling("tasks-" + seq + ".idx");
+        }
+    }
+
+    private TaskArchive(Path dir, int window, long segmentBytes) {
+        this.dir = dir;
+        this.window = Math.max(0, window);
+        this.segmentBytes = Math.max(4096, segmentBytes);
+    }
+
+    /**
+     * Opens the archive in {@code dir}. Segments without an index are scanned,
+     * cut back to their last intact entry and, unless last, sealed; appending
+     * resumes on the last one, whose tail also refills the recent window.
+     */
+    public static TaskArchive open(Path dir, int window, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        TaskArchive archive = new TaskArchive(dir, window, segmentBytes);
+        SortedMap<Long, Path> files = segments(dir);
+        long next = 0;
+        for (Map.Entry<Long, Path> e : files.entrySet()) {
+            boolean last = e.getKey().equals(files.lastKey());
+            Segment segment = new Segment(e.getKey(), e.getValue());
+            if (!last && readIndex(segment)) {
+                archive.sealed.add(segment);
+            } else {
+                archive.scan(segment);
+                if (last) {
+                    archive.active = segment;
+                } else {
+                    writeIndex(segment);
+                    archive.sealed.add(segment);
+                }
+            }
+            archive.lastTime = Math.max(archive.lastTime, segment.lastTime);
+            next = e.getKey() + 1;
+        }
+        if (archive.active == null) {
+            archive.active = new Segment(next, dir.resolve("tasks-" + next + ".archive"));
+        }
+        archive.channel = FileChannel.open(archive.active.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        archive.channel.truncate(archive.active.size);
+        archive.channel.position(archive.active.size);
+        return archive;
+    }
+
+    @Override
+    public void taskChanged(Task task) {
+        TaskStatus status = task.getStatus();
+        if (status != TaskStatus.COMPLETED && status != TaskStatus.CANCELLED) {
+            return;
+        }
+        try {
+            append(task);
+        } catch (IOException e) {
+            Logger.logSystem("ERROR", "Failed to archive task " + task.getTaskId() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void bookChanged(Book book) {
+    }
+
+    @Override
+    public void shelfChanged(Shelf shelf, Book book, boolean added) {
+    }
+
+    @Override
+    public void shelfAdded(Shelf shelf) {
+    }
+
+    @Override
+    public void stationAdded(ChargingStation station) {
+    }
+
+    @Override
+    public void robotChanged(Robot robot) {
+    }
+
+    public synchronized void append(Task task) throws IOException {
+        lastTime = Math.max(lastTime, System.currentTimeMillis());
+        Entry entry = new Entry(task.getTaskId(), task.getTaskName(), task.getDescription(),
+            String.valueOf(task.getPriority()), String.valueOf(task.getStatus()), task.getAssignedTo(),
+            task.getRelatedBook() == null ? null : task.getRelatedBook().getId(),
+            task.getCreatedAtMillis(), lastTime);
+        if (active.size >= segmentBytes) {
+            roll();
+        }
+        byte[] frame = encode(entry);
+        ByteBuffer buf = ByteBuffer.wrap(frame);
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        active.add(entry, (int) active.size);
+        active.size += frame.length;
+        remember(entry);
+    }
+
+    /** Newest first, at most {@code limit} entries from the in-memory window. */
+    public synchronized List<Entry> recent(int limit) {
+        List<Entry> result = new ArrayList<>(Math.min(limit, recent.size()));
+        Iterator<Entry> it = recent.descendingIterator();
+        while (it.hasNext() && result.size() < limit) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    /** The archived entry of {@code taskId}, or null; the most recent one if the id was reused. */
+    public synchronized Entry find(String taskId) throws IOException {
+        Iterator<Entry> it = recent.descendingIterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.taskId.equals(taskId)) {
+                return e;
+            }
+        }
+        int hash = taskId.hashCode();
+        for (int i = active.count - 1; i >= 0; i--) {
+            if (active.hashes[i] == hash) {
+                Entry e = readAt(active.file, active.offsets[i]);
+                if (e != null && e.taskId.equals(taskId)) {
+                    return e;
+                }
+            }
+        }
+        for (int s = sealed.size() - 1; s >= 0; s--) {
+            Entry e = findSealed(sealed.get(s), taskId, hash);
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Entries finished in [{@code from}, {@code to}] epoch milliseconds, oldest
+     * first, at most {@code limit}. Only segments overlapping the range are
+     * read, each from the sparse index entry just before {@code from}.
+     */
+    public synchronized List<Entry> between(long from, long to, int limit) throws IOException {
+        List<Entry> result = new ArrayList<>();
+        List<Segment> all = new ArrayList<>(sealed);
+        all.add(active);
+        for (Segment segment : all) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (segment.count == 0 || segment.lastTime < from || segment.firstTime > to) {
+                continue;
+            }
+            long start = segment == active ? startOffset(active.sparseTimes, active.sparseOffsets, active.sparseCount, from)
+                : sealedStart(segment, from);
+            scanRange(segment, start, from, to, limit, result);
+        }
+        return result;
+    }
+
+    /** Number of archived entries on disk. */
+    public synchronized long size() {
+        long n = active.count;
+        for (Segment s : sealed) {
+            n += s.count;
+        }
+        return n;
+    }
+
+    public synchronized int segmentCount() {
+        return sealed.size() + 1;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    private void remember(Entry entry) {
+        if (window == 0) {
+            return;
+        }
+        if (recent.size() == window) {
+            recent.removeFirst();
+        }
+        recent.addLast(entry);
+    }
+
+    private void roll() throws IOException {
+        channel.force(false);
+        channel.close();
+        writeIndex(active);
+        active.hashes = null;
+        active.offsets = null;
+        active.sparseTimes = null;
+        active.sparseOffsets = null;
+        sealed.add(active);
+        long next = active.seq + 1;
+        active = new Segment(next, dir.resolve("tasks-" + next + ".archive"));
+        channel = FileChannel.open(active.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private byte[] encode(Entry e) {
+        scratch.reset();
+        DataOutputStream out = new DataOutputStream(scratch);
+        try {
+            out.writeInt(0);
+            out.writeInt(0);
+            writeString(out, e.taskId);
+            writeString(out, e.taskName);
+            writeString(out, e.description);
+            writeString(out, e.priority);
+            writeString(out, e.status);
+            writeString(out, e.assignedTo);
+            writeString(out, e.bookId);
+            out.writeLong(e.createdAt);
+            out.writeLong(e.finishedAt);
+        } catch (IOException impossible) {
+            throw new UncheckedIOException(impossible);
+        }
+        byte[] frame = scratch.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(frame, HEADER, frame.length - HEADER);
+        ByteBuffer.wrap(frame).putInt(frame.length - HEADER).putInt((int) crc.getValue());
+        return frame;
+    }
+
+    private static Entry decode(byte[] payload, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+        return new Entry(readString(in), readString(in), readString(in), readString(in), readString(in),
+            readString(in), readString(in), in.readLong(), in.readLong());
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads {@code segment} from the start, registering every intact entry,
+     * and sets its size to the end of the last one.
+     */
+    private void scan(Segment segment) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.file)))) {
+            long offset = 0;
+            Entry entry;
+            byte[] payload = new byte[256];
+            while ((entry = readNext(in, payload)) != null) {
+                segment.add(entry, (int) offset);
+                offset += HEADER + lastLength;
+                remember(entry);
+                if (payload.length < lastLength) {
+                    payload = new byte[lastLength];
+                }
+            }
+            segment.size = offset;
+        }
+    }
+
+    /** The next intact entry of {@code in}, or null at the end or at a torn or corrupt frame. */
+    private Entry readNext(DataInputStream in, byte[] payload) throws IOException {
+        int length;
+        int checksum;
+        try {
+            length = in.readInt();
+            checksum = in.readInt();
+        } catch (EOFException eof) {
+            return null;
+        }
+        if (length <= 0 || length > (1 << 24)) {
+            return null;
+        }
+        if (payload.length < length) {
+            payload = new byte[length];
+        }
+        if (in.readNBytes(payload, 0, length) < length) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        lastLength = length;
+        return decode(payload, length);
+    }
+
+    private static Entry readAt(Path file, long offset) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            if (ch.read(header, offset) < HEADER) {
+                return null;
+            }
+            header.flip();
+            int length = header.getInt();
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining() && ch.read(payload, offset + HEADER + payload.position()) > 0) {
+            }
+            return payload.hasRemaining() ? null : decode(payload.array(), length);
+        }
+    }
+
+    private void scanRange(Segment segment, long start, long from, long to, int limit, List<Entry> result)
+            throws IOException {
+        try (FileChannel ch = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+            ch.position(start);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch)));
+            byte[] payload = new byte[256];
+            Entry e;
+            while (result.size() < limit && (e = readNext(in, payload)) != null) {
+                if (payload.length < lastLength) {
+                    payload = new byte[lastLength];
+                }
+                if (e.finishedAt > to) {
+                    break;
+                }
+                if (e.finishedAt >= from) {
+                    result.add(e);
+                }
+            }
+        }
+    }
+
+    private static long startOffset(long[] times, int[] offsets, int count, long from) {
+        int lo = 0;
+        int hi = count - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < from) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found < 0 ? 0 : offsets[found];
+    }
+
+    /*
+     * Index layout: magic "ATI"+1, count:int, firstTime:long, lastTime:long,
+     * sparseCount:int, sparseCount x (time:long offset:int),
+     * count x (idHash:int offset:int) sorted by hash.
+     */
+
+    private static void writeIndex(Segment segment) throws IOException {
+        int n = segment.count;
+        long[] pairs = new long[n];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = ((long) segment.hashes[i] << 32) | (segment.offsets[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(pairs);
+        ByteBuffer buf = ByteBuffer.allocate(INDEX_HEADER + segment.sparseCount * 12 + n * 8);
+        buf.put(MAGIC).putInt(n).putLong(segment.firstTime).putLong(segment.lastTime).putInt(segment.sparseCount);
+        for (int i = 0; i < segment.sparseCount; i++) {
+            buf.putLong(segment.sparseTimes[i]).putInt(segment.sparseOffsets[i]);
+        }
+        for (long pair : pairs) {
+            buf.putInt((int) (pair >> 32)).putInt((int) pair);
+        }
+        buf.flip();
+        Path tmp = segment.index().resolveSibling(segment.index().getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(false);
+        }
+        Files.move(tmp, segment.index(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Loads the header of a sealed segment's index; false if it is missing or unreadable. */
+    private static boolean readIndex(Segment segment) throws IOException {
+        if (!Files.exists(segment.index())) {
+            return false;
+        }
+        try (FileChannel ch = FileChannel.open(segment.index(), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(INDEX_HEADER);
+            if (ch.read(buf, 0) < INDEX_HEADER) {
+                return false;
+            }
+            buf.flip();
+            for (byte b : MAGIC) {
+                if (buf.get() != b) {
+                    return false;
+                }
+            }
+            segment.count = buf.getInt();
+            segment.firstTime = buf.getLong();
+            segment.lastTime = buf.getLong();
+            segment.sparseCount = buf.getInt();
+            segment.size = Files.size(segment.file);
+            segment.hashes = null;
+            segment.offsets = null;
+            segment.sparseTimes = null;
+            segment.sparseOffsets = null;
+            return ch.size() == INDEX_HEADER + segment.sparseCount * 12L + segment.count * 8L;
+        }
+    }
+
+    private static MappedByteBuffer mapIndex(Segment segment) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment.index(), StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    private static Entry findSealed(Segment segment, String taskId, int hash) throws IOException {
+        MappedByteBuffer index = mapIndex(segment);
+        int ids = INDEX_HEADER + segment.sparseCount * 12;
+        int lo = 0;
+        int hi = segment.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index.getInt(ids + mid * 8) < hash) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        Entry found = null;
+        for (int i = lo; i < segment.count && index.getInt(ids + i * 8) == hash; i++) {
+            Entry e = readAt(segment.file, index.getInt(ids + i * 8 + 4));
+            if (e != null && e.taskId.equals(taskId) && (found == null || e.finishedAt >= found.finishedAt)) {
+                found = e;
+            }
+        }
+        return found;
+    }
+
+    private static long sealedStart(Segment segment, long from) throws IOException {
+        MappedByteBuffer index = mapIndex(segment);
+        long[] times = new long[segment.sparseCount];
+        int[] offsets = new int[segment.sparseCount];
+        for (int i = 0; i < segment.sparseCount; i++) {
+            times[i] = index.getLong(INDEX_HEADER + i * 12);
+            offsets[i] = index.getInt(INDEX_HEADER + i * 12 + 8);
+        }
+        return startOffset(times, offsets, segment.sparseCount, from);
+    }
+
+    private static SortedMap<Long, Path> segments(Path dir) throws IOException {
+        SortedMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                Matcher m = NAME.matcher(p.getFileName().toString());
+                if (m.matches()) {
+                    files.put(Long.parseLong(m.group(1)), p);
+                }
+            }
+        }
+        return files;
+    }
+}
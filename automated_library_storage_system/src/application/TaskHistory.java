@@ -0,0 +1,678 @@
+package application;
+
+import application.modules.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Columnar history of finished tasks for aggregate queries such as mean
+ * queue wait by priority per hour or p95 execution time by shelf distance.
+ *
+ * Where {@link TaskArchive} keeps whole entries for lookups, this file keeps
+ * one primitive column per field, {@link #BLOCK_ROWS} rows to a block.
+ * Each block starts with min/max statistics (finish and creation time,
+ * shelf distance), bit sets of the priorities and outcomes in it and its
+ * robot dictionary; those stay in memory so {@link #aggregate} reads only
+ * the blocks a filter can match, and computes over arrays instead of
+ * decoding objects.
+ *
+ * <pre>
+ * file   := "ATH" version block*
+ * block  := length:int crc32:int payload
+ * payload:= rows:int minFinished:long maxFinished:long minCreated:long maxCreated:long
+ *           priorityBits:int outcomeBits:int minDistance:int maxDistance:int
+ *           robotCount:int (length:short utf8)*
+ *           finished:long[rows] created:long[rows] started:long[rows]
+ *           distance:int[rows] battery:float[rows] robot:int[rows]
+ *           priority:byte[rows] outcome:byte[rows] idEnd:int[rows] idBytes
+ * </pre>
+ *
+ * Times are epoch milliseconds; started is 0 for a task cancelled before it
+ * ran, robot is -1 when no robot executed it, distance 0 when unknown.
+ * Rows are buffered until a block fills or {@link #flush} is called.
+ */
+public class TaskHistory implements StateChanges.Listener, Closeable {
+    public static final Path DEFAULT_FILE = TaskArchive.DEFAULT_DIR.resolve("task-history.col");
+    public static final int BLOCK_ROWS = 4096;
+
+    private static final byte[] MAGIC = { 'A', 'T', 'H', 1 };
+    private static final int HEADER = 8;
+    private static final int STATS = 4 + 8 * 4 + 4 * 4;
+    private static final long HOUR = 3_600_000L;
+    // Enough to read the statistics and robot dictionary of a block without its columns.
+    private static final int STATS_PREFIX = 4096;
+
+    /** Value aggregated per row. */
+    public enum Measure {
+        /** Created to started, for tasks that started. */
+        QUEUE_WAIT_MILLIS,
+        /** Started to finished, for tasks that started. */
+        EXECUTION_MILLIS,
+        /** Created to finished. */
+        TOTAL_MILLIS,
+        BATTERY_DRAINED
+    }
+
+    public enum GroupBy { NONE, PRIORITY, OUTCOME, HOUR, SHELF_DISTANCE, ROBOT }
+
+    /** Rows to include; unset fields match everything. */
+    public static class Filter {
+        private long from = Long.MIN_VALUE;
+        private long to = Long.MAX_VALUE;
+        private TaskPriority priority;
+        private TaskStatus outcome;
+        private int minDistance = Integer.MIN_VALUE;
+        private int maxDistance = Integer.MAX_VALUE;
+        private String robot;
+
+        /** Finish time range, inclusive, in epoch milliseconds. */
+        public void setFinishedBetween(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public void setPriority(TaskPriority priority) {
+            this.priority = priority;
+        }
+
+        public void setOutcome(TaskStatus outcome) {
+            this.outcome = outcome;
+        }
+
+        public void setDistanceBetween(int minDistance, int maxDistance) {
+            this.minDistance = minDistance;
+            this.maxDistance = maxDistance;
+        }
+
+        public void setRobot(String robot) {
+            this.robot = robot;
+        }
+    }
+
+    /** Count, mean, extremes and percentiles of one group. */
+    public static final class Summary {
+        private double[] values = new double[16];
+        private int count;
+        private double sum;
+        private boolean sorted;
+
+        void add(double value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+            sum += value;
+            sorted = false;
+        }
+
+        public int getCount() { return count; }
+        public double getSum() { return sum; }
+        public double getMean() { return count == 0 ? Double.NaN : sum / count; }
+        public double getMin() { return percentile(0); }
+        public double getMax() { return percentile(100); }
+
+        /** Nearest-rank percentile, {@code p} in [0, 100]; NaN for an empty group. */
+        public double percentile(double p) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            if (!sorted) {
+                Arrays.sort(values, 0, count);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(p / 100.0 * count);
+            return values[Math.max(0, Math.min(count - 1, rank - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%.1f p95=%.1f max=%.1f",
+                count, getMean(), percentile(50), percentile(95), getMax());
+        }
+    }
+
+    /** Statistics of a block on disk, enough to decide whether to read it. */
+    private static final class BlockInfo {
+        long offset;
+        int length;
+        int rows;
+        long minFinished = Long.MAX_VALUE;
+        long maxFinished = Long.MIN_VALUE;
+        long minCreated = Long.MAX_VALUE;
+        long maxCreated = Long.MIN_VALUE;
+        int priorityBits;
+        int outcomeBits;
+        int minDistance = Integer.MAX_VALUE;
+        int maxDistance = Integer.MIN_VALUE;
+        String[] robots = new String[0];
+
+        boolean mayMatch(Filter f) {
+            if (rows == 0 || maxFinished < f.from || minFinished > f.to) {
+                return false;
+            }
+            if (f.priority != null && (priorityBits & (1 << f.priority.ordinal())) == 0) {
+                return false;
+            }
+            if (f.outcome != null && (outcomeBits & (1 << f.outcome.ordinal())) == 0) {
+                return false;
+            }
+            if (maxDistance < f.minDistance || minDistance > f.maxDistance) {
+                return false;
+            }
+            return f.robot == null || Arrays.asList(robots).contains(f.robot);
+        }
+    }
+
+    /** Decoded columns of one block, or the rows not yet written. */
+    private static final class Block {
+        final BlockInfo info;
+        long[] finished;
+        long[] created;
+        long[] started;
+        int[] distance;
+        float[] battery;
+        int[] robot;
+        byte[] priority;
+        byte[] outcome;
+        String[] ids;
+        final Map<String, Integer> robotCodes = new HashMap<>();
+
+        Block(BlockInfo info, int capacity) {
+            this.info = info;
+            finished = new long[capacity];
+            created = new long[capacity];
+            started = new long[capacity];
+            distance = new int[capacity];
+            battery = new float[capacity];
+            robot = new int[capacity];
+            priority = new byte[capacity];
+            outcome = new byte[capacity];
+            ids = new String[capacity];
+        }
+    }
+
+    private final Path file;
+    private final List<BlockInfo> blocks = new ArrayList<>();
+    private FileChannel channel;
+    private Block pending;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+
+    private TaskHistory(Path file) {
+        this.file = file;
+        this.pending = newPending();
+    }
+
+    /**
+     * Opens or creates {@code file}, loading the statistics of every block. A
+     * torn last block from a crash is cut off.
+     */
+    public static TaskHistory open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        TaskHistory history = new TaskHistory(file);
+        history.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        long end = history.loadBlocks();
+        history.channel.truncate(end);
+        history.channel.position(end);
+        return history;
+    }
+
+    @Override
+    public void taskChanged(Task task) {
+        TaskStatus status = task.getStatus();
+        if (status != TaskStatus.COMPLETED && status != TaskStatus.CANCELLED) {
+            return;
+        }
+        try {
+            append(task);
+        } catch (IOException e) {
+            Logger.logSystem("ERROR", "Failed to record task history for " + task.getTaskId() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void bookChanged(Book book) {
+    }
+
+    @Override
+    public void shelfChanged(Shelf shelf, Book book, boolean added) {
+    }
+
+    @Override
+    public void shelfAdded(Shelf shelf) {
+    }
+
+    @Override
+    public void stationAdded(ChargingStation station) {
+    }
+
+    @Override
+    public void robotChanged(Robot robot) {
+    }
+
+    public void append(Task task) throws IOException {
+        long finished = task.getFinishedAtMillis() > 0 ? task.getFinishedAtMillis() : System.currentTimeMillis();
+        append(task.getTaskId(), task.getPriority(), task.getStatus(), task.getCreatedAtMillis(),
+            task.getStartedAtMillis(), finished, task.getExecutedBy(), task.getShelfDistance(), task.getBatteryDrained());
+    }
+
+    /** Appends one row from its field values, e.g. when importing history kept elsewhere. */
+    public synchronized void append(String taskId, TaskPriority priority, TaskStatus outcome, long created,
+                                    long started, long finished, String robot, int distance, float battery)
+            throws IOException {
+        Block b = pending;
+        BlockInfo info = b.info;
+        int row = info.rows;
+        b.ids[row] = taskId;
+        b.finished[row] = finished;
+        b.created[row] = created;
+        b.started[row] = started;
+        b.distance[row] = distance;
+        b.battery[row] = battery;
+        b.priority[row] = (byte) priority.ordinal();
+        b.outcome[row] = (byte) outcome.ordinal();
+        if (robot == null) {
+            b.robot[row] = -1;
+        } else {
+            Integer code = b.robotCodes.get(robot);
+            if (code == null) {
+                code = info.robots.length;
+                info.robots = Arrays.copyOf(info.robots, code + 1);
+                info.robots[code] = robot;
+                b.robotCodes.put(robot, code);
+            }
+            b.robot[row] = code;
+        }
+        info.minFinished = Math.min(info.minFinished, finished);
+        info.maxFinished = Math.max(info.maxFinished, finished);
+        info.minCreated = Math.min(info.minCreated, created);
+        info.maxCreated = Math.max(info.maxCreated, created);
+        info.priorityBits |= 1 << b.priority[row];
+        info.outcomeBits |= 1 << b.outcome[row];
+        info.minDistance = Math.min(info.minDistance, b.distance[row]);
+        info.maxDistance = Math.max(info.maxDistance, b.distance[row]);
+        info.rows = row + 1;
+        if (info.rows == BLOCK_ROWS) {
+            flush();
+        }
+    }
+
+    /** Writes the buffered rows as a block, possibly short of {@link #BLOCK_ROWS}. */
+    public synchronized void flush() throws IOException {
+        BlockInfo info = pending.info;
+        if (info.rows == 0) {
+            return;
+        }
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.wrap(MAGIC));
+        }
+        ByteBuffer buf = encode(pending);
+        info.offset = channel.position();
+        info.length = buf.remaining();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        channel.force(false);
+        blocks.add(info);
+        pending = newPending();
+    }
+
+    /** Rows recorded, including those not yet flushed. */
+    public synchronized long size() {
+        long n = pending.info.rows;
+        for (BlockInfo b : blocks) {
+            n += b.rows;
+        }
+        return n;
+    }
+
+    public synchronized int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Aggregates {@code measure} over the rows matching {@code filter}, one
+     * {@link Summary} per group in key order. Blocks whose statistics rule the
+     * filter out are not read.
+     */
+    public Map<String, Summary> aggregate(Filter filter, Measure measure, GroupBy groupBy) throws IOException {
+        return aggregate(filter, measure, groupBy, GroupBy.NONE);
+    }
+
+    /** As {@link #aggregate(Filter, Measure, GroupBy)}, grouped by two keys; labels are "first, second". */
+    public synchronized Map<String, Summary> aggregate(Filter filter, Measure measure, GroupBy groupBy,
+                                                       GroupBy thenBy) throws IOException {
+        Map<Long, Summary> groups = new HashMap<>();
+        Map<String, Long> robotKeys = new HashMap<>();
+        List<String> robotNames = new ArrayList<>();
+        double[] values = new double[BLOCK_ROWS];
+        long[] keys = new long[BLOCK_ROWS];
+        long[] second = new long[BLOCK_ROWS];
+        for (int i = 0; i <= blocks.size(); i++) {
+            BlockInfo info = i < blocks.size() ? blocks.get(i) : pending.info;
+            if (!info.mayMatch(filter)) {
+                continue;
+            }
+            Block b = i < blocks.size() ? read(info) : pending;
+            int n = info.rows;
+            measure(b, n, measure, values);
+            groupKeys(b, n, groupBy, keys, robotKeys, robotNames);
+            if (thenBy != GroupBy.NONE) {
+                groupKeys(b, n, thenBy, second, robotKeys, robotNames);
+                for (int r = 0; r < n; r++) {
+                    keys[r] = keys[r] << 32 | second[r];
+                }
+            }
+            int robotFilter = filter.robot == null ? -1 : Arrays.asList(info.robots).indexOf(filter.robot);
+            long lastKey = 0;
+            Summary summary = null;
+            for (int r = 0; r < n; r++) {
+                if (b.finished[r] < filter.from || b.finished[r] > filter.to
+                        || b.distance[r] < filter.minDistance || b.distance[r] > filter.maxDistance
+                        || (filter.priority != null && b.priority[r] != filter.priority.ordinal())
+                        || (filter.outcome != null && b.outcome[r] != filter.outcome.ordinal())
+                        || (filter.robot != null && b.robot[r] != robotFilter)
+                        || Double.isNaN(values[r])) {
+                    continue;
+                }
+                if (summary == null || keys[r] != lastKey) {
+                    lastKey = keys[r];
+                    summary = groups.get(lastKey);
+                    if (summary == null) {
+                        summary = new Summary();
+                        groups.put(lastKey, summary);
+                    }
+                }
+                summary.add(values[r]);
+            }
+        }
+        Map<String, Summary> result = new LinkedHashMap<>();
+        for (Long key : new TreeSet<>(groups.keySet())) {
+            String label = thenBy == GroupBy.NONE ? label(groupBy, key, robotNames)
+                : label(groupBy, key >>> 32, robotNames) + ", " + label(thenBy, key & 0xFFFFFFFFL, robotNames);
+            result.put(label, groups.get(key));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private static Block newPending() {
+        return new Block(new BlockInfo(), BLOCK_ROWS);
+    }
+
+    /** One tight loop per measure over the block's columns; NaN marks rows the measure does not apply to. */
+    private static void measure(Block b, int n, Measure measure, double[] out) {
+        switch (measure) {
+            case QUEUE_WAIT_MILLIS:
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.started[r] == 0 ? Double.NaN : b.started[r] - b.created[r];
+                }
+                break;
+            case EXECUTION_MILLIS:
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.started[r] == 0 ? Double.NaN : b.finished[r] - b.started[r];
+                }
+                break;
+            case TOTAL_MILLIS:
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.finished[r] - b.created[r];
+                }
+                break;
+            default:
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.battery[r];
+                }
+        }
+    }
+
+    /** Keys are non-negative ints so that two of them pack into one long, in order. */
+    private static void groupKeys(Block b, int n, GroupBy groupBy, long[] out, Map<String, Long> robotKeys,
+                                  List<String> robotNames) {
+        switch (groupBy) {
+            case PRIORITY:
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.priority[r];
+                }
+                break;
+            case OUTCOME:
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.outcome[r];
+                }
+                break;
+            case HOUR:
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.finished[r] / HOUR;
+                }
+                break;
+            case SHELF_DISTANCE:
+                for (int r = 0; r < n; r++) {
+                    out[r] = Math.max(0, b.distance[r]);
+                }
+                break;
+            case ROBOT:
+                // Block dictionaries differ; map each to ids shared by the whole query.
+                String[] robots = b.info.robots;
+                long[] global = new long[robots.length];
+                for (int i = 0; i < robots.length; i++) {
+                    Long key = robotKeys.get(robots[i]);
+                    if (key == null) {
+                        key = (long) robotNames.size();
+                        robotKeys.put(robots[i], key);
+                        robotNames.add(robots[i]);
+                    }
+                    global[i] = key + 1;
+                }
+                for (int r = 0; r < n; r++) {
+                    out[r] = b.robot[r] < 0 ? 0 : global[b.robot[r]];
+                }
+                break;
+            default:
+                Arrays.fill(out, 0, n, 0L);
+        }
+    }
+
+    private static String label(GroupBy groupBy, long key, List<String> robotNames) {
+        switch (groupBy) {
+            case PRIORITY:
+                return TaskPriority.values()[(int) key].name();
+            case OUTCOME:
+                return TaskStatus.values()[(int) key].name();
+            case HOUR:
+                return Instant.ofEpochMilli(key * HOUR).atZone(ZoneId.systemDefault()).toLocalDateTime().toString();
+            case SHELF_DISTANCE:
+                return String.valueOf(key);
+            case ROBOT:
+                return key == 0 ? "none" : robotNames.get((int) key - 1);
+            default:
+                return "all";
+        }
+    }
+
+    private static ByteBuffer encode(Block b) {
+        BlockInfo info = b.info;
+        int n = info.rows;
+        byte[][] robots = new byte[info.robots.length][];
+        int robotBytes = 0;
+        for (int i = 0; i < robots.length; i++) {
+            robots[i] = info.robots[i].getBytes(StandardCharsets.UTF_8);
+            robotBytes += 2 + robots[i].length;
+        }
+        byte[][] ids = new byte[n][];
+        int idBytes = 0;
+        for (int r = 0; r < n; r++) {
+            ids[r] = b.ids[r] == null ? new byte[0] : b.ids[r].getBytes(StandardCharsets.UTF_8);
+            idBytes += ids[r].length;
+        }
+        int payload = STATS + 4 + robotBytes + n * (8 * 3 + 4 * 3 + 2 + 4) + idBytes;
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + payload);
+        buf.position(HEADER);
+        buf.putInt(n).putLong(info.minFinished).putLong(info.maxFinished).putLong(info.minCreated)
+            .putLong(info.maxCreated).putInt(info.priorityBits).putInt(info.outcomeBits)
+            .putInt(info.minDistance).putInt(info.maxDistance);
+        buf.putInt(robots.length);
+        for (byte[] robot : robots) {
+            buf.putShort((short) robot.length).put(robot);
+        }
+        buf.asLongBuffer().put(b.finished, 0, n);
+        buf.position(buf.position() + n * 8);
+        buf.asLongBuffer().put(b.created, 0, n);
+        buf.position(buf.position() + n * 8);
+        buf.asLongBuffer().put(b.started, 0, n);
+        buf.position(buf.position() + n * 8);
+        buf.asIntBuffer().put(b.distance, 0, n);
+        buf.position(buf.position() + n * 4);
+        buf.asFloatBuffer().put(b.battery, 0, n);
+        buf.position(buf.position() + n * 4);
+        buf.asIntBuffer().put(b.robot, 0, n);
+        buf.position(buf.position() + n * 4);
+        buf.put(b.priority, 0, n);
+        buf.put(b.outcome, 0, n);
+        int end = 0;
+        for (int r = 0; r < n; r++) {
+            end += ids[r].length;
+            buf.putInt(end);
+        }
+        for (byte[] id : ids) {
+            buf.put(id);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), HEADER, payload);
+        buf.putInt(0, payload).putInt(4, (int) crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    /** Reads and decodes the block described by {@code info}; ids are left undecoded. */
+    private Block read(BlockInfo info) throws IOException {
+        ByteBuffer buf = readPayload(info.offset, info.length - HEADER);
+        int n = info.rows;
+        buf.position(STATS);
+        int robotCount = buf.getInt();
+        for (int i = 0; i < robotCount; i++) {
+            buf.position(buf.position() + 2 + buf.getShort(buf.position()));
+        }
+        Block b = new Block(info, 0);
+        b.finished = new long[n];
+        buf.asLongBuffer().get(b.finished);
+        buf.position(buf.position() + n * 8);
+        b.created = new long[n];
+        buf.asLongBuffer().get(b.created);
+        buf.position(buf.position() + n * 8);
+        b.started = new long[n];
+        buf.asLongBuffer().get(b.started);
+        buf.position(buf.position() + n * 8);
+        b.distance = new int[n];
+        buf.asIntBuffer().get(b.distance);
+        buf.position(buf.position() + n * 4);
+        b.battery = new float[n];
+        buf.asFloatBuffer().get(b.battery);
+        buf.position(buf.position() + n * 4);
+        b.robot = new int[n];
+        buf.asIntBuffer().get(b.robot);
+        buf.position(buf.position() + n * 4);
+        b.priority = new byte[n];
+        buf.get(b.priority);
+        b.outcome = new byte[n];
+        buf.get(b.outcome);
+        return b;
+    }
+
+    private ByteBuffer readPayload(long offset, int length) throws IOException {
+        if (readBuffer.capacity() < length) {
+            readBuffer = ByteBuffer.allocate(length);
+        }
+        ByteBuffer buf = readBuffer;
+        buf.clear().limit(length);
+        long at = offset + HEADER;
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, at + buf.position()) < 0) {
+                throw new EOFException("Truncated task history block at " + offset);
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Loads the statistics of each block and returns the end of the last
+     * intact one. Only the last block's checksum is verified: earlier blocks
+     * were forced before anything was written after them.
+     */
+    private long loadBlocks() throws IOException {
+        long size = channel.size();
+        if (size < MAGIC.length) {
+            return 0;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        channel.read(magic, 0);
+        if (!Arrays.equals(magic.array(), MAGIC)) {
+            throw new IOException("Not a task history file: " + file);
+        }
+        long offset = MAGIC.length;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (offset + HEADER <= size) {
+            header.clear();
+            channel.read(header, offset);
+            int length = header.getInt(0);
+            int checksum = header.getInt(4);
+            if (length < STATS + 4 || offset + HEADER + length > size) {
+                break;
+            }
+            boolean last = offset + HEADER + length == size;
+            ByteBuffer payload = readPayload(offset, last ? length : Math.min(length, STATS_PREFIX));
+            if (last) {
+                CRC32 crc = new CRC32();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+            }
+            BlockInfo info = new BlockInfo();
+            info.offset = offset;
+            info.length = HEADER + length;
+            if (!readStats(payload, info)) {
+                readStats(readPayload(offset, length), info);
+            }
+            blocks.add(info);
+            offset += HEADER + length;
+        }
+        return offset;
+    }
+
+    /** Decodes block statistics from {@code payload}; false if its robot dictionary runs past the buffer. */
+    private static boolean readStats(ByteBuffer payload, BlockInfo info) {
+        info.rows = payload.getInt();
+        info.minFinished = payload.getLong();
+        info.maxFinished = payload.getLong();
+        info.minCreated = payload.getLong();
+        info.maxCreated = payload.getLong();
+        info.priorityBits = payload.getInt();
+        info.outcomeBits = payload.getInt();
+        info.minDistance = payload.getInt();
+        info.maxDistance = payload.getInt();
+        int robotCount = payload.getInt();
+        info.robots = new String[robotCount];
+        for (int i = 0; i < robotCount; i++) {
+            if (payload.remaining() < 2 || payload.remaining() < 2 + payload.getShort(payload.position())) {
+                return false;
+            }
+            byte[] name = new byte[payload.getShort()];
+            payload.get(name);
+            info.robots[i] = new String(name, StandardCharsets.UTF_8);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,166 @@
+package application;
+
+import application.modules.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Carries the scheduler's backlog across a restart. {@link #capture} copies
+ * unfinished tasks and the charging order into the state before a snapshot;
+ * after loading, {@link #addRobots} and {@link #restoreTasks} put them back.
+ *
+ * Queued tasks return with their priority and creation time, so the dispatch
+ * queue ranks them as before. A task that was executing is rolled back to
+ * pending and queued again, so it runs again from the start. Books left IN_TRANSIT or off-shelf by a task
+ * that did not survive are rolled back to where the task found them.
+ */
+public class WarmRestart {
+    private final SystemState state;
+
+    public WarmRestart(SystemState state) {
+        this.state = state;
+    }
+
+    /** Records the unfinished tasks and charging order of {@code system} in {@code state}. */
+    public static void capture(SystemState state, UnifiedConcurrentSystem system) {
+        List<SystemState.TaskData> tasks = new ArrayList<>();
+        for (Task task : system.getUnfinishedTasks()) {
+            tasks.add(toData(task));
+        }
+        state.setTasks(tasks);
+        state.setChargingQueue(system.getChargingRobotIds());
+    }
+
+    static SystemState.TaskData toData(Task task) {
+        SystemState.TaskData data = new SystemState.TaskData();
+        data.setTaskId(task.getTaskId());
+        data.setTaskName(task.getTaskName());
+        data.setDescription(task.getDescription());
+        data.setPriority(String.valueOf(task.getPriority()));
+        data.setStatus(String.valueOf(task.getStatus()));
+        data.setAssignedTo(task.getAssignedTo());
+        data.setBookId(task.getRelatedBook() == null ? null : task.getRelatedBook().getId());
+        data.setDurationSeconds(task.getTaskDurationSeconds());
+        data.setBatteryRequired(task.getBatteryRequired());
+        data.setCreatedAt(task.getCreatedAtMillis());
+        return data;
+    }
+
+    /** Adds the robots to {@code system}, those that were charging or queued to charge first and in order. */
+    public void addRobots(UnifiedConcurrentSystem system, Map<String, Robot> robots) {
+        Set<String> charging = new LinkedHashSet<>();
+        for (String id : state.getChargingQueue()) {
+            Robot robot = robots.get(id);
+            if (robot != null && charging.add(id)) {
+                system.addRobot(robot, true);
+            }
+        }
+        for (Robot robot : robots.values()) {
+            if (!charging.contains(robot.getId())) {
+                system.addRobot(robot);
+            }
+        }
+    }
+
+    /**
+     * Queues the saved tasks on {@code system} and rolls back books whose task
+     * was lost. Returns the restored tasks, interrupted ones first.
+     */
+    public List<Task> restoreTasks(UnifiedConcurrentSystem system, Map<String, Book> books,
+                                   Map<String, Shelf> shelves) {
+        List<Task> interrupted = new ArrayList<>();
+        List<Task> queued = new ArrayList<>();
+        Set<Book> referenced = new HashSet<>();
+        for (SystemState.TaskData data : state.getTasks()) {
+            boolean running = String.valueOf(TaskStatus.IN_PROGRESS).equals(data.getStatus());
+            if (!running && !String.valueOf(TaskStatus.PENDING).equals(data.getStatus())) {
+                continue;
+            }
+            Book book = data.getBookId() == null ? null : books.get(data.getBookId());
+            if (data.getBookId() != null && book == null) {
+                Logger.logSystem("WARN", "Dropping task " + data.getTaskId() + ": book " + data.getBookId() + " no longer exists");
+                continue;
+            }
+            Task task = toTask(data);
+            task.setRelatedBook(book);
+            if (book != null) {
+                referenced.add(book);
+            }
+            (running ? interrupted : queued).add(task);
+        }
+        int rolledBack = rollBackOrphans(books, shelves, referenced);
+
+        List<Task> restored = new ArrayList<>(interrupted);
+        restored.addAll(queued);
+        if (!restored.isEmpty()) {
+            system.addTasks(restored);
+        }
+        if (!restored.isEmpty() || rolledBack > 0) {
+            Logger.logSystem("INFO", "Warm restart: " + queued.size() + " queued and " + interrupted.size()
+                + " interrupted tasks restored, " + state.getChargingQueue().size() + " robots back in the charging order, "
+                + rolledBack + " books rolled back");
+        }
+        return restored;
+    }
+
+    private static Task toTask(SystemState.TaskData data) {
+        TaskPriority priority;
+        try {
+            priority = TaskPriority.valueOf(data.getPriority());
+        } catch (Exception e) {
+            priority = TaskPriority.MEDIUM;
+        }
+        LocalDateTime createdAt = data.getCreatedAt() > 0
+            ? LocalDateTime.ofInstant(Instant.ofEpochMilli(data.getCreatedAt()), ZoneId.systemDefault())
+            : LocalDateTime.now();
+        Task task = new Task(data.getTaskId(), data.getTaskName(), data.getDescription(), priority,
+            data.getAssignedTo(), createdAt);
+        if (data.getDurationSeconds() > 0) {
+            task.setTaskDurationSeconds(data.getDurationSeconds());
+        }
+        if (data.getBatteryRequired() > 0) {
+            task.setBatteryRequired(data.getBatteryRequired());
+        }
+        return task;
+    }
+
+    /**
+     * A return leaves its book IN_TRANSIT towards a shelf; without the task the
+     * user still has it, so it goes back to TAKEN. A fetch takes its book off
+     * the shelf; without the task it goes back onto a shelf of its category.
+     */
+    private static int rollBackOrphans(Map<String, Book> books, Map<String, Shelf> shelves, Set<Book> referenced) {
+        int rolledBack = 0;
+        for (Book book : books.values()) {
+            if (referenced.contains(book)) {
+                continue;
+            }
+            if (book.getStatus() == Book.BookStatus.IN_TRANSIT && book.getShelfId() != null) {
+                book.setShelfId(null);
+                book.setStatus(Book.BookStatus.TAKEN);
+                rolledBack++;
+            } else if (book.getStatus() != Book.BookStatus.TAKEN && book.getShelfId() == null) {
+                Shelf shelf = shelfFor(book, shelves);
+                if (shelf == null) {
+                    Logger.logSystem("WARN", "No shelf with space to roll back " + book.getId());
+                    continue;
+                }
+                shelf.addBook(book);
+                book.setStatus(Book.BookStatus.AVAILABLE);
+                rolledBack++;
+            }
+        }
+        return rolledBack;
+    }
+
+    private static Shelf shelfFor(Book book, Map<String, Shelf> shelves) {
+        for (Shelf shelf : shelves.values()) {
+            if (shelf.hasSpace() && shelf.getCategory().equalsIgnoreCase(book.getCategory())) {
+                return shelf;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,154 @@
+package application.modules;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost assignment of rows to columns (the Hungarian method, in its
+ * shortest augmenting path form). Rows are added one at a time, each by a
+ * Dijkstra search that scans the unvisited columns once per step and stops
+ * at the first free column it reaches. When rows have different favourites
+ * that is a step or two; when every row wants the same few columns each new
+ * row displaces those before it, so callers should pose the problem from
+ * the side whose preferences differ. The smaller side is used as rows.
+ *
+ * Buffers are kept between calls and only grow. Not thread-safe.
+ */
+public class AssignmentSolver {
+    private static final double INF = Double.MAX_VALUE;
+
+    private double[] u = new double[0];
+    private double[] v = new double[0];
+    private double[] minv = new double[0];
+    private int[] p = new int[0];
+    private int[] way = new int[0];
+    private int[] remaining = new int[0];
+    private int[] rowColumn = new int[0];
+    private int[] visitedRows = new int[0];
+    private int[] visitedColumns = new int[0];
+    private double[] transposed = new double[0];
+
+    /**
+     * Assigns each row of the {@code rows} x {@code cols} matrix {@code cost}
+     * (row-major) a distinct column, minimizing the total. Returns the column
+     * for each row, or -1 for the rows left over when there are fewer columns.
+     */
+    public int[] solve(double[] cost, int rows, int cols) {
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+        if (rows == 0 || cols == 0) {
+            return assignment;
+        }
+        if (rows <= cols) {
+            run(cost, rows, cols);
+            for (int j = 1; j <= cols; j++) {
+                if (p[j] != 0) {
+                    assignment[p[j] - 1] = j - 1;
+                }
+            }
+        } else {
+            if (transposed.length < cost.length) {
+                transposed = new double[cost.length];
+            }
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    transposed[j * rows + i] = cost[i * cols + j];
+                }
+            }
+            run(transposed, cols, rows);
+            for (int j = 1; j <= rows; j++) {
+                if (p[j] != 0) {
+                    assignment[j - 1] = p[j] - 1;
+                }
+            }
+        }
+        return assignment;
+    }
+
+    /** Solves with n <= m; afterwards p[j] is the 1-based row given column j, or 0. */
+    private void run(double[] a, int n, int m) {
+        ensure(n, m);
+        Arrays.fill(u, 0, n + 1, 0);
+        Arrays.fill(v, 0, m + 1, 0);
+        Arrays.fill(p, 0, m + 1, 0);
+        Arrays.fill(rowColumn, 0, n + 1, 0);
+        for (int f = 1; f <= n; f++) {
+            // Dijkstra over reduced costs from row f; only unvisited columns
+            // are scanned, swapped out of the remaining list as they are reached.
+            int remainingCount = m;
+            for (int j = 0; j < m; j++) {
+                remaining[j] = j + 1;
+            }
+            Arrays.fill(minv, 0, m + 1, INF);
+            int visitedCount = 0;
+            double reached = 0;
+            int i = f;
+            int sink = 0;
+            while (sink == 0) {
+                visitedRows[visitedCount] = i;
+                int row = (i - 1) * m - 1;
+                double ui = u[i];
+                double lowest = INF;
+                int best = -1;
+                for (int k = 0; k < remainingCount; k++) {
+                    int j = remaining[k];
+                    double r = reached + a[row + j] - ui - v[j];
+                    if (r < minv[j]) {
+                        minv[j] = r;
+                        way[j] = i;
+                    }
+                    // On a tie a free column ends the search here; costs
+                    // that differ by a row constant tie a lot.
+                    if (minv[j] < lowest || (minv[j] == lowest && p[j] == 0)) {
+                        lowest = minv[j];
+                        best = k;
+                    }
+                }
+                reached = lowest;
+                int j = remaining[best];
+                remaining[best] = remaining[--remainingCount];
+                visitedColumns[visitedCount++] = j;
+                if (p[j] == 0) {
+                    sink = j;
+                } else {
+                    i = p[j];
+                }
+            }
+            u[f] += reached;
+            for (int k = 0; k < visitedCount; k++) {
+                int j = visitedColumns[k];
+                int r = visitedRows[k];
+                if (r != f) {
+                    u[r] += reached - minv[rowColumn[r]];
+                }
+                v[j] -= reached - minv[j];
+            }
+            int j = sink;
+            while (true) {
+                int r = way[j];
+                p[j] = r;
+                int previous = rowColumn[r];
+                rowColumn[r] = j;
+                if (r == f) {
+                    break;
+                }
+                j = previous;
+            }
+        }
+    }
+
+    private void ensure(int n, int m) {
+        if (u.length < n + 1) {
+            u = new double[n + 1];
+            rowColumn = new int[n + 1];
+        }
+        if (v.length < m + 1) {
+            v = new double[m + 1];
+            minv = new double[m + 1];
+            p = new int[m + 1];
+            way = new int[m + 1];
+            remaining = new int[m];
+            visitedRows = new int[m];
+            visitedColumns = new int[m];
+        }
+    }
+}
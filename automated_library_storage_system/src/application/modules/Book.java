@@ -11,10 +11,28 @@ public class Book {
     private String title;
     private String author;
     private String category;
-    private String shelfId;
-    private BookStatus status;
+    private volatile Record head;
     private String assignedRobotId;
 
+    /** Persisted part of a book as of one point on the {@link StateEpoch} clock. */
+    public static final class Record {
+        public final BookStatus status;
+        public final String shelfId;
+        public final long version;
+        private final Record prev;
+
+        Record(BookStatus status, String shelfId, Record prev) {
+            this(status, shelfId, prev, StateEpoch.next());
+        }
+
+        Record(BookStatus status, String shelfId, Record prev, long version) {
+            this.status = status;
+            this.shelfId = shelfId;
+            this.version = version;
+            this.prev = StateEpoch.retaining() ? prev : null;
+        }
+    }
+
     public Book(String id, String title, String author, String category) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("id is null/empty");
@@ -32,10 +50,19 @@ public class Book {
         this.title = title;
         this.author = author;
         this.category = category;
-        this.status = BookStatus.AVAILABLE;
+        this.head = new Record(BookStatus.AVAILABLE, null, null);
         application.Logger.logStorage(id, "INFO", "Book created: " + title + " by " + author + " [" + category + "]");
     }
 
+    /** Restores a persisted book in bulk loads: no validation or log line, fields as saved. */
+    public Book(String id, String title, String author, String category, BookStatus status, String shelfId) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.category = category;
+        this.head = new Record(status, shelfId, null);
+    }
+
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
     
@@ -48,24 +75,42 @@ public class Book {
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
     
-    public String getShelfId() { return shelfId; }
-    public void setShelfId(String shelfId) { this.shelfId = shelfId; }
+    public String getShelfId() { return head.shelfId; }
+    public synchronized void setShelfId(String shelfId) { head = new Record(head.status, shelfId, head); }
+
+    /** Shelf change stamped with the {@code version} of the shelf record it belongs to. */
+    synchronized void setShelfId(String shelfId, long version) { head = new Record(head.status, shelfId, head, version); }
     
-    public BookStatus getStatus() { return status; }
+    public BookStatus getStatus() { return head.status; }
     public void setStatus(BookStatus status) { 
-        this.status = status;
+        synchronized (this) {
+            head = new Record(status, head.shelfId, head);
+        }
         application.Logger.logStorage(id, "INFO", "Book status changed to: " + status);
+        StateChanges.book(this);
     }
     
     public String getAssignedRobotId() { return assignedRobotId; }
     public void setAssignedRobotId(String assignedRobotId) { this.assignedRobotId = assignedRobotId; }
     
+    /** Clock value of the latest status or shelf change. */
+    public long getVersion() { return head.version; }
+
+    /** The record current at {@code epoch}, or the oldest one kept if the book changed since. */
+    public synchronized Record recordAt(long epoch) {
+        Record r = head;
+        while (r.version > epoch && r.prev != null) {
+            r = r.prev;
+        }
+        return r;
+    }
+    
     public boolean isAvailable() {
-        return status == BookStatus.AVAILABLE;
+        return head.status == BookStatus.AVAILABLE;
     }
 
     @Override
     public String toString() {
-        return title + " by " + author + " [" + category + ", " + status + "]";
+        return title + " by " + author + " [" + category + ", " + head.status + "]";
     }
 }
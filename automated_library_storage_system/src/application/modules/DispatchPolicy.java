@@ -0,0 +1,9 @@
+package application.modules;
+
+/** How a dispatch pass pairs queued tasks with available robots. */
+public enum DispatchPolicy {
+    /** Tasks in dispatch order, each taking the robot with the least charge that covers it. */
+    GREEDY,
+    /** One assignment of the whole window minimizing trip time, charge stops and priority cost. */
+    OPTIMAL
+}
@@ -45,6 +45,11 @@ public class Library {
 	        }
 	    }
 
+    /** Adds restored books without a line per book; one summary is logged by the caller. */
+    public void addBooks(java.util.Collection<Book> books) {
+        this.books.addAll(books);
+    }
+
     public void addShelf(Shelf shelf) {
 	        try {
 	            if (shelf != null) {
@@ -62,6 +67,11 @@ public class Library {
 	        }
 	    }
 
+    /** Adds restored shelves without a line per shelf. */
+    public void addShelves(java.util.Collection<Shelf> shelves) {
+        this.shelves.addAll(shelves);
+    }
+
     public void addRobot(Robot robot) {
 	        try {
 	            if (robot != null) {
@@ -0,0 +1,182 @@
+package application.modules;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@link DispatchPolicy#OPTIMAL} pairing of available robots with a
+ * window of queued tasks, solved as one assignment problem. The cost of
+ * giving a task to a robot, in seconds of fleet time:
+ *
+ * - the trip, {@link Task#getTaskDurationSeconds()} (the shelf's distance);
+ * - {@link #CHARGE_STOP_SECONDS} if the robot would come back below its
+ *   battery threshold and go to charge;
+ * - less {@link #PRIORITY_SECONDS} per priority level, plus
+ *   {@link #POSITION_SECONDS} per place in dispatch order, which carries
+ *   aging into the cost.
+ *
+ * A robot that cannot afford a task gets {@link #INFEASIBLE}, which the
+ * solver only picks when nothing else is left; such pairs are dropped.
+ * Buffers are kept between passes. Not thread-safe; the owner synchronizes.
+ */
+public class OptimalDispatch {
+    public static final double CHARGE_STOP_SECONDS = 60;
+    public static final double PRIORITY_SECONDS = 30;
+    public static final double POSITION_SECONDS = 0.5;
+    static final double INFEASIBLE = 1e9;
+
+    private final AssignmentSolver solver = new AssignmentSolver();
+    private double[] cost = new double[0];
+    private double[] compact = new double[0];
+    private double[] scratch = new double[0];
+    private float[] charge = new float[0];
+    private float[] reserve = new float[0];
+    private int[] robotIndex = new int[0];
+    private int[] taskIndex = new int[0];
+    private boolean[] candidate = new boolean[0];
+
+    /**
+     * Returns, for each robot, the index in {@code tasks} it should take, or
+     * -1 if it gets none. {@code tasks} is in dispatch order.
+     */
+    public int[] assign(List<Robot> robots, List<Task> tasks) {
+        int rows = robots.size(), cols = tasks.size();
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+        ensure(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            Robot robot = robots.get(i);
+            charge[i] = robot.getCurrentChargePercent();
+            reserve[i] = robot.getBatteryThreshold();
+        }
+        for (int j = 0; j < cols; j++) {
+            Task task = tasks.get(j);
+            float required = task.getBatteryRequired();
+            double base = task.getTaskDurationSeconds()
+                    - PRIORITY_SECONDS * task.getPriority().ordinal() + POSITION_SECONDS * j;
+            for (int i = 0, cell = j; i < rows; i++, cell += cols) {
+                float left = charge[i] - required;
+                cost[cell] = left < 0 ? INFEASIBLE : left < reserve[i] ? base + CHARGE_STOP_SECONDS : base;
+            }
+        }
+
+        // Some optimal assignment gives every robot one of its n cheapest
+        // affordable tasks, n being the number of robots, since the others
+        // hold at most n - 1 of them; only those tasks go to the solver.
+        // Robots that can afford nothing are left out.
+        Arrays.fill(candidate, 0, cols, false);
+        int n = 0;
+        for (int i = 0; i < rows; i++) {
+            int row = i * cols;
+            int feasible = 0;
+            for (int j = 0; j < cols; j++) {
+                if (cost[row + j] < INFEASIBLE) {
+                    scratch[feasible++] = cost[row + j];
+                }
+            }
+            if (feasible == 0) {
+                continue;
+            }
+            robotIndex[n++] = i;
+            double limit = feasible <= rows ? INFEASIBLE : select(scratch, feasible, rows - 1);
+            for (int j = 0; j < cols; j++) {
+                if (cost[row + j] <= limit && cost[row + j] < INFEASIBLE) {
+                    candidate[j] = true;
+                }
+            }
+        }
+        if (n == 0) {
+            return assignment;
+        }
+        int k = 0;
+        for (int j = 0; j < cols; j++) {
+            if (candidate[j]) {
+                taskIndex[k++] = j;
+            }
+        }
+
+        // Tasks are the rows and robots the columns, padded with dummy robots
+        // for the tasks left waiting. A dummy costs what the n-th cheapest
+        // task does, so tasks below it want a robot and the rest a dummy, and
+        // augmenting paths stay short. The other way round every robot wants
+        // the same few tasks and each new row displaces all the others.
+        int width = Math.max(n, k);
+        double waiting = 0;
+        if (k > n) {
+            for (int b = 0; b < k; b++) {
+                double least = INFEASIBLE;
+                for (int a = 0; a < n; a++) {
+                    least = Math.min(least, cost[robotIndex[a] * cols + taskIndex[b]]);
+                }
+                scratch[b] = least;
+            }
+            waiting = select(scratch, k, n);
+        }
+        if (compact.length < k * width) {
+            compact = new double[k * width];
+        }
+        for (int b = 0; b < k; b++) {
+            int row = b * width;
+            for (int a = 0; a < n; a++) {
+                compact[row + a] = cost[robotIndex[a] * cols + taskIndex[b]];
+            }
+            Arrays.fill(compact, row + n, row + width, waiting);
+        }
+        int[] chosen = solver.solve(compact, k, width);
+        for (int b = 0; b < k; b++) {
+            int a = chosen[b];
+            if (a >= 0 && a < n && compact[b * width + a] < INFEASIBLE) {
+                assignment[robotIndex[a]] = taskIndex[b];
+            }
+        }
+        return assignment;
+    }
+
+    /** The {@code rank}-th smallest of the first {@code size} values; reorders them. */
+    private static double select(double[] values, int size, int rank) {
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            double pivot = values[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double t = values[i];
+                    values[i] = values[j];
+                    values[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (rank <= j) {
+                hi = j;
+            } else if (rank >= i) {
+                lo = i;
+            } else {
+                return values[rank];
+            }
+        }
+        return values[rank];
+    }
+
+    private void ensure(int rows, int cols) {
+        if (cost.length < rows * cols) {
+            cost = new double[rows * cols];
+        }
+        if (charge.length < rows) {
+            charge = new float[rows];
+            reserve = new float[rows];
+            robotIndex = new int[rows];
+        }
+        if (scratch.length < cols) {
+            scratch = new double[cols];
+            taskIndex = new int[cols];
+            candidate = new boolean[cols];
+        }
+    }
+}
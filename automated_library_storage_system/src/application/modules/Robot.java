@@ -7,12 +7,53 @@ import application.modules.RobotExceptions.TaskNotFoundException;
 public class Robot extends Resource {
     private static final int MAX_BOOKS_PER_ROBOT = 1;
     
-    private float currentChargePercent = 100;
+    private volatile Record head = new Record(100, false, null);
+    private volatile ChargeSession session;
     private float batteryThreshold = 15.0f;
-    private boolean isDocked = false;
     private Book carryingBook = null;
     private String currentTaskId = null;
 
+    /**
+     * Charge level and docking as of one point on the {@link StateEpoch}
+     * clock. While a charge is in progress it holds the level it started at.
+     */
+    public static final class Record {
+        public final float chargePercent;
+        public final boolean docked;
+        public final long version;
+        private final Record prev;
+
+        Record(float chargePercent, boolean docked, Record prev) {
+            this.chargePercent = chargePercent;
+            this.docked = docked;
+            this.version = StateEpoch.next();
+            this.prev = StateEpoch.retaining() ? prev : null;
+        }
+    }
+
+    /**
+     * A charge in progress: the level at {@code startMillis}, rising at a
+     * fixed rate until it reaches {@code target}. The charge is worked out
+     * when read, so nothing ticks while a robot charges.
+     */
+    private static final class ChargeSession {
+        final long startMillis;
+        final float startPercent;
+        final float target;
+        final float percentPerMilli;
+
+        ChargeSession(long startMillis, float startPercent, float target, float percentPerMilli) {
+            this.startMillis = startMillis;
+            this.startPercent = startPercent;
+            this.target = target;
+            this.percentPerMilli = percentPerMilli;
+        }
+
+        float chargeAt(long millis) {
+            return Math.min(target, startPercent + Math.max(0, millis - startMillis) * percentPerMilli);
+        }
+    }
+
     public Robot(String id, float executionDuration) {
         super(id, executionDuration);
     }
@@ -22,18 +63,45 @@ public class Robot extends Resource {
     }
 
     public boolean needsCharging(float thresholdPercent) {
-        return currentChargePercent < thresholdPercent;
+        return getCurrentChargePercent() < thresholdPercent;
     }
 
     public void dock() {
-        isDocked = true;
+        synchronized (this) {
+            head = new Record(head.chargePercent, true, head);
+        }
         application.Logger.logResources(getId(), "INFO", "Docked for charging");
+        StateChanges.robot(this);
+    }
+
+    /**
+     * Docks and starts charging towards {@code target} at
+     * {@code percentPerSecond}. Returns the milliseconds until it gets there;
+     * {@link #undock()} then records the charge reached.
+     */
+    public long startCharging(float target, float percentPerSecond) {
+        float start;
+        synchronized (this) {
+            start = head.chargePercent;
+            session = new ChargeSession(System.currentTimeMillis(), start, Math.max(start, target), percentPerSecond / 1000f);
+            head = new Record(start, true, head);
+        }
+        application.Logger.logResources(getId(), "INFO", "Docked for charging");
+        StateChanges.robot(this);
+        return (long) Math.ceil(Math.max(0, target - start) * 1000 / percentPerSecond);
     }
 
+    /** Undocks with the charge reached so far, or fully charged if no charge was started. */
     public void undock() {
-        isDocked = false;
-        currentChargePercent = 100;
-        application.Logger.logResources(getId(), "INFO", "Undocked - charged to 100%");
+        float charge;
+        synchronized (this) {
+            ChargeSession s = session;
+            charge = s == null ? 100 : s.chargeAt(System.currentTimeMillis());
+            session = null;
+            head = new Record(charge, false, head);
+        }
+        application.Logger.logResources(getId(), "INFO", () -> "Undocked - charged to " + charge + "%");
+        StateChanges.robot(this);
     }
 
     public void pickUpBook(Book book) {
@@ -87,11 +155,31 @@ public class Robot extends Resource {
     }
 
     public float getCurrentChargePercent() {
-        return currentChargePercent;
+        ChargeSession s = session;
+        return s == null ? head.chargePercent : s.chargeAt(System.currentTimeMillis());
     }
 
+    /** Sets the charge outright, ending any charge in progress. */
     public void setCurrentChargePercent(float currentChargePercent) {
-        this.currentChargePercent = currentChargePercent;
+        synchronized (this) {
+            session = null;
+            head = new Record(currentChargePercent, head.docked, head);
+        }
+        StateChanges.robot(this);
+    }
+
+    /** Clock value of the latest charge or docking change. */
+    public long getVersion() {
+        return head.version;
+    }
+
+    /** The record current at {@code epoch}, or the oldest one kept if the charge changed since. */
+    public synchronized Record recordAt(long epoch) {
+        Record r = head;
+        while (r.version > epoch && r.prev != null) {
+            r = r.prev;
+        }
+        return r;
     }
 
     public float getBatteryThreshold() {
@@ -103,11 +191,11 @@ public class Robot extends Resource {
     }
 
     public boolean isDocked() {
-        return isDocked;
+        return head.docked;
     }
 
-    public void setDocked(boolean docked) {
-        isDocked = docked;
+    public synchronized void setDocked(boolean docked) {
+        head = new Record(head.chargePercent, docked, head);
     }
 
     public Book getCarryingBook() {
@@ -1,6 +1,7 @@
 
 package application.modules;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Shelf {
@@ -9,7 +10,24 @@ public class Shelf {
     private String category;
     private int distance;
     private int maxCapacity;
-    private List<Book> books = new ArrayList<>();
+    private volatile Record head = new Record(Collections.emptyList(), null);
+
+    /** Immutable book list of a shelf as of one point on the {@link StateEpoch} clock. */
+    public static final class Record {
+        public final List<Book> books;
+        public final long version;
+        private final Record prev;
+
+        Record(List<Book> books, Record prev) {
+            this(books, prev, StateEpoch.next());
+        }
+
+        Record(List<Book> books, Record prev, long version) {
+            this.books = books;
+            this.version = version;
+            this.prev = StateEpoch.retaining() ? prev : null;
+        }
+    }
 
     public Shelf(String id, String name, String category, int distance, int maxCapacity) {
         this.id = id;
@@ -36,13 +54,25 @@ public class Shelf {
     public int getMaxCapacity() { return maxCapacity; }
     public void setMaxCapacity(int maxCapacity) { this.maxCapacity = maxCapacity; }
     
-    public List<Book> getBooks() { return new ArrayList<>(books); }
+    /** Clock value of the latest add or remove. */
+    public long getVersion() { return head.version; }
+
+    /** The record current at {@code epoch}, or the oldest one kept if the shelf changed since. */
+    public synchronized Record recordAt(long epoch) {
+        Record r = head;
+        while (r.version > epoch && r.prev != null) {
+            r = r.prev;
+        }
+        return r;
+    }
+    
+    public List<Book> getBooks() { return new ArrayList<>(head.books); }
     
-    public int getCurrentCount() { return books.size(); }
+    public int getCurrentCount() { return head.books.size(); }
     
-    public boolean isFull() { return books.size() >= maxCapacity; }
+    public boolean isFull() { return head.books.size() >= maxCapacity; }
     
-    public boolean hasSpace() { return books.size() < maxCapacity; }
+    public boolean hasSpace() { return head.books.size() < maxCapacity; }
     
     public int getTaskDurationSeconds() {
         return distance;
@@ -52,7 +82,7 @@ public class Shelf {
         return distance / 2.0f;
     }
 
-    public void addBook(Book book) {
+    public synchronized void addBook(Book book) {
         if (book == null) throw new IllegalArgumentException("book is null");
         if (isFull()) {
             application.Logger.logStorage(id, "ERROR", "Shelf full, cannot add: " + book.getTitle());
@@ -66,31 +96,58 @@ public class Shelf {
                 "Book category '" + book.getCategory() + "' does not match shelf category '" + 
                 this.category + "'");
         }
+        List<Book> books = new ArrayList<>(head.books.size() + 1);
+        books.addAll(head.books);
         books.add(book);
-        book.setShelfId(this.id);
+        move(book, Collections.unmodifiableList(books), this.id);
+        StateChanges.shelf(this, book, true);
         application.Logger.logStorage(id, "INFO", "Book added: " + book.getTitle() + 
             " [" + book.getCategory() + "] (" + books.size() + "/" + maxCapacity + ")");
     }
 
+    /**
+     * Sets the contents in one step for bulk loads. The books must already
+     * name this shelf; capacity and category are the caller's to check, and
+     * nothing is logged or announced to {@link StateChanges} listeners.
+     */
+    public synchronized void restoreBooks(List<Book> books) {
+        head = new Record(Collections.unmodifiableList(new ArrayList<>(books)), head);
+    }
+
+    /**
+     * Installs the new shelf record and the book's new shelf id with one
+     * stamp drawn under both monitors, so a snapshot sees the move in both
+     * entities or in neither.
+     */
+    private void move(Book book, List<Book> books, String shelfId) {
+        synchronized (book) {
+            long version = StateEpoch.next();
+            head = new Record(books, head, version);
+            book.setShelfId(shelfId, version);
+        }
+    }
+
     public void showBooks() {
-        for (Book b : books) {
+        for (Book b : head.books) {
             System.out.println(b);
         }
     }
 
-    public void removeBook(Book book) throws RobotExceptions.InvalidOperationException {
+    public synchronized void removeBook(Book book) throws RobotExceptions.InvalidOperationException {
         if (book == null) throw new IllegalArgumentException("book is null");
+        List<Book> books = new ArrayList<>(head.books);
         boolean removed = books.remove(book);
         if (!removed) {
             application.Logger.logStorage(id, "ERROR", "Remove failed, not found: " + book.getTitle());
             throw new RobotExceptions.InvalidOperationException("Book not on shelf: " + book.getTitle());
         }
-        book.setShelfId(null);
+        move(book, Collections.unmodifiableList(books), null);
+        StateChanges.shelf(this, book, false);
         application.Logger.logStorage(id, "INFO", "Book removed: " + book.getTitle() + " (" + books.size() + "/" + maxCapacity + ")");
     }
     
     public Book findBookById(String bookId) {
-        for (Book book : books) {
+        for (Book book : head.books) {
             if (book.getId().equals(bookId)) {
                 return book;
             }
@@ -99,7 +156,7 @@ public class Shelf {
     }
     
     public Book findBookByTitle(String title) {
-        for (Book book : books) {
+        for (Book book : head.books) {
             if (book.getTitle().equalsIgnoreCase(title)) {
                 return book;
             }
@@ -0,0 +1,86 @@
+package application.modules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hook through which the entities report mutations that must survive a
+ * restart. Nothing is reported until a listener is installed, so entities
+ * built outside the running system (tests, startup) stay silent.
+ * Listeners are kept in a copy-on-write array read without locking.
+ */
+public final class StateChanges {
+
+    public interface Listener {
+        void bookChanged(Book book);
+
+        void shelfChanged(Shelf shelf, Book book, boolean added);
+
+        void shelfAdded(Shelf shelf);
+
+        void stationAdded(ChargingStation station);
+
+        void robotChanged(Robot robot);
+
+        void taskChanged(Task task);
+    }
+
+    private static final Listener[] NONE = new Listener[0];
+    private static volatile Listener[] listeners = NONE;
+
+    private StateChanges() {
+    }
+
+    public static synchronized void addListener(Listener l) {
+        Listener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = l;
+        listeners = updated;
+    }
+
+    public static synchronized void removeListener(Listener l) {
+        List<Listener> updated = new ArrayList<>(Arrays.asList(listeners));
+        updated.remove(l);
+        listeners = updated.isEmpty() ? NONE : updated.toArray(NONE);
+    }
+
+    public static synchronized void clearListeners() {
+        listeners = NONE;
+    }
+
+    public static void book(Book book) {
+        for (Listener l : listeners) {
+            l.bookChanged(book);
+        }
+    }
+
+    static void shelf(Shelf shelf, Book book, boolean added) {
+        for (Listener l : listeners) {
+            l.shelfChanged(shelf, book, added);
+        }
+    }
+
+    public static void shelfAdded(Shelf shelf) {
+        for (Listener l : listeners) {
+            l.shelfAdded(shelf);
+        }
+    }
+
+    public static void stationAdded(ChargingStation station) {
+        for (Listener l : listeners) {
+            l.stationAdded(station);
+        }
+    }
+
+    public static void robot(Robot robot) {
+        for (Listener l : listeners) {
+            l.robotChanged(robot);
+        }
+    }
+
+    public static void task(Task task) {
+        for (Listener l : listeners) {
+            l.taskChanged(task);
+        }
+    }
+}
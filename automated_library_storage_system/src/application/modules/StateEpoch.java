@@ -0,0 +1,44 @@
+package application.modules;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global clock stamping the copy-on-write records of Book, Shelf and Robot.
+ *
+ * A snapshot calls {@link #open()} and reads every entity as of the returned
+ * epoch: the newest record stamped at or before it. While a snapshot is open,
+ * new records keep a link to the one they replace so the older view stays
+ * reachable; otherwise the link is dropped and the old record becomes garbage.
+ * A record is stamped before the open count is checked and the count is
+ * raised before the epoch is read, so any record newer than an open epoch is
+ * guaranteed to keep its predecessor.
+ */
+public final class StateEpoch {
+    /** Epoch that reads the latest record of every entity. */
+    public static final long LATEST = Long.MAX_VALUE;
+
+    private static final AtomicLong clock = new AtomicLong();
+    private static final AtomicInteger open = new AtomicInteger();
+
+    private StateEpoch() {
+    }
+
+    static long next() {
+        return clock.incrementAndGet();
+    }
+
+    static boolean retaining() {
+        return open.get() > 0;
+    }
+
+    /** Starts a snapshot and returns its epoch; pair with {@link #close()}. */
+    public static long open() {
+        open.incrementAndGet();
+        return clock.get();
+    }
+
+    public static void close() {
+        open.decrementAndGet();
+    }
+}
@@ -2,6 +2,7 @@ package application.modules;
 
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,6 +21,11 @@ public class Task {
     private Book relatedBook;
     private int taskDurationSeconds = 15;
     private float batteryRequired = 7.5f;
+    private long startedAtMillis;
+    private long finishedAtMillis;
+    private String executedBy;
+    private int shelfDistance;
+    private float batteryDrained;
     
     public Task(String taskId, String taskName, String description, TaskPriority priority, String assignedTo) {
         this.taskId = taskId;
@@ -33,6 +39,21 @@ public class Task {
         this.logEntries = new ArrayList<>();
         logActivity("TASK_CREATED", "Task created and assigned to " + assignedTo);
     }
+
+    /** Re-creates a persisted task as pending, keeping its original creation time. */
+    public Task(String taskId, String taskName, String description, TaskPriority priority, String assignedTo,
+                LocalDateTime createdAt) {
+        this.taskId = taskId;
+        this.taskName = taskName;
+        this.description = description;
+        this.priority = priority;
+        this.status = TaskStatus.PENDING;
+        this.assignedTo = assignedTo;
+        this.createdAt = createdAt;
+        this.dueDate = createdAt.plusDays(7);
+        this.logEntries = new ArrayList<>();
+        logActivity("TASK_RESTORED", "Task restored after restart, created " + createdAt);
+    }
     
     public Book getRelatedBook() {
         return relatedBook;
@@ -61,7 +82,9 @@ public class Task {
     public void startTask() {
         if (status == TaskStatus.PENDING) {
             status = TaskStatus.IN_PROGRESS;
+            startedAtMillis = System.currentTimeMillis();
             logActivity("TASK_STARTED", "Task started by " + assignedTo);
+            StateChanges.task(this);
         } else {
             logActivity("ERROR", "Cannot start task - current status: " + status);
         }
@@ -71,7 +94,9 @@ public class Task {
         if (status == TaskStatus.IN_PROGRESS) {
             status = TaskStatus.COMPLETED;
             completedAt = LocalDateTime.now();
+            finishedAtMillis = System.currentTimeMillis();
             logActivity("TASK_COMPLETED", "Task completed by " + assignedTo);
+            StateChanges.task(this);
         } else {
             logActivity("ERROR", "Cannot complete task - current status: " + status);
         }
@@ -79,7 +104,9 @@ public class Task {
 
     public void cancelTask() {
         status = TaskStatus.CANCELLED;
+        finishedAtMillis = System.currentTimeMillis();
         logActivity("TASK_CANCELLED", "Task cancelled");
+        StateChanges.task(this);
     }
 
     public void updatePriority(TaskPriority newPriority) {
@@ -129,6 +156,47 @@ public class Task {
         return createdAt;
     }
 
+    public long getCreatedAtMillis() {
+        return createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /** Epoch milliseconds when the task started executing, 0 if it never did. */
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    /** Epoch milliseconds when the task completed or was cancelled, 0 while unfinished. */
+    public long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+
+    /** Id of the robot that executed the task, null if none did. */
+    public String getExecutedBy() {
+        return executedBy;
+    }
+
+    public void setExecutedBy(String robotId) {
+        this.executedBy = robotId;
+    }
+
+    /** Distance of the shelf the task travels to, 0 if unknown. */
+    public int getShelfDistance() {
+        return shelfDistance;
+    }
+
+    public void setShelfDistance(int shelfDistance) {
+        this.shelfDistance = shelfDistance;
+    }
+
+    /** Battery percent actually drained by the task. */
+    public float getBatteryDrained() {
+        return batteryDrained;
+    }
+
+    public void setBatteryDrained(float batteryDrained) {
+        this.batteryDrained = batteryDrained;
+    }
+
     public LocalDateTime getDueDate() {
         return dueDate;
     }
@@ -0,0 +1,237 @@
+package application.modules;
+
+import java.util.*;
+
+/**
+ * Dispatch queue of pending tasks, ordered by priority and age.
+ *
+ * A task's rank rises by one {@link TaskPriority} level for every
+ * {@code agingMillis} it has waited since it was created, so a LOW task
+ * overtakes a fresh URGENT one after three aging periods and nothing
+ * starves. Because every waiting task ages at the same rate, the order
+ * between two tasks never changes while they wait: the heap key is simply
+ * createdAt - priority * agingMillis and is fixed at insertion. With aging
+ * off, tasks are ordered by priority, then age.
+ *
+ * A binary heap with each entry's position indexed by task, so add, poll and
+ * remove are O(log n) and contains is O(1). Not thread-safe; the owner
+ * synchronizes.
+ */
+public class TaskQueue {
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    private Entry[] heap = new Entry[64];
+    private int size;
+    private long sequence;
+    private long agingMillis;
+    private final Map<Task, Entry> index = new HashMap<>();
+    private final int[] depth = new int[PRIORITIES.length];
+
+    private static final class Entry {
+        final Task task;
+        final int priority;
+        final long createdAt;
+        final long seq;
+        long key;
+        int position;
+
+        Entry(Task task, long seq) {
+            this.task = task;
+            this.priority = task.getPriority().ordinal();
+            this.createdAt = task.getCreatedAtMillis();
+            this.seq = seq;
+        }
+    }
+
+    public TaskQueue(long agingMillis) {
+        this.agingMillis = Math.max(0, agingMillis);
+    }
+
+    public long getAgingMillis() {
+        return agingMillis;
+    }
+
+    /** Changes the aging rate and reorders the waiting tasks, O(n). */
+    public void setAgingMillis(long agingMillis) {
+        this.agingMillis = Math.max(0, agingMillis);
+        for (int i = 0; i < size; i++) {
+            heap[i].key = key(heap[i]);
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /** Adds {@code task}; false if it is already queued. */
+    public boolean add(Task task) {
+        if (index.containsKey(task)) {
+            return false;
+        }
+        Entry e = new Entry(task, sequence++);
+        e.key = key(e);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        e.position = size;
+        heap[size++] = e;
+        index.put(task, e);
+        depth[e.priority]++;
+        siftUp(e.position);
+        return true;
+    }
+
+    public void addAll(Collection<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /** The task to dispatch next, or null. */
+    public Task peek() {
+        return size == 0 ? null : heap[0].task;
+    }
+
+    public Task poll() {
+        if (size == 0) {
+            return null;
+        }
+        Task task = heap[0].task;
+        removeAt(0);
+        return task;
+    }
+
+    public boolean remove(Task task) {
+        Entry e = index.get(task);
+        if (e == null) {
+            return false;
+        }
+        removeAt(e.position);
+        return true;
+    }
+
+    public boolean contains(Task task) {
+        return index.containsKey(task);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Tasks waiting at {@code priority}, as created; aging does not move a task between counters. */
+    public int depth(TaskPriority priority) {
+        return depth[priority.ordinal()];
+    }
+
+    public Map<TaskPriority, Integer> depths() {
+        Map<TaskPriority, Integer> depths = new EnumMap<>(TaskPriority.class);
+        for (TaskPriority p : PRIORITIES) {
+            depths.put(p, depth[p.ordinal()]);
+        }
+        return depths;
+    }
+
+    /**
+     * The first {@code n} waiting tasks in dispatch order, left queued;
+     * O(n log n) however long the queue.
+     */
+    public List<Task> head(int n) {
+        List<Task> tasks = new ArrayList<>(Math.min(n, size));
+        if (size == 0 || n <= 0) {
+            return tasks;
+        }
+        // Walks the heap from the root: the next task is always the best child
+        // of one already taken.
+        PriorityQueue<Entry> frontier = new PriorityQueue<>(this::compare);
+        frontier.add(heap[0]);
+        while (tasks.size() < n && !frontier.isEmpty()) {
+            Entry e = frontier.poll();
+            tasks.add(e.task);
+            int child = 2 * e.position + 1;
+            if (child < size) {
+                frontier.add(heap[child]);
+            }
+            if (child + 1 < size) {
+                frontier.add(heap[child + 1]);
+            }
+        }
+        return tasks;
+    }
+
+    /** The waiting tasks in dispatch order; O(n log n). */
+    public List<Task> toList() {
+        Entry[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted, this::compare);
+        List<Task> tasks = new ArrayList<>(size);
+        for (Entry e : sorted) {
+            tasks.add(e.task);
+        }
+        return tasks;
+    }
+
+    private long key(Entry e) {
+        return agingMillis > 0 ? e.createdAt - e.priority * agingMillis : e.createdAt;
+    }
+
+    private int compare(Entry a, Entry b) {
+        int c = agingMillis > 0 ? Long.compare(a.key, b.key) : Integer.compare(b.priority, a.priority);
+        if (c == 0) {
+            // Equal ranks go to the higher priority, then the older task.
+            c = agingMillis > 0 ? Integer.compare(b.priority, a.priority) : Long.compare(a.key, b.key);
+        }
+        return c != 0 ? c : Long.compare(a.seq, b.seq);
+    }
+
+    private void removeAt(int i) {
+        Entry removed = heap[i];
+        index.remove(removed.task);
+        depth[removed.priority]--;
+        Entry last = heap[--size];
+        heap[size] = null;
+        if (i < size) {
+            last.position = i;
+            heap[i] = last;
+            siftDown(i);
+            siftUp(last.position);
+        }
+    }
+
+    private void siftUp(int i) {
+        Entry e = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Entry p = heap[parent];
+            if (compare(e, p) >= 0) {
+                break;
+            }
+            p.position = i;
+            heap[i] = p;
+            i = parent;
+        }
+        e.position = i;
+        heap[i] = e;
+    }
+
+    private void siftDown(int i) {
+        Entry e = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && compare(heap[right], heap[child]) < 0) {
+                child = right;
+            }
+            if (compare(e, heap[child]) <= 0) {
+                break;
+            }
+            heap[child].position = i;
+            heap[i] = heap[child];
+            i = child;
+        }
+        e.position = i;
+        heap[i] = e;
+    }
+}
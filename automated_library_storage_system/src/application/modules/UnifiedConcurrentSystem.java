@@ -2,7 +2,9 @@ package application.modules;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 
 public class UnifiedConcurrentSystem {
@@ -11,18 +13,30 @@ public class UnifiedConcurrentSystem {
     private final List<Robot> robots;
     private final List<String> activeCharging;
     private final List<ChargingRequest> chargingQueue;
-    private final List<Task> taskQueue;
+    private final TaskQueue taskQueue;
+    private final Map<Task, Robot> runningTasks;
     private final List<Robot> availableRobots;
     private final List<Robot> busyRobots;
-    private final ExecutorService chargingExecutor;
     private final ExecutorService taskExecutor;
-    private final ScheduledExecutorService queueProcessor;
+    // Completes charges when they are due and runs the charging watchdog.
+    private final ScheduledExecutorService chargingScheduler;
+    // Outstanding work only; finished futures are dropped on each submit.
     private final List<Future<?>> allFutures;
     private int totalCharged = 0;
     private int totalLeftChargingQueue = 0;
     private int totalTasksCompleted = 0;
     private int totalTasksFailed = 0;
     private final long maxWaitTimeMinutes = 15;
+    private static final long CHARGING_WATCHDOG_SECONDS = 30;
+    /** One percent per 100 ms. */
+    public static final float CHARGE_RATE_PERCENT_PER_SECOND = 10f;
+    /** A waiting task gains one priority level per minute. */
+    public static final long DEFAULT_TASK_AGING_MILLIS = 60_000;
+    /** Queued tasks considered per dispatch pass. */
+    public static final int DEFAULT_DISPATCH_WINDOW = 32;
+    private int dispatchWindow = DEFAULT_DISPATCH_WINDOW;
+    private DispatchPolicy dispatchPolicy = DispatchPolicy.GREEDY;
+    private final OptimalDispatch optimalDispatch = new OptimalDispatch();
 
     private List<ChargingStation> chargingStations;
     private int totalSlots;
@@ -33,23 +47,25 @@ public class UnifiedConcurrentSystem {
         this.robots = new ArrayList<>();
         this.activeCharging = new ArrayList<>();
         this.chargingQueue = new ArrayList<>();
-        this.taskQueue = new ArrayList<>();
+        this.taskQueue = new TaskQueue(DEFAULT_TASK_AGING_MILLIS);
+        this.runningTasks = new LinkedHashMap<>();
         this.availableRobots = new ArrayList<>();
         this.busyRobots = new ArrayList<>();
-        this.chargingExecutor = Executors.newFixedThreadPool(numChargingStations);
         this.taskExecutor = Executors.newFixedThreadPool(numAGVs);
-        this.queueProcessor = Executors.newScheduledThreadPool(1);
+        this.chargingScheduler = Executors.newScheduledThreadPool(1);
         this.allFutures = new ArrayList<>();
         this.chargingStations = new ArrayList<>();
         this.totalSlots = 0;
 
-        queueProcessor.scheduleAtFixedRate(() -> {
+        // Admission is driven by enqueue, slot release and station changes;
+        // this only catches what those missed and expires long waits.
+        chargingScheduler.scheduleWithFixedDelay(() -> {
             try {
-                processChargingQueue();
+                chargingWatchdog();
             } catch (Exception e) {
-                application.Logger.logSystem("ERROR", "Queue processor error: " + e.getMessage());
+                application.Logger.logSystem("ERROR", "Charging watchdog error: " + e.getMessage());
             }
-        }, 2, 2, TimeUnit.SECONDS);
+        }, CHARGING_WATCHDOG_SECONDS, CHARGING_WATCHDOG_SECONDS, TimeUnit.SECONDS);
     }
     
     public void setChargingStations(List<ChargingStation> stations) {
@@ -66,9 +82,8 @@ public class UnifiedConcurrentSystem {
                 application.Logger.logSystem("INFO", 
                     "Processing existing queue of " + chargingQueue.size() + " robots");
             }
+            admitCharging();
         }
-
-        processChargingQueue();
     }
     
     public List<ChargingRequest> getChargingQueue() {
@@ -78,9 +93,14 @@ public class UnifiedConcurrentSystem {
     }
     
     public void addRobot(Robot robot) {
+        addRobot(robot, false);
+    }
+
+    /** Adds a robot, sending it to charge if {@code charging} or its battery is below threshold. */
+    public void addRobot(Robot robot, boolean charging) {
         synchronized (this) {
             robots.add(robot);
-            if (robot.getCurrentChargePercent() < robot.getBatteryThreshold()) {
+            if (charging || robot.getCurrentChargePercent() < robot.getBatteryThreshold()) {
                 requestCharging(robot);
             } else {
                 availableRobots.add(robot);
@@ -92,6 +112,7 @@ public class UnifiedConcurrentSystem {
         synchronized (this) {
             taskQueue.add(task);
         }
+        StateChanges.task(task);
         processTaskQueue();
     }
     
@@ -99,41 +120,20 @@ public class UnifiedConcurrentSystem {
         synchronized (this) {
             taskQueue.addAll(tasks);
         }
-        for (int i = 0; i < numAGVs && i < tasks.size(); i++) {
-            processTaskQueue();
+        for (Task task : tasks) {
+            StateChanges.task(task);
         }
+        processTaskQueue();
     }
     
     private void requestCharging(Robot robot) {
         ChargingRequest request = new ChargingRequest(robot, 100.0f, LocalDateTime.now());
-        
         synchronized (this) {
-            if (activeCharging.size() < totalSlots) {
-                ChargingStation availableStation = findAvailableChargingStation();
-                if (availableStation != null) {
-                    try {
-                        availableStation.plugInRobot(robot);
-                        activeCharging.add(robot.getId());
-                        request.setChargingStation(availableStation);
-                        startCharging(request);
-                        
-                        application.Logger.logResources("SYSTEM", "INFO", 
-                            robot.getId() + " plugged into " + availableStation.getId() + 
-                            " (Queue: " + chargingQueue.size() + ")");
-                    } catch (RobotExceptions.ResourceUnavailableException e) {
-                        chargingQueue.add(request);
-                        application.Logger.logResources("SYSTEM", "WARN", 
-                            robot.getId() + " added to charging queue - " + e.getMessage());
-                    }
-                } else {
-                    chargingQueue.add(request);
-                    application.Logger.logResources("SYSTEM", "INFO", 
-                        robot.getId() + " added to charging queue (no slots available)");
-                }
-            } else {
-                chargingQueue.add(request);
+            chargingQueue.add(request);
+            admitCharging();
+            if (chargingQueue.contains(request)) {
                 application.Logger.logResources("SYSTEM", "INFO", 
-                    robot.getId() + " added to charging queue (Position: " + (chargingQueue.size() + 1) + ")");
+                    robot.getId() + " added to charging queue (Position: " + chargingQueue.size() + ")");
             }
         }
     }
@@ -143,7 +143,7 @@ public class UnifiedConcurrentSystem {
             for (ChargingStation station : chargingStations) {
                 int availableSlots = station.getAvailableSlots();
                 application.Logger.logResources("SYSTEM", "DEBUG", 
-                    station.getId() + " has " + availableSlots + " available slots");
+                    () -> station.getId() + " has " + availableSlots + " available slots");
                 if (availableSlots > 0) {
                     return station;
                 }
@@ -154,219 +154,258 @@ public class UnifiedConcurrentSystem {
         }
     }
     
-    private void startCharging(ChargingRequest request) {
+    /**
+     * Starts a charge and schedules its completion for the instant the robot
+     * reaches its target. No thread is held meanwhile; the robot works out
+     * its charge when read.
+     */
+    private synchronized void startCharging(ChargingRequest request) {
         final Robot robot = request.getRobot();
         final ChargingStation station = request.getChargingStation();
+        long millis = robot.startCharging(request.getTargetChargePercent(), CHARGE_RATE_PERCENT_PER_SECOND);
         
         application.Logger.logResources("SYSTEM", "INFO", 
             robot.getId() + " started charging at " + 
-            (station != null ? station.getId() : "unknown station"));
+            (station != null ? station.getId() : "unknown station") + ", done in " + millis + " ms");
         
-        Future<?> future = chargingExecutor.submit(() -> {
-            try {
-                performCharging(request);
-            } finally {
-                if (station != null) {
-                    station.plugOutRobot(robot);
-                    application.Logger.logResources("SYSTEM", "INFO", 
-                        robot.getId() + " unplugged from " + station.getId() + 
-                        " - slot now available");
-                }
-                
-                synchronized (this) {
-                    activeCharging.remove(robot.getId());
-                }
-
-                processChargingQueue();
-            }
-        });
-        
-        synchronized (this) {
-            allFutures.add(future);
-        }
+        // Not kept in allFutures: waitForAll already waits for activeCharging
+        // to empty, and thousands of charges would make each removeIf O(n).
+        chargingScheduler.schedule(() -> finishCharging(request), millis, TimeUnit.MILLISECONDS);
     }
     
-    private void performCharging(ChargingRequest request) {
+    private void finishCharging(ChargingRequest request) {
         Robot robot = request.getRobot();
-        float targetCharge = request.getTargetChargePercent();
-        float currentCharge = robot.getCurrentChargePercent();
-        
-        robot.dock();
-        
-        int chargeSteps = (int) (targetCharge - currentCharge);
-        
-        for (int i = 0; i < chargeSteps; i++) {
-            try {
-                Thread.sleep(100);
-                float newCharge = robot.getCurrentChargePercent() + 1.0f;
-                if (newCharge > targetCharge) {
-                    newCharge = targetCharge;
-                }
-                robot.setCurrentChargePercent(newCharge);
-            } catch (InterruptedException e) {
-                break;
-            }
-        }
-        
+        ChargingStation station = request.getChargingStation();
         robot.undock();
         
         synchronized (this) {
             totalCharged++;
+            if (station != null) {
+                station.plugOutRobot(robot);
+                application.Logger.logResources("SYSTEM", "INFO", 
+                    robot.getId() + " unplugged from " + station.getId() + 
+                    " - slot now available");
+            }
+            activeCharging.remove(robot.getId());
+            if (!availableRobots.contains(robot)) {
+                availableRobots.add(robot);
+            }
+            admitCharging();
         }
         
         application.Logger.logResources("SYSTEM", "INFO", 
             "AGV " + robot.getId() + " completed charging. Final charge: " + 
             robot.getCurrentChargePercent() + "%");
         
-        synchronized (this) {
-            if (!availableRobots.contains(robot)) {
-                availableRobots.add(robot);
+        processTaskQueue();
+    }
+    
+    /**
+     * Plugs queued robots into free slots, in queue order, until either runs
+     * out. Called on every event that can free a slot or add a robot, so a
+     * robot never waits for a slot that is already free. Returns the number
+     * of robots plugged in.
+     */
+    private synchronized int admitCharging() {
+        int admitted = 0;
+        // Once shut down, robots stay queued for the next start.
+        while (!chargingScheduler.isShutdown() && !chargingQueue.isEmpty() && activeCharging.size() < totalSlots) {
+            ChargingStation station = findAvailableChargingStation();
+            if (station == null) {
+                break;
+            }
+            ChargingRequest request = chargingQueue.remove(0);
+            Robot robot = request.getRobot();
+            long waitTimeMinutes = java.time.temporal.ChronoUnit.MINUTES.between(
+                request.getArrivalTime(), LocalDateTime.now());
+            if (waitTimeMinutes > maxWaitTimeMinutes) {
+                leaveChargingQueue(request, waitTimeMinutes);
+                continue;
             }
+            try {
+                station.plugInRobot(robot);
+            } catch (RobotExceptions.ResourceUnavailableException e) {
+                chargingQueue.add(0, request);
+                application.Logger.logResources("SYSTEM", "WARN", 
+                    robot.getId() + " could not plug in, returned to queue");
+                break;
+            }
+            activeCharging.add(robot.getId());
+            request.setChargingStation(station);
+            admitted++;
+            application.Logger.logResources("SYSTEM", "INFO", 
+                robot.getId() + " removed from queue and plugged into " + station.getId() + 
+                " (Queue remaining: " + chargingQueue.size() + ")");
+            startCharging(request);
         }
-        
-        processTaskQueue();
+        return admitted;
+    }
+
+    /** Expires robots that waited too long and admits any that events missed. */
+    private synchronized void chargingWatchdog() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ChargingRequest request : new ArrayList<>(chargingQueue)) {
+            long waitTimeMinutes = java.time.temporal.ChronoUnit.MINUTES.between(request.getArrivalTime(), now);
+            if (waitTimeMinutes > maxWaitTimeMinutes) {
+                chargingQueue.remove(request);
+                leaveChargingQueue(request, waitTimeMinutes);
+            }
+        }
+        int admitted = admitCharging();
+        if (admitted > 0) {
+            application.Logger.logResources("SYSTEM", "WARN", 
+                "Charging watchdog plugged in %d robots waiting beside a free slot", admitted);
+        }
+    }
+
+    private void leaveChargingQueue(ChargingRequest request, long waitTimeMinutes) {
+        totalLeftChargingQueue++;
+        application.Logger.logResources("SYSTEM", "WARN", 
+            request.getRobot().getId() + " left charging queue after waiting " + 
+            waitTimeMinutes + " minutes");
     }
     
-    private void processChargingQueue() {
-        while (true) {
-            ChargingRequest nextRequest = null;
-            int currentlyCharging = 0;
-            int queueSize = 0;
-            int slots = 0;
-            
-            synchronized (this) {
-                currentlyCharging = activeCharging.size();
-                queueSize = chargingQueue.size();
-                slots = totalSlots;
-                
-                if (queueSize > 0) {
-                    application.Logger.logResources("SYSTEM", "INFO", 
-                        "Queue check - Charging: " + currentlyCharging + 
-                        "/" + slots + ", Queue: " + queueSize);
-                }
-                
-                if (!chargingQueue.isEmpty() && currentlyCharging < slots && slots > 0) {
-                    nextRequest = chargingQueue.remove(0);
-                } else {
-                    if (queueSize > 0 && currentlyCharging >= slots) {
-                        application.Logger.logResources("SYSTEM", "INFO", 
-                            "All " + slots + " slots occupied, " + queueSize + " robots waiting");
-                    }
-                    break;
-                }
+    /**
+     * Assigns queued tasks to available robots. Each pass looks at the first
+     * {@code dispatchWindow} tasks in dispatch order and gives every one a
+     * robot that can afford it, so a task no idle robot can carry does not
+     * hold back the tasks behind it. How tasks and robots are paired is the
+     * {@link DispatchPolicy}: greedily in dispatch order, or as one
+     * {@link OptimalDispatch} assignment of the whole window. Idle
+     * robots that cannot afford any task in the window go to charge rather
+     * than wait beside the queue.
+     */
+    private void processTaskQueue() {
+        List<Task> tasksToExecute = new ArrayList<>();
+        List<Robot> robotsToUse = new ArrayList<>();
+
+        synchronized (this) {
+            // Charges already scheduled still finish after shutdown; they
+            // must not start tasks the executor would reject.
+            if (taskExecutor.isShutdown() || taskQueue.isEmpty() || availableRobots.isEmpty()) {
+                return;
             }
-            
-            if (nextRequest != null) {
-                Robot robot = nextRequest.getRobot();
-                long waitTimeMinutes = java.time.temporal.ChronoUnit.MINUTES.between(
-                    nextRequest.getArrivalTime(), LocalDateTime.now());
-                    
-                if (waitTimeMinutes <= maxWaitTimeMinutes) {
-                    ChargingStation availableStation = findAvailableChargingStation();
+            for (Robot robot : new ArrayList<>(availableRobots)) {
+                if (robot.getCurrentChargePercent() < robot.getBatteryThreshold()) {
+                    application.Logger.logResources("SYSTEM", "WARN", 
+                        "%s rejected task assignment - battery too low (%.1f%%)", 
+                        robot.getId(), robot.getCurrentChargePercent());
                     
-                    if (availableStation != null) {
-                        try {
-                            availableStation.plugInRobot(robot);
-                            
-                            synchronized (this) {
-                                activeCharging.add(robot.getId());
-                            }
-                            
-                            nextRequest.setChargingStation(availableStation);
-                            
-                            application.Logger.logResources("SYSTEM", "INFO", 
-                                robot.getId() + " removed from queue and plugged into " + 
-                                availableStation.getId() + " (Queue remaining: " + chargingQueue.size() + ")");
-                            
-                            startCharging(nextRequest);
-                            
-                        } catch (RobotExceptions.ResourceUnavailableException e) {
-                            synchronized (this) {
-                                chargingQueue.add(0, nextRequest);
-                            }
-                            application.Logger.logResources("SYSTEM", "WARN", 
-                                robot.getId() + " could not plug in, returned to queue");
-                            break;
-                        }
-                    } else {
-                        synchronized (this) {
-                            chargingQueue.add(0, nextRequest);
+                    availableRobots.remove(robot);
+                    requestCharging(robot);
+                }
+            }
+
+            float cheapestWaiting = Float.MAX_VALUE;
+            boolean assigned = true;
+            while (assigned && !availableRobots.isEmpty() && !taskQueue.isEmpty()) {
+                List<Task> window = taskQueue.head(dispatchWindow);
+                int before = tasksToExecute.size();
+                if (dispatchPolicy == DispatchPolicy.OPTIMAL) {
+                    List<Robot> candidates = new ArrayList<>(availableRobots);
+                    int[] choice = optimalDispatch.assign(candidates, window);
+                    for (int i = 0; i < choice.length; i++) {
+                        if (choice[i] >= 0) {
+                            claim(window.get(choice[i]), candidates.get(i), tasksToExecute, robotsToUse);
                         }
-                        application.Logger.logResources("SYSTEM", "WARN", 
-                            "No available station found, " + robot.getId() + " returned to queue");
-                        break;
                     }
                 } else {
-                    synchronized (this) {
-                        totalLeftChargingQueue++;
+                    for (Task task : window) {
+                        Robot robot = bestFit(task.getBatteryRequired());
+                        if (robot != null) {
+                            claim(task, robot, tasksToExecute, robotsToUse);
+                            if (availableRobots.isEmpty()) {
+                                break;
+                            }
+                        }
+                    }
+                }
+                assigned = tasksToExecute.size() > before;
+                cheapestWaiting = Float.MAX_VALUE;
+                for (Task task : window) {
+                    if (taskQueue.contains(task)) {
+                        cheapestWaiting = Math.min(cheapestWaiting, task.getBatteryRequired());
+                        application.Logger.logResources("SYSTEM", "DEBUG", 
+                            () -> "Task " + task.getTaskId() + " waits for a robot with " 
+                                + task.getBatteryRequired() + "% battery");
                     }
-                    application.Logger.logResources("SYSTEM", "WARN", 
-                        robot.getId() + " left charging queue after waiting " + 
-                        waitTimeMinutes + " minutes");
                 }
-            } else {
-                break;
             }
-        }
-    }
-    
-    private void processTaskQueue() {
-        Task taskToExecute = null;
-        Robot robotToUse = null;
-        
-        synchronized (this) {
-            if (!taskQueue.isEmpty() && !availableRobots.isEmpty()) {
-                Task candidateTask = taskQueue.get(0);
-                float requiredBattery = candidateTask.getBatteryRequired();
-                
+
+            // Charge does not grow while idle, so a robot short of every task in
+            // the window would otherwise wait forever.
+            if (cheapestWaiting <= 100.0f) {
                 for (Robot robot : new ArrayList<>(availableRobots)) {
-                    if (robot.getCurrentChargePercent() < robot.getBatteryThreshold()) {
-                        application.Logger.logResources("SYSTEM", "WARN", 
-                            robot.getId() + " rejected task assignment - battery too low (" + 
-                            String.format("%.1f", robot.getCurrentChargePercent()) + "%)");
-                        
+                    if (robot.getCurrentChargePercent() < cheapestWaiting) {
+                        application.Logger.logResources("SYSTEM", "INFO", 
+                            "%s cannot afford any queued task (%.1f%% < %.1f%%), sending to charge", 
+                            robot.getId(), robot.getCurrentChargePercent(), cheapestWaiting);
                         availableRobots.remove(robot);
                         requestCharging(robot);
-                        continue;
                     }
-                    
-                    if (robot.getCurrentChargePercent() < requiredBattery) {
-                        application.Logger.logResources("SYSTEM", "WARN", 
-                            robot.getId() + " cannot execute task - needs " + 
-                            String.format("%.1f", requiredBattery) + "% but has " + 
-                            String.format("%.1f", robot.getCurrentChargePercent()) + "%");
-                        continue;
-                    }
-
-                    taskToExecute = taskQueue.remove(0);
-                    robotToUse = robot;
-                    availableRobots.remove(robot);
-                    busyRobots.add(robot);
-                    break;
                 }
             }
         }
+
+        for (int i = 0; i < tasksToExecute.size(); i++) {
+            execute(tasksToExecute.get(i), robotsToUse.get(i));
+        }
+    }
+
+    private void claim(Task task, Robot robot, List<Task> tasks, List<Robot> robots) {
+        taskQueue.remove(task);
+        availableRobots.remove(robot);
+        busyRobots.add(robot);
+        runningTasks.put(task, robot);
+        tasks.add(task);
+        robots.add(robot);
+    }
+
+    /** The available robot with the least charge that still covers {@code required}, or null. */
+    private Robot bestFit(float required) {
+        Robot best = null;
+        for (Robot robot : availableRobots) {
+            float charge = robot.getCurrentChargePercent();
+            if (charge >= required && (best == null || charge < best.getCurrentChargePercent())) {
+                best = robot;
+            }
+        }
+        return best;
+    }
+
+    private void execute(Task task, Robot robot) {
+        application.Logger.logResources("SYSTEM", "INFO", 
+            "Task %s assigned to %s (Battery: %.1f%%)", 
+            task.getTaskId(), robot.getId(), robot.getCurrentChargePercent());
         
-        if (taskToExecute != null && robotToUse != null) {
-            final Task finalTask = taskToExecute;
-            final Robot finalRobot = robotToUse;
-            
-            application.Logger.logResources("SYSTEM", "INFO", 
-                "Task " + finalTask.getTaskId() + " assigned to " + finalRobot.getId() + 
-                " (Battery: " + String.format("%.1f", finalRobot.getCurrentChargePercent()) + "%)");
-            
-            Future<?> future = taskExecutor.submit(() -> {
+        Future<?> future;
+        try {
+            future = taskExecutor.submit(() -> {
                 try {
-                    performTaskExecution(finalTask, finalRobot);
+                    performTaskExecution(task, robot);
                 } finally {
-                    releaseRobot(finalRobot);
+                    synchronized (this) {
+                        runningTasks.remove(task);
+                    }
+                    releaseRobot(robot);
                     processTaskQueue();
                 }
             });
-            
+        } catch (RejectedExecutionException e) {
             synchronized (this) {
-                allFutures.add(future);
+                runningTasks.remove(task);
+                busyRobots.remove(robot);
+                availableRobots.add(robot);
+                taskQueue.add(task);
             }
+            application.Logger.logResources("SYSTEM", "WARN", 
+                "Task %s returned to queue - shutting down", task.getTaskId());
+            return;
+        }
+        
+        synchronized (this) {
+            allFutures.removeIf(Future::isDone);
+            allFutures.add(future);
         }
     }
     
@@ -376,14 +415,14 @@ public class UnifiedConcurrentSystem {
 
             if (robot.getCurrentChargePercent() < robot.getBatteryThreshold()) {
                 application.Logger.logResources("SYSTEM", "INFO", 
-                    robot.getId() + " released - battery low (" + 
-                    String.format("%.1f", robot.getCurrentChargePercent()) + "%), sending to charge");
+                    "%s released - battery low (%.1f%%), sending to charge", 
+                    robot.getId(), robot.getCurrentChargePercent());
                 requestCharging(robot);
             } else {
                 availableRobots.add(robot);
                 application.Logger.logResources("SYSTEM", "INFO", 
-                    robot.getId() + " released - available for tasks (Battery: " + 
-                    String.format("%.1f", robot.getCurrentChargePercent()) + "%)");
+                    "%s released - available for tasks (Battery: %.1f%%)", 
+                    robot.getId(), robot.getCurrentChargePercent());
             }
         }
     }
@@ -393,6 +432,7 @@ public class UnifiedConcurrentSystem {
             "Task " + task.getTaskId() + " started execution on " + robot.getId());
         
         try {
+            task.setExecutedBy(robot.getId());
             task.startTask();
             robot.execute(task);
 
@@ -409,13 +449,14 @@ public class UnifiedConcurrentSystem {
             float batteryDrain = task.getBatteryRequired();
             
             application.Logger.logResources("SYSTEM", "INFO", 
-                "Task will take " + taskDuration + " seconds, drain " + 
-                String.format("%.1f", batteryDrain) + "% battery");
+                "Task will take %d seconds, drain %.1f%% battery", taskDuration, batteryDrain);
             
             Thread.sleep(taskDuration * 1000);
 
-            float newBattery = Math.max(0, robot.getCurrentChargePercent() - batteryDrain);
+            float oldBattery = robot.getCurrentChargePercent();
+            float newBattery = Math.max(0, oldBattery - batteryDrain);
             robot.setCurrentChargePercent(newBattery);
+            task.setBatteryDrained(oldBattery - newBattery);
 
             if (book != null) {
                 robot.deliverBook();
@@ -441,8 +482,8 @@ public class UnifiedConcurrentSystem {
             }
             
             application.Logger.logResources("SYSTEM", "INFO", 
-                "Task " + task.getTaskId() + " completed successfully on " + robot.getId() + 
-                " (Battery: " + String.format("%.1f", robot.getCurrentChargePercent()) + "%)");
+                "Task %s completed successfully on %s (Battery: %.1f%%)", 
+                task.getTaskId(), robot.getId(), robot.getCurrentChargePercent());
             
         } catch (RobotExceptions e) {
             synchronized (this) {
@@ -495,6 +536,48 @@ public class UnifiedConcurrentSystem {
     public synchronized int getTaskQueueSize() {
         return taskQueue.size();
     }
+
+    /** Waiting tasks per priority they were created with. */
+    public synchronized Map<TaskPriority, Integer> getTaskQueueDepths() {
+        return taskQueue.depths();
+    }
+
+    /** Wait after which a queued task ranks one priority level higher; 0 turns aging off. */
+    public synchronized void setTaskAgingMillis(long agingMillis) {
+        taskQueue.setAgingMillis(agingMillis);
+    }
+    
+    /** Queued tasks each dispatch pass looks past the head for; 1 dispatches strictly in order. */
+    public synchronized void setDispatchWindow(int dispatchWindow) {
+        this.dispatchWindow = Math.max(1, dispatchWindow);
+    }
+
+    public synchronized void setDispatchPolicy(DispatchPolicy dispatchPolicy) {
+        this.dispatchPolicy = dispatchPolicy == null ? DispatchPolicy.GREEDY : dispatchPolicy;
+    }
+
+    public synchronized DispatchPolicy getDispatchPolicy() {
+        return dispatchPolicy;
+    }
+
+    /**
+     * Tasks executing on a robot, oldest assignment first, followed by the
+     * queue in dispatch order; one consistent view for a snapshot.
+     */
+    public synchronized List<Task> getUnfinishedTasks() {
+        List<Task> tasks = new ArrayList<>(runningTasks.keySet());
+        tasks.addAll(taskQueue.toList());
+        return tasks;
+    }
+
+    /** Ids of robots plugged in, then of robots waiting in the charging queue in order. */
+    public synchronized List<String> getChargingRobotIds() {
+        List<String> ids = new ArrayList<>(activeCharging);
+        for (ChargingRequest request : chargingQueue) {
+            ids.add(request.getRobot().getId());
+        }
+        return ids;
+    }
     
     public synchronized int getTotalCharged() {
         return totalCharged;
@@ -541,23 +624,21 @@ public class UnifiedConcurrentSystem {
         }
     }
     
+    /** Stops taking work; charges already running still complete when due, within 60 s. */
     public void shutdown() {
-        queueProcessor.shutdown();
-        chargingExecutor.shutdown();
-        taskExecutor.shutdown();
+        synchronized (this) {
+            chargingScheduler.shutdown();
+            taskExecutor.shutdown();
+        }
         try {
-            if (!queueProcessor.awaitTermination(5, TimeUnit.SECONDS)) {
-                queueProcessor.shutdownNow();
-            }
-            if (!chargingExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
-                chargingExecutor.shutdownNow();
+            if (!chargingScheduler.awaitTermination(60, TimeUnit.SECONDS)) {
+                chargingScheduler.shutdownNow();
             }
             if (!taskExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
                 taskExecutor.shutdownNow();
             }
         } catch (InterruptedException e) {
-            queueProcessor.shutdownNow();
-            chargingExecutor.shutdownNow();
+            chargingScheduler.shutdownNow();
             taskExecutor.shutdownNow();
         }
     }
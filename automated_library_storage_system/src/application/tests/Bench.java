@@ -0,0 +1,38 @@
+package application.tests;
+
+import java.lang.management.ManagementFactory;
+
+public class Bench {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static class Result {
+        public final String label;
+        public final double nsPerOp;
+        public final double bytesPerOp;
+
+        Result(String label, double nsPerOp, double bytesPerOp) {
+            this.label = label;
+            this.nsPerOp = nsPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-45s %12.1f ns/op %12.1f B/op", label, nsPerOp, bytesPerOp);
+        }
+    }
+
+    public static Result measure(String label, int warmup, int iterations, Runnable op) {
+        for (int i = 0; i < warmup; i++) op.run();
+        long tid = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) op.run();
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(tid) - bytesBefore;
+        Result r = new Result(label, (double) elapsed / iterations, (double) bytes / iterations);
+        System.out.println(r);
+        return r;
+    }
+}
@@ -0,0 +1,46 @@
+package application.tests;
+
+import application.Logger;
+import application.modules.ChargingStation;
+import application.modules.Robot;
+import application.modules.UnifiedConcurrentSystem;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Thousands of robots charging at once: threads in use and how close to due each charge completes. */
+public class ChargingBenchmark {
+    private static final int ROBOTS = 5000;
+    private static final int SLOTS = 20;
+
+    public static void main(String[] args) throws Exception {
+        Logger.setMinLevel(Logger.Scope.RESOURCES, Logger.Level.ERROR);
+        Logger.setMinLevel(Logger.Scope.SYSTEM, Logger.Level.ERROR);
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        UnifiedConcurrentSystem system = new UnifiedConcurrentSystem(1, 1);
+        List<ChargingStation> stations = new ArrayList<>();
+        for (int i = 0; i < ROBOTS / SLOTS; i++) {
+            stations.add(new ChargingStation("CS-" + i, "Station " + i, SLOTS));
+        }
+        system.setChargingStations(stations);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROBOTS; i++) {
+            Robot robot = new Robot("AGV-" + i, 15f);
+            // 10% to go at 10% a second: every charge is due one second in.
+            robot.setCurrentChargePercent(90f);
+            system.addRobot(robot, true);
+        }
+        long admitted = System.nanoTime() - start;
+        int peakThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        while (system.getTotalCharged() < ROBOTS) {
+            Thread.sleep(1);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%d robots charging: admitted in %.1f ms, all done after %.1f ms (due at 1000 ms)",
+                ROBOTS, admitted / 1e6, elapsed / 1e6));
+        System.out.println(String.format("threads: %d before, %d while charging", threadsBefore, peakThreads));
+        system.shutdown();
+        Logger.shutdown();
+    }
+}
@@ -3,6 +3,7 @@ package application.tests;
 import application.modules.*;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class ChargingStationTests {
     private static int run=0, pass=0; private static java.util.List<String> fails=new java.util.ArrayList<>();
@@ -13,6 +14,8 @@ public class ChargingStationTests {
         testPlugOutRobot();
         testPlugInNull();
         testFindAvailableSlot();
+        testReleasedSlotAdmitsNext();
+        testShutdownWithPendingCharge();
         System.out.println("ChargingStationTests: "+pass+"/"+run+" passed");
         for(String f:fails) System.out.println("FAIL: "+f);
     }
@@ -51,6 +54,47 @@ public class ChargingStationTests {
         ChargingStation cs=stationWith(2);
         ok(cs.findAvailableSlot()!=null, "should find slot");
     }
+    private static void testReleasedSlotAdmitsNext(){
+        long cursor=application.Logger.tail(application.Logger.Scope.RESOURCES, 0).getCursor();
+        UnifiedConcurrentSystem system=new UnifiedConcurrentSystem(1,1);
+        try{
+            Robot a=new Robot("R-1",1), b=new Robot("R-2",1);
+            a.setCurrentChargePercent(99.5f); b.setCurrentChargePercent(99.5f);
+            system.addRobot(a,true); system.addRobot(b,true);
+            ok(system.getChargingQueueSize()==2, "robots should wait while there is no station");
+            system.setChargingStations(java.util.Collections.singletonList(new ChargingStation("CS-1","Station",1)));
+            // Well inside the first watchdog run, so only events can admit.
+            long deadline=System.currentTimeMillis()+10_000;
+            while(system.getTotalCharged()<2 && System.currentTimeMillis()<deadline){
+                try{ Thread.sleep(5); }catch(InterruptedException e){ break; }
+            }
+            List<String> order=new ArrayList<>();
+            boolean watchdog=false;
+            for(application.LogRecord r:application.Logger.tail(application.Logger.Scope.RESOURCES, cursor).getRecords()){
+                String msg=r.getMessage();
+                if(msg.startsWith("Charging watchdog")) watchdog=true;
+                if(msg.contains(" plugged into CS-1")) order.add(msg.substring(0, msg.indexOf(' ')));
+            }
+            ok(system.getTotalCharged()==2 && system.getChargingQueueSize()==0, "both robots should be charged, charged "+system.getTotalCharged());
+            ok(order.equals(java.util.Arrays.asList("R-1","R-2")) && !watchdog,
+                "the added station and then the freed slot should admit each robot in queue order without the watchdog, got "+order);
+        }finally{
+            system.shutdown();
+        }
+    }
+    private static void testShutdownWithPendingCharge(){
+        UnifiedConcurrentSystem system=new UnifiedConcurrentSystem(1,1);
+        system.setChargingStations(java.util.Collections.singletonList(new ChargingStation("CS-1","Station",1)));
+        Robot robot=new Robot("R-1",1);
+        robot.setBatteryThreshold(1f); robot.setCurrentChargePercent(97f);
+        system.addRobot(robot,true);
+        Task task=new Task("T-1","Get Book","Retrieve",TaskPriority.MEDIUM,"AUTO");
+        task.setBatteryRequired(10f);
+        system.addTask(task);
+        ok(system.getActiveChargingCount()==1 && system.getTaskQueueSize()==1, "the task should wait while the only robot charges");
+        system.shutdown();
+        ok(system.getTotalCharged()==1, "a charge scheduled before shutdown should still finish");
+        ok(system.getBusyRobotCount()==0 && system.getTaskQueueSize()==1 && system.getUnfinishedTasks().equals(java.util.Collections.singletonList(task))
+            && task.getStatus()==TaskStatus.PENDING, "a charge finishing during shutdown should leave the task queued, not stranded as running");
+    }
 }
-
-
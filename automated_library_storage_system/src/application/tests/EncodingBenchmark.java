@@ -0,0 +1,70 @@
+package application.tests;
+
+import application.LogLineEncoder;
+import application.LogRecord;
+import application.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+public class EncodingBenchmark {
+    private static final DateTimeFormatter TS_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LogRecord ASCII = new LogRecord(System.currentTimeMillis(), Logger.Scope.RESOURCES,
+            "ROBOT-7", "INFO", "Robot ROBOT-7 started task T-1042 (Get Book) at shelf S-12, battery 81.5%");
+    private static final LogRecord UNICODE = new LogRecord(System.currentTimeMillis(), Logger.Scope.STORAGE,
+            "SHELF-3", "WARN", "Buch \u00bbDer Proze\u00df\u00ab auf Regal S-3 nicht gefunden \u2013 erneut suchen");
+
+    private static final OutputStream OUT = new BufferedOutputStream(OutputStream.nullOutputStream(), 16 * 1024);
+
+    public static void main(String[] args) {
+        for (LogRecord record : new LogRecord[] { ASCII, UNICODE }) {
+            String kind = record == ASCII ? "ascii" : "non-ascii";
+            System.out.println("-- " + kind + " line --");
+            Bench.measure("BufferedWriter per line (original)", 200_000, 1_000_000, () -> original(record));
+            Bench.measure("String.format + getBytes", 200_000, 1_000_000, () -> formatted(record));
+            Bench.measure("LogLineEncoder", 200_000, 1_000_000, () -> encoded(record));
+        }
+    }
+
+    private static void original(LogRecord r) {
+        LocalDateTime now = LocalDateTime.now();
+        String line = String.format("[%s] %s.%s(%s): %s", now.format(TS_FMT), r.getScope(), r.getLevel(), r.getName(), r.getMessage());
+        try (BufferedWriter bw = new BufferedWriter(Writer.nullWriter())) {
+            bw.write(line);
+            bw.newLine();
+            OUT.write((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void formatted(LogRecord r) {
+        LocalDateTime ts = LocalDateTime.ofInstant(Instant.ofEpochMilli(r.getTimestamp()), ZoneId.systemDefault());
+        String line = String.format("[%s] %s.%s(%s): %s", ts.format(TS_FMT), r.getScope(), r.getLevel(), r.getName(), r.getMessage());
+        try {
+            OUT.write(line.getBytes(StandardCharsets.UTF_8));
+            OUT.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void encoded(LogRecord r) {
+        ByteBuffer line = LogLineEncoder.get().encode(r);
+        try {
+            OUT.write(line.array(), 0, line.limit());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package application.tests;
+
+import application.BinaryLogReader;
+import application.LogAnalytics;
+import application.LogRecord;
+import application.LogTail;
+import application.Logger;
+import application.SystemConfig;
+import application.modules.ChargingStation;
+import application.modules.Robot;
+import application.modules.UnifiedConcurrentSystem;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class LoggerTests {
+    private static int run=0, pass=0; private static java.util.List<String> fails=new java.util.ArrayList<>();
+
+    public static void run(){
+        testSyncWrite();
+        testAsyncWriteAfterFlush();
+        testAsyncDropDebugNeverBlocks();
+        testByteStreamRoundTrip();
+        testByteStreamReopenAppends();
+        testMinLevelSuppresses();
+        testSupplierNotEvaluatedWhenSuppressed();
+        testTailReturnsOnlyNewRecords();
+        testTailReportsTruncation();
+        testTailSeedsAfterLiveRecords();
+        testEquipmentSearchUsesIndex();
+        testQueryFiltersByTimeLevelAndEquipment();
+        testRotatedSegmentsStayReadable();
+        testNonAsciiLineRoundTrips();
+        testRepeatedMessagesCollapse();
+        testRepeatSummaryIsStampedWhenWritten();
+        testRateLimitDropsAndReports();
+        testAnalyticsAcrossDays();
+        testAnalyticsReadsLiveChargingLines();
+        testAnalyticsFlagsRateLimitedBurst();
+        Logger.disableAsync();
+        System.out.println("LoggerTests: "+pass+"/"+run+" passed");
+        for(String f:fails) System.out.println("FAIL: "+f);
+    }
+    private static void ok(boolean c,String m){run++; if(c)pass++; else fails.add(m);}    
+
+    private static String marker(String p){ return p+"-"+System.nanoTime(); }
+
+    private static boolean contains(Logger.Scope scope, String text){
+        try{
+            List<String> lines=Logger.openLogByDate(scope, LocalDate.now());
+            for(String l:lines) if(l.contains(text)) return true;
+        }catch(Exception e){ }
+        return false;
+    }
+
+    private static void testSyncWrite(){
+        Logger.disableAsync();
+        String m=marker("sync"); Logger.logCommon("INFO", m);
+        ok(contains(Logger.Scope.COMMON, m), "sync write should be visible immediately");
+    }
+    private static void testAsyncWriteAfterFlush(){
+        Logger.enableAsync(1024, Logger.OverflowPolicy.BLOCK);
+        String m=marker("async");
+        for(int i=0;i<2000;i++) Logger.logCommon("INFO", m+"#"+i);
+        Logger.flush();
+        ok(contains(Logger.Scope.COMMON, m+"#1999"), "async write should be visible after flush");
+    }
+    private static void testAsyncDropDebugNeverBlocks(){
+        Logger.enableAsync(16, Logger.OverflowPolicy.DROP_DEBUG);
+        String m=marker("info");
+        for(int i=0;i<5000;i++) Logger.logCommon("DEBUG", "noise "+i);
+        Logger.logCommon("INFO", m);
+        Logger.flush();
+        ok(contains(Logger.Scope.COMMON, m), "non-debug records must survive overflow");
+    }
+    private static LogRecord findBinary(String text){
+        try(BinaryLogReader r=Logger.openByteStream(LocalDate.now())){
+            while(r!=null && r.hasNext()){ LogRecord rec=r.next(); if(text.equals(rec.getMessage())) return rec; }
+        }catch(Exception e){ }
+        return null;
+    }
+    private static void testByteStreamRoundTrip(){
+        String m=marker("bin"); Logger.logRobot("ROBOT-bin", "WARN", m); Logger.flush();
+        LogRecord r=findBinary(m);
+        ok(r!=null && r.getScope()==Logger.Scope.RESOURCES && "WARN".equals(r.getLevel()) && "ROBOT-bin".equals(r.getName()), "binary record should decode with scope, level and name");
+    }
+    private static void testByteStreamReopenAppends(){
+        String a=marker("before"); Logger.logSystem("INFO", a); Logger.flush();
+        Logger.shutdown();
+        String b=marker("after"); Logger.logSystem("NOTICE", b); Logger.flush();
+        LogRecord rb=findBinary(b);
+        ok(findBinary(a)!=null && rb!=null && "NOTICE".equals(rb.getLevel()), "reopened byte stream should keep old records and append new ones");
+    }
+    private static void testMinLevelSuppresses(){
+        Logger.setMinLevel(Logger.Scope.COMMON, Logger.Level.WARN);
+        String info=marker("gated-info"), warn=marker("gated-warn");
+        Logger.logCommon("INFO", info); Logger.logCommon("WARN", warn); Logger.flush();
+        Logger.setMinLevel(Logger.Scope.COMMON, Logger.Level.DEBUG);
+        ok(!contains(Logger.Scope.COMMON, info) && contains(Logger.Scope.COMMON, warn), "records below the scope minimum should be dropped");
+    }
+    private static void testSupplierNotEvaluatedWhenSuppressed(){
+        Logger.setMinLevel(Logger.Scope.RESOURCES, Logger.Level.INFO);
+        final boolean[] called={false};
+        Logger.logResources("R", "DEBUG", () -> { called[0]=true; return "x"; });
+        Logger.logResources("R", "DEBUG", "%s", new Object(){ public String toString(){ called[0]=true; return "x"; } });
+        Logger.setMinLevel(Logger.Scope.RESOURCES, Logger.Level.DEBUG);
+        ok(!called[0], "suppressed messages should not be formatted");
+    }
+    private static void testTailReturnsOnlyNewRecords(){
+        long cursor=Logger.tail(Logger.Scope.COMMON, 0).getCursor();
+        String m=marker("tail");
+        for(int i=0;i<3;i++) Logger.logCommon("INFO", m+"#"+i);
+        LogTail t=Logger.tail(Logger.Scope.COMMON, cursor);
+        ok(t.getRecords().size()==3 && t.getRecords().get(2).getMessage().equals(m+"#2") && !t.isTruncated(), "tail should return exactly the records after the cursor");
+        ok(Logger.tail(Logger.Scope.COMMON, t.getCursor()).getRecords().isEmpty(), "tail at the latest cursor should be empty");
+    }
+    private static void testTailReportsTruncation(){
+        long cursor=Logger.tail(Logger.Scope.COMMON, 0).getCursor();
+        for(int i=0;i<1500;i++) Logger.logCommon("INFO", "fill "+i);
+        LogTail t=Logger.tail(Logger.Scope.COMMON, cursor);
+        ok(t.isTruncated() && t.getRecords().size()==1000, "tail should flag records that fell out of the ring");
+    }
+    private static void testTailSeedsAfterLiveRecords(){
+        try{
+            Class<?> ring=Class.forName("application.LogRingBuffer");
+            java.lang.reflect.Constructor<?> c=ring.getDeclaredConstructor(int.class); c.setAccessible(true);
+            java.lang.reflect.Method append=ring.getDeclaredMethod("append", LogRecord.class); append.setAccessible(true);
+            java.lang.reflect.Method seed=ring.getDeclaredMethod("seed", List.class); seed.setAccessible(true);
+            java.lang.reflect.Method since=ring.getDeclaredMethod("since", long.class); since.setAccessible(true);
+            Object buffer=c.newInstance(50);
+            for(int i=0;i<3;i++) append.invoke(buffer, new LogRecord(i, Logger.Scope.COMMON, "all", "INFO", "live"+i));
+            List<LogRecord> history=new java.util.ArrayList<>();
+            for(int i=0;i<5;i++) history.add(new LogRecord(i, Logger.Scope.COMMON, "all", "INFO", "file"+i));
+            seed.invoke(buffer, history);
+            LogTail t=(LogTail)since.invoke(buffer, 0L);
+            ok(t.getRecords().size()==5 && t.getRecords().get(0)!=null && t.getRecords().get(0).getMessage().equals("file0") && !t.isTruncated(),
+                "a ring seeded after live appends should hold exactly the history, got "+t.getRecords());
+            append.invoke(buffer, new LogRecord(9, Logger.Scope.COMMON, "all", "INFO", "after"));
+            List<LogRecord> more=((LogTail)since.invoke(buffer, t.getCursor())).getRecords();
+            ok(more.size()==1 && more.get(0).getMessage().equals("after"), "the cursor from a seeded tail should see only later records");
+        }catch(ReflectiveOperationException e){ ok(false, "ring buffer reflection failed "+e); }
+    }
+    private static void testEquipmentSearchUsesIndex(){
+        String robot=marker("ROBOT-IDX");
+        for(int i=0;i<5;i++){ Logger.logRobot(robot, "INFO", "step "+i); Logger.logRobot("OTHER", "INFO", robot+" mentioned only"); }
+        Logger.shutdown();
+        Logger.logRobot(robot, "INFO", "after reopen");
+        try{
+            List<String> hits=Logger.searchLogsByEquipment(robot.toLowerCase());
+            ok(hits.size()==6 && hits.get(5).endsWith("after reopen"), "search should return only records named after the equipment, in file order");
+        }catch(Exception e){ ok(false, "search threw "+e); }
+    }
+    private static void testQueryFiltersByTimeLevelAndEquipment(){
+        String robot=marker("ROBOT-Q");
+        java.time.LocalDateTime from=java.time.LocalDateTime.now().minusSeconds(1);
+        Logger.logRobot(robot, "INFO", "q1");
+        Logger.logRobot(robot, "DEBUG", "q2");
+        Logger.logTasks("WARN", "task for "+robot);
+        Logger.logRobot(robot, "ERROR", "q3");
+        java.time.LocalDateTime to=java.time.LocalDateTime.now().plusSeconds(2);
+        try(java.util.stream.Stream<LogRecord> s=Logger.query(java.util.EnumSet.of(Logger.Scope.RESOURCES), java.util.EnumSet.of(Logger.Level.INFO, Logger.Level.ERROR), robot.toLowerCase(), from, to)){
+            List<String> msgs=s.map(LogRecord::getMessage).collect(java.util.stream.Collectors.toList());
+            ok(msgs.equals(List.of("q1","q3")), "query should return matching records in time order, got "+msgs);
+        }
+        try(java.util.stream.Stream<LogRecord> s=Logger.query(null, null, null, from.minusDays(3), from.minusDays(2))){
+            ok(s.count()==0, "query outside the logged range should be empty");
+        }
+    }
+    private static void testRotatedSegmentsStayReadable(){
+        SystemConfig c=new SystemConfig(); c.setAsyncLogging(false); c.setLogLevels(null); c.setLogSegmentBytes(8*1024);
+        Logger.applyConfig(c);
+        String shelf=marker("SHELF-ROT");
+        for(int i=0;i<400;i++) Logger.logStorage(shelf, "INFO", "rotated line "+i);
+        Logger.runLogMaintenance();
+        try{
+            boolean compressed=Logger.listAvailableLogFiles().stream().anyMatch(f->f.startsWith("storage-") && f.endsWith(".log.gz"));
+            List<String> lines=Logger.openLogByDate(Logger.Scope.STORAGE, LocalDate.now());
+            int first=-1, count=0; for(int i=0;i<lines.size();i++) if(lines.get(i).contains(shelf)){ if(first<0) first=i; count++; }
+            ok(compressed, "full segments should be compressed in the background");
+            ok(count==400 && lines.get(first).endsWith("rotated line 0") && lines.get(first+399).endsWith("rotated line 399"), "day reader should read every segment in order, got "+count);
+            ok(Logger.searchLogsByEquipment(shelf).size()==400, "equipment search should read compressed segments");
+        }catch(Exception e){ ok(false, "rotation read threw "+e); }
+        c.setLogSegmentBytes(new SystemConfig().getLogSegmentBytes());
+        Logger.applyConfig(c);
+    }
+    private static void testNonAsciiLineRoundTrips(){
+        String m=marker("Gr\u00f6\u00dfe \u2013 \ud83d\udcda");
+        Logger.logCommon("INFO", m);
+        ok(contains(Logger.Scope.COMMON, m), "non-ASCII text should be encoded as UTF-8 and read back unchanged");
+    }
+    private static void testRepeatedMessagesCollapse(){
+        String m=marker("TICK");
+        long cursor=Logger.tail(Logger.Scope.COMMON, 0).getCursor();
+        for(int i=0;i<10;i++) Logger.logCommon("INFO", "%s queue %d", m, 3);
+        Logger.logCommon("INFO", "%s queue %d", m, 4);
+        Logger.flush();
+        List<String> msgs=new java.util.ArrayList<>();
+        for(LogRecord r:Logger.tail(Logger.Scope.COMMON, cursor).getRecords()) if(r.getMessage().startsWith(m)) msgs.add(r.getMessage());
+        ok(msgs.size()==3 && msgs.get(0).equals(m+" queue 3") && msgs.get(1).startsWith(m+" queue 3 [repeated 9 times in ") && msgs.get(2).equals(m+" queue 4"), "identical messages should collapse into one summary, got "+msgs);
+    }
+    private static void testRepeatSummaryIsStampedWhenWritten(){
+        SystemConfig c=new SystemConfig(); c.setAsyncLogging(false); c.setLogLevels(null); c.setLogDedupeWindowSeconds(1);
+        Logger.applyConfig(c);
+        try{
+            String m=marker("QUIET");
+            long cursor=Logger.tail(Logger.Scope.COMMON, 0).getCursor();
+            for(int i=0;i<5;i++) Logger.logCommon("INFO", m);
+            long lastRepeat=System.currentTimeMillis();
+            Logger.logCommon("INFO", m+" other");
+            List<LogRecord> summaries=new java.util.ArrayList<>();
+            long deadline=System.currentTimeMillis()+5000;
+            while(summaries.isEmpty() && System.currentTimeMillis()<deadline){
+                try{ Thread.sleep(50); }catch(InterruptedException e){ Thread.currentThread().interrupt(); break; }
+                for(LogRecord r:Logger.tail(Logger.Scope.COMMON, cursor).getRecords()) if(r.getMessage().startsWith(m+" [repeated")) summaries.add(r);
+            }
+            long other=Logger.tail(Logger.Scope.COMMON, cursor).getRecords().stream()
+                .filter(r->r.getMessage().equals(m+" other")).mapToLong(LogRecord::getTimestamp).findFirst().orElse(Long.MAX_VALUE);
+            ok(summaries.size()==1 && summaries.get(0).getMessage().contains("repeated 4 times") && summaries.get(0).getMessage().contains(" from "),
+                "an ended window should be summarized by the sweep without another record, got "+summaries);
+            ok(!summaries.isEmpty() && summaries.get(0).getTimestamp()>=other && summaries.get(0).getTimestamp()>=lastRepeat,
+                "a summary should carry the time it was written, after the records before it");
+        }finally{
+            Logger.applyConfig(new SystemConfig());
+            Logger.setMinLevels(null);
+            Logger.disableAsync();
+        }
+    }
+    private static void testRateLimitDropsAndReports(){
+        SystemConfig c=new SystemConfig(); c.setAsyncLogging(false); c.setLogLevels(null);
+        java.util.Map<Logger.Scope,Integer> limits=new java.util.EnumMap<>(Logger.Scope.class); limits.put(Logger.Scope.COMMON, 5);
+        c.setLogRateLimits(limits);
+        Logger.applyConfig(c);
+        String m=marker("BURST");
+        long cursor=Logger.tail(Logger.Scope.COMMON, 0).getCursor();
+        for(int i=0;i<50;i++) Logger.logCommon("INFO", m+" #"+i);
+        Logger.logCommon("ERROR", m+" error");
+        List<LogRecord> got=Logger.tail(Logger.Scope.COMMON, cursor).getRecords();
+        long passed=got.stream().filter(r->r.getMessage().startsWith(m+" #")).count();
+        ok(passed>=5 && passed<10 && got.get(got.size()-1).getMessage().equals(m+" error"), "token bucket should cap the scope but never drop errors, passed "+passed);
+        try{ Thread.sleep(400); }catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+        Logger.logCommon("INFO", m+" after");
+        got=Logger.tail(Logger.Scope.COMMON, cursor).getRecords();
+        ok(got.stream().anyMatch(r->r.getMessage().startsWith("Rate limit dropped")), "dropped records should be reported once tokens return");
+        Logger.applyConfig(new SystemConfig());
+        Logger.setMinLevels(null);
+        Logger.disableAsync();
+    }
+    private static void testAnalyticsAcrossDays(){
+        try{
+            java.nio.file.Path dir=java.nio.file.Files.createTempDirectory("analytics");
+            java.nio.file.Files.write(dir.resolve("resources-01-03-2026.log"), List.of(
+                "[2026-03-01 23:59:00] RESOURCES.INFO(SYSTEM): Task T1 assigned to ROBOT-3 (Battery: 90.0%)",
+                "[2026-03-01 23:59:00] RESOURCES.INFO(SYSTEM): Task T1 started execution on ROBOT-3",
+                "[2026-03-01 23:59:10] RESOURCES.INFO(SYSTEM): ROBOT-1 added to charging queue (Position: 2)",
+                "[2026-03-01 23:59:30] RESOURCES.INFO(SYSTEM): Task T2 started execution on ROBOT-1",
+                "[2026-03-01 23:59:40] RESOURCES.ERROR(SYSTEM): Task T2 failed on ROBOT-1: Battery too low"));
+            java.nio.file.Files.write(dir.resolve("resources-02-03-2026.log"), List.of(
+                "[2026-03-02 00:01:00] RESOURCES.INFO(SYSTEM): Task T1 completed successfully on ROBOT-3 (Battery: 70.0%)",
+                "[2026-03-02 00:01:10] RESOURCES.INFO(SYSTEM): ROBOT-1 removed from queue and plugged into CS-1 (Queue remaining: 0)",
+                "[2026-03-02 00:30:00] RESOURCES.INFO(SYSTEM): AGV ROBOT-1 completed charging. Final charge: 100.0%"));
+            java.nio.file.Files.write(dir.resolve("tasks-02-03-2026.log"), List.of(
+                "[2026-03-02 00:00:05] TASKS.INFO(all): Get book task created: Dune from Shelf A [distance: 3]"));
+            LogAnalytics.Report r=LogAnalytics.analyze(dir, null, null);
+            LogAnalytics.RobotStats r3=r.getRobot("ROBOT-3"), r1=r.getRobot("ROBOT-1");
+            ok(r3!=null && r3.getTasksAssigned()==1 && r3.getTasksCompleted()==1 && r3.getAverageTaskSeconds()==120.0, "task duration should span the day boundary");
+            ok(r1!=null && r1.getTasksFailed()==1 && r1.getChargeCycles()==1 && r1.getAverageQueueWaitSeconds()==120.0
+                && r.getFailureReasons().get("Battery too low")==1 && r.getTasksCreated()==1, "failures, charge cycles and queue waits should be counted");
+        }catch(Exception e){ ok(false, "analytics threw "+e); }
+    }
+    private static void testAnalyticsReadsLiveChargingLines(){
+        String m=marker("Q");
+        long cursor=Logger.tail(Logger.Scope.RESOURCES, 0).getCursor();
+        UnifiedConcurrentSystem system=new UnifiedConcurrentSystem(1,1);
+        try{
+            Robot a=new Robot(m+"-1",1), b=new Robot(m+"-2",1);
+            a.setCurrentChargePercent(99.5f); b.setCurrentChargePercent(99.5f);
+            system.addRobot(a,true); system.addRobot(b,true);
+            system.setChargingStations(java.util.Collections.singletonList(new ChargingStation("CS-1","Station",1)));
+            long deadline=System.currentTimeMillis()+10_000;
+            while(system.getTotalCharged()<2 && System.currentTimeMillis()<deadline){
+                try{ Thread.sleep(5); }catch(InterruptedException e){ break; }
+            }
+        }finally{
+            system.shutdown();
+        }
+        try{
+            LogTail t=Logger.tail(Logger.Scope.RESOURCES, cursor);
+            LocalDate day=java.time.Instant.ofEpochMilli(t.getRecords().get(0).getTimestamp()).atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+            java.nio.file.Path dir=java.nio.file.Files.createTempDirectory("analytics");
+            java.nio.file.Files.write(dir.resolve("resources-"+day.format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy"))+".log"), t.getLines());
+            LogAnalytics.Report r=LogAnalytics.analyze(dir, null, null);
+            LogAnalytics.RobotStats r1=r.getRobot(m+"-1"), r2=r.getRobot(m+"-2");
+            ok(r1!=null && r1.getQueueWaits()==1 && r2!=null && r2.getQueueWaits()==1, "queue waits should be read from the lines the scheduler writes");
+        }catch(Exception e){ ok(false, "analytics over live lines threw "+e); }
+    }
+    private static void testAnalyticsFlagsRateLimitedBurst(){
+        SystemConfig c=new SystemConfig(); c.setAsyncLogging(false); c.setLogLevels(null);
+        java.util.Map<Logger.Scope,Integer> limits=new java.util.EnumMap<>(Logger.Scope.class); limits.put(Logger.Scope.RESOURCES, 5);
+        c.setLogRateLimits(limits);
+        Logger.applyConfig(c);
+        String m=marker("BULK");
+        try{
+            long cursor=Logger.tail(Logger.Scope.RESOURCES, 0).getCursor();
+            for(int i=0;i<50;i++) Logger.logResources("SYSTEM", "INFO", "Task %s assigned to %s (Battery: %.1f%%)", m+"-"+i, m, 90f);
+            Logger.flush();
+            LogTail t=Logger.tail(Logger.Scope.RESOURCES, cursor);
+            LocalDate day=java.time.Instant.ofEpochMilli(t.getRecords().get(0).getTimestamp()).atZone(java.time.ZoneId.systemDefault()).toLocalDate();
+            java.nio.file.Path dir=java.nio.file.Files.createTempDirectory("analytics");
+            java.nio.file.Files.write(dir.resolve("resources-"+day.format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy"))+".log"), t.getLines());
+            LogAnalytics.Report r=LogAnalytics.analyze(dir, null, null);
+            int assigned=r.getRobot(m)==null ? 0 : r.getRobot(m).getTasksAssigned();
+            ok(assigned<50 && !r.isComplete() && assigned+r.getDroppedRecords()>=50 && r.format().contains("INCOMPLETE"),
+                "a rate-limited burst should mark the report incomplete with the dropped count, assigned "+assigned+" dropped "+r.getDroppedRecords());
+        }catch(Exception e){ ok(false, "analytics over a burst threw "+e); }
+        finally{
+            Logger.applyConfig(new SystemConfig());
+            Logger.setMinLevels(null);
+            Logger.disableAsync();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package application.tests;
+
+import application.Logger;
+import application.modules.Robot;
+import application.modules.Task;
+import application.modules.TaskPriority;
+import application.modules.UnifiedConcurrentSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoggingBenchmark {
+    private static final String[] STATIONS = { "CHG-1", "CHG-2", "CHG-3", "CHG-4", "CHG-5", "CHG-6", "CHG-7", "CHG-8" };
+
+    public static void main(String[] args) {
+        Logger.enableAsync(65536, Logger.OverflowPolicy.BLOCK);
+
+        System.out.println("-- station scan (8 DEBUG lines per call) --");
+        for (Logger.Level level : new Logger.Level[] { Logger.Level.DEBUG, Logger.Level.INFO }) {
+            Logger.setMinLevel(Logger.Scope.RESOURCES, level);
+            Bench.measure("eager concat, min=" + level, 20_000, 200_000, LoggingBenchmark::scanEager);
+            Bench.measure("template, min=" + level, 20_000, 200_000, LoggingBenchmark::scanTemplate);
+            Bench.measure("supplier, min=" + level, 20_000, 200_000, LoggingBenchmark::scanSupplier);
+            Logger.flush();
+        }
+
+        System.out.println("-- dispatch of 3000 zero-length tasks on 4 robots --");
+        for (Logger.Level level : new Logger.Level[] { Logger.Level.DEBUG, Logger.Level.INFO, Logger.Level.WARN }) {
+            Logger.setMinLevel(Logger.Scope.RESOURCES, level);
+            Logger.setMinLevel(Logger.Scope.TASKS, level);
+            dispatch(300, 4);
+            long start = System.nanoTime();
+            dispatch(3000, 4);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%-45s %12.1f us/task", "dispatch, min=" + level, elapsed / 3000 / 1e3));
+            Logger.flush();
+        }
+        Logger.shutdown();
+    }
+
+    private static void scanEager() {
+        for (int i = 0; i < STATIONS.length; i++) {
+            Logger.logResources("SYSTEM", "DEBUG", STATIONS[i] + " has " + (i & 1) + " available slots");
+        }
+    }
+
+    private static void scanTemplate() {
+        for (int i = 0; i < STATIONS.length; i++) {
+            Logger.logResources("SYSTEM", "DEBUG", "%s has %d available slots", STATIONS[i], i & 1);
+        }
+    }
+
+    private static void scanSupplier() {
+        for (int i = 0; i < STATIONS.length; i++) {
+            final String station = STATIONS[i];
+            final int slots = i & 1;
+            Logger.logResources("SYSTEM", "DEBUG", () -> station + " has " + slots + " available slots");
+        }
+    }
+
+    private static void dispatch(int tasks, int robots) {
+        UnifiedConcurrentSystem system = new UnifiedConcurrentSystem(1, robots);
+        for (int i = 0; i < robots; i++) {
+            system.addRobot(new Robot("BENCH-" + i, 1));
+        }
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            Task task = new Task("BENCH-T" + i, "Get Book", "benchmark", TaskPriority.MEDIUM, "AUTO");
+            task.setTaskDurationSeconds(0);
+            task.setBatteryRequired(0);
+            batch.add(task);
+        }
+        system.addTasks(batch);
+        system.waitForAll();
+        system.shutdown();
+    }
+}
@@ -14,6 +14,7 @@ public class RobotTests {
 
     public static void run(){
         testDockUndock();
+        testChargeComputedOnRead();
         testAddRemoveBooks();
         testExecuteNullTask();
         testExecuteLowBattery();
@@ -29,6 +30,18 @@ public class RobotTests {
         Robot r=robot(); r.dock(); r.undock(); ok(r.getCurrentChargePercent()==100, "undock should charge to 100");
     }
 
+    private static void testChargeComputedOnRead(){
+        Robot r=robot(); r.setCurrentChargePercent(99f);
+        long millis=r.startCharging(100f, 10f);
+        float early=r.getCurrentChargePercent();
+        ok(millis==100 && r.isDocked() && early>=99f && early<100f, "a charge should take its computed time and rise from the starting level");
+        try{ Thread.sleep(150); }catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+        float done=r.getCurrentChargePercent();
+        r.undock();
+        ok(done==100f && r.getCurrentChargePercent()==100f && !r.isDocked() && r.recordAt(Long.MAX_VALUE).chargePercent==100f,
+            "the charge should stop at the target and be recorded on undock");
+    }
+
     private static void testAddRemoveBooks(){
         Robot r=robot(); Book b=new Book("B","A", "B", "B");
     }
@@ -0,0 +1,120 @@
+package application.tests;
+
+import application.CatalogLoader;
+import application.Logger;
+import application.SystemState;
+import application.modules.Book;
+import application.modules.ChargingStation;
+import application.modules.Library;
+import application.modules.Robot;
+import application.modules.Shelf;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Time to ready after a restart: snapshot load plus catalog build, per-book path against CatalogLoader. */
+public class StartupBenchmark {
+    private static final String[] CATEGORIES = { "Fiction", "Science", "History", "Technology", "Literature" };
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("startup-bench");
+        PrintStream stdout = System.out;
+        for (int count : new int[] { 100_000, 1_000_000 }) {
+            Path snapshot = dir.resolve("store-" + count + ".bin");
+            write(snapshot, count);
+            stdout.println("-- " + count + " books --");
+            for (int round = 0; round < 3; round++) {
+                boolean report = round == 2;
+                if (count <= 100_000) {
+                    // The per-book path prints a line per book; keep stdout quiet while timing it.
+                    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                    long start = System.nanoTime();
+                    loadPerBook(SystemState.load(snapshot));
+                    long elapsed = System.nanoTime() - start;
+                    System.setOut(stdout);
+                    Logger.flush();
+                    if (report) {
+                        print("per-book constructors, addBook, logging", elapsed, count);
+                    }
+                }
+                long start = System.nanoTime();
+                CatalogLoader catalog = new CatalogLoader(SystemState.load(snapshot));
+                catalog.load(new Library(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+                long elapsed = System.nanoTime() - start;
+                if (report) {
+                    print("bulk CatalogLoader", elapsed, count);
+                    stdout.println("   " + catalog.summary());
+                }
+            }
+        }
+        try (java.util.stream.Stream<Path> files = Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        Logger.shutdown();
+    }
+
+    private static void print(String label, long nanos, int count) {
+        System.out.println(String.format("%-42s %9.1f ms total %7.1f ms per 10k books",
+                label, nanos / 1e6, nanos / 1e6 * 10_000 / count));
+    }
+
+    private static void write(Path path, int count) {
+        List<Shelf> shelves = new ArrayList<>();
+        List<Book> books = new ArrayList<>(count);
+        int perShelf = 1000;
+        for (int s = 0; s * perShelf < count; s++) {
+            shelves.add(new Shelf("SHELF-" + s, "Shelf " + s, CATEGORIES[s % CATEGORIES.length], 10 + s % 41, perShelf));
+        }
+        for (int i = 0; i < count; i++) {
+            Shelf shelf = shelves.get(i / perShelf);
+            books.add(new Book("BOOK-" + i, "Title number " + i, "Author " + (i % 5000), shelf.getCategory(),
+                    Book.BookStatus.AVAILABLE, shelf.getId()));
+        }
+        Map<Shelf, List<Book>> contents = new HashMap<>();
+        for (Book book : books) {
+            contents.computeIfAbsent(shelves.get(Integer.parseInt(book.getShelfId().substring(6))),
+                    s -> new ArrayList<>()).add(book);
+        }
+        contents.forEach(Shelf::restoreBooks);
+        new SystemState().save(path, books, shelves, Collections.<Robot>emptyList(),
+                Collections.<ChargingStation>emptyList());
+    }
+
+    /** What LibrarySystemManager.initializeSystem did before the bulk path. */
+    private static void loadPerBook(SystemState state) {
+        Library library = new Library();
+        Map<String, Shelf> shelfMap = new ConcurrentHashMap<>();
+        Map<String, Book> bookMap = new ConcurrentHashMap<>();
+        for (SystemState.ShelfData data : state.getShelves()) {
+            Shelf shelf = new Shelf(data.getId(), data.getName(), data.getCategory(), data.getDistance(),
+                    data.getMaxCapacity());
+            library.addShelf(shelf);
+            shelfMap.put(shelf.getId(), shelf);
+        }
+        for (SystemState.BookData data : state.getBooks()) {
+            Book book = new Book(data.getId(), data.getTitle(), data.getAuthor(), data.getCategory());
+            book.setShelfId(data.getShelfId());
+            try {
+                book.setStatus(Book.BookStatus.valueOf(data.getStatus()));
+            } catch (Exception e) {
+                book.setStatus(Book.BookStatus.AVAILABLE);
+            }
+            library.addBook(book);
+            bookMap.put(book.getId(), book);
+            if (book.isAvailable() && data.getShelfId() != null) {
+                Shelf shelf = shelfMap.get(data.getShelfId());
+                if (shelf != null && !shelf.isFull() && shelf.getCategory().equalsIgnoreCase(book.getCategory())) {
+                    shelf.addBook(book);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package application.tests;
+
+import application.Logger;
+import application.SystemState;
+import application.modules.Book;
+import application.modules.ChargingStation;
+import application.modules.Robot;
+import application.modules.Shelf;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Save time, load time and file size of the JSON and binary state formats at 100k and 1M books. */
+public class StateFormatBenchmark {
+    private static final String[] CATEGORIES = { "Fiction", "Science", "History", "Technology", "Literature" };
+
+    public static void main(String[] args) throws Exception {
+        Logger.setMinLevel(Logger.Scope.STORAGE, Logger.Level.ERROR);
+        Logger.setMinLevel(Logger.Scope.SYSTEM, Logger.Level.ERROR);
+        Path dir = Files.createTempDirectory("format-bench");
+        for (int count : new int[] { 100_000, 1_000_000 }) {
+            run(dir, count);
+        }
+        try (java.util.stream.Stream<Path> files = Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        Logger.shutdown();
+    }
+
+    private static void run(Path dir, int count) throws Exception {
+        List<Shelf> shelves = new ArrayList<>();
+        List<Book> books = new ArrayList<>(count);
+        int perShelf = 1000;
+        for (int s = 0; s * perShelf < count; s++) {
+            shelves.add(new Shelf("SHELF-" + s, "Shelf " + s, CATEGORIES[s % CATEGORIES.length], 10 + s % 41, perShelf));
+        }
+        for (int i = 0; i < count; i++) {
+            Shelf shelf = shelves.get(i / perShelf);
+            Book book = new Book("BOOK-" + i, "Title number " + i, "Author " + (i % 5000), shelf.getCategory());
+            shelf.addBook(book);
+            books.add(book);
+        }
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            robots.add(new Robot("ROBOT-" + i, 15.0f));
+        }
+        List<ChargingStation> stations = new ArrayList<>();
+        stations.add(new ChargingStation("CHG-1", "Station 1", 1));
+
+        SystemState state = new SystemState();
+        System.out.println("-- " + count + " books, " + shelves.size() + " shelves --");
+        for (SystemState.Format format : SystemState.Format.values()) {
+            Path path = dir.resolve("store-" + count + "." + format.extension());
+            double save = 0, load = 0;
+            int loaded = 0;
+            for (int round = 0; round < 3; round++) {
+                System.gc();
+                long start = System.nanoTime();
+                state.save(path, books, shelves, robots, stations);
+                save = (System.nanoTime() - start) / 1e6;
+                System.gc();
+                start = System.nanoTime();
+                loaded = SystemState.load(path).getBooks().size();
+                load = (System.nanoTime() - start) / 1e6;
+            }
+            System.out.println(String.format("%-7s save %8.1f ms  load %8.1f ms  size %,12d B  (%d books read back)",
+                    format, save, load, Files.size(path), loaded));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package application.tests;
+
+import application.Logger;
+import application.StateShards;
+import application.SystemState;
+import application.modules.Book;
+import application.modules.ChargingStation;
+import application.modules.Robot;
+import application.modules.Shelf;
+import application.modules.StateChanges;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Save time, peak heap and allocation of the original DTO + toJson path against the streaming and sharded saves. */
+public class StateSaveBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final String[] CATEGORIES = { "Fiction", "Science", "History", "Technology", "Literature" };
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Logger.setMinLevel(Logger.Scope.STORAGE, Logger.Level.ERROR);
+        Logger.setMinLevel(Logger.Scope.SYSTEM, Logger.Level.ERROR);
+
+        List<Shelf> shelves = new ArrayList<>();
+        List<Book> books = new ArrayList<>(count);
+        int perShelf = 1000;
+        for (int s = 0; s * perShelf < count; s++) {
+            shelves.add(new Shelf("SHELF-" + s, "Shelf " + s, CATEGORIES[s % CATEGORIES.length], 10 + s % 41, perShelf));
+        }
+        for (int i = 0; i < count; i++) {
+            Shelf shelf = shelves.get(i / perShelf);
+            Book book = new Book("BOOK-" + i, "Title number " + i, "Author " + (i % 5000), shelf.getCategory());
+            shelf.addBook(book);
+            books.add(book);
+        }
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            robots.add(new Robot("ROBOT-" + i, 15.0f));
+        }
+        List<ChargingStation> stations = new ArrayList<>();
+        stations.add(new ChargingStation("CHG-1", "Station 1", 1));
+
+        Path dir = Files.createTempDirectory("state-bench");
+        Path original = dir.resolve("original.json");
+        Path streamed = dir.resolve("streamed.json");
+        SystemState state = new SystemState();
+
+        System.out.println("-- save of " + count + " books, " + shelves.size() + " shelves --");
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+            measure("DTO rebuild + pretty toJson + writeString", report,
+                    () -> saveOriginal(original, state, books, shelves, robots));
+            measure("streaming JsonWriter from live entities", report,
+                    () -> state.save(streamed, books, shelves, robots, stations));
+        }
+        System.out.println(String.format("file size: original %,d B, streamed %,d B",
+                Files.size(original), Files.size(streamed)));
+
+        Path sharded = dir.resolve("sharded.json");
+        StateShards shards = new StateShards(64);
+        shards.track(books, shelves, robots);
+        shards.markAllDirty();
+        measure("sharded, first save of all 192 shards", true, () -> state.save(sharded, shards, stations));
+        StateChanges.addListener(shards);
+        for (int round = 0; round < 3; round++) {
+            int r = round;
+            measure("sharded, one robot charge changed", round == 2, () -> {
+                robots.get(0).setCurrentChargePercent(50 + r);
+                state.save(sharded, shards, stations);
+            });
+            measure("sharded, one book status changed", round == 2, () -> {
+                books.get(r).setStatus(Book.BookStatus.TAKEN);
+                state.save(sharded, shards, stations);
+            });
+        }
+        StateChanges.removeListener(shards);
+        SystemState loaded = SystemState.load(streamed);
+        System.out.println("reloaded " + loaded.getBooks().size() + " books, " + loaded.getShelves().size() + " shelves");
+        try (java.util.stream.Stream<Path> files = Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        Logger.shutdown();
+    }
+
+    private interface Save {
+        void run() throws Exception;
+    }
+
+    private static void measure(String label, boolean report, Save save) throws Exception {
+        System.gc();
+        long baseline = heapUsed();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        long tid = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        save.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(tid) - bytesBefore;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        if (report) {
+            System.out.println(String.format("%-45s %8.1f ms %8.1f MB peak over live %8.1f MB allocated",
+                    label, elapsed / 1e6, (peak - baseline) / 1048576.0, allocated / 1048576.0));
+        }
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /** What LibrarySystemManager.saveState and SystemState.save did before streaming. */
+    private static void saveOriginal(Path path, SystemState state, List<Book> books, List<Shelf> shelves,
+                                     List<Robot> robots) throws Exception {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        state.getBooks().clear();
+        for (Book book : books) {
+            SystemState.BookData data = new SystemState.BookData();
+            data.setId(book.getId());
+            data.setTitle(book.getTitle());
+            data.setAuthor(book.getAuthor());
+            data.setCategory(book.getCategory());
+            data.setShelfId(book.getShelfId());
+            data.setStatus(book.getStatus().toString());
+            state.getBooks().add(data);
+        }
+        state.getShelves().clear();
+        for (Shelf shelf : shelves) {
+            SystemState.ShelfData data = new SystemState.ShelfData();
+            data.setId(shelf.getId());
+            data.setName(shelf.getName());
+            data.setCategory(shelf.getCategory());
+            data.setDistance(shelf.getDistance());
+            data.setMaxCapacity(shelf.getMaxCapacity());
+            data.setBookIds(new ArrayList<>());
+            for (Book book : shelf.getBooks()) {
+                data.getBookIds().add(book.getId());
+            }
+            state.getShelves().add(data);
+        }
+        state.getRobots().clear();
+        for (Robot robot : robots) {
+            SystemState.RobotData data = new SystemState.RobotData();
+            data.setId(robot.getId());
+            data.setCurrentChargePercent(robot.getCurrentChargePercent());
+            data.setExecutionDuration(robot.getExecutionDuration());
+            state.getRobots().add(data);
+        }
+        String json = gson.toJson(state);
+        Files.writeString(path, json);
+        state.getBooks().clear();
+        state.getShelves().clear();
+        state.getRobots().clear();
+    }
+}
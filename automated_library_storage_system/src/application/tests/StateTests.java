@@ -0,0 +1,581 @@
+package application.tests;
+
+import application.CatalogLoader;
+import application.StateJournal;
+import application.StateShards;
+import application.StateTimeline;
+import application.StateView;
+import application.SystemState;
+import application.TaskArchive;
+import application.TaskHistory;
+import application.WarmRestart;
+import application.modules.Book;
+import application.modules.ChargingStation;
+import application.modules.Robot;
+import application.modules.Shelf;
+import application.modules.StateChanges;
+import application.modules.StateEpoch;
+import application.modules.Task;
+import application.modules.TaskPriority;
+import application.modules.TaskStatus;
+import application.modules.UnifiedConcurrentSystem;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class StateTests {
+    private static int run=0, pass=0; private static java.util.List<String> fails=new java.util.ArrayList<>();
+
+    public static void run(){
+        testJournalReplaysMutations();
+        testJournalIgnoresTornTail();
+        testCompactionFoldsJournalIntoSnapshot();
+        testShardedSaveRewritesOnlyDirtyShards();
+        testEpochReadsPointInTime();
+        testSaveWhileShelvesChange();
+        testBinarySnapshotRoundTrip();
+        testBinaryShardsAndChecksum();
+        testCatalogLoaderLinksInOnePass();
+        testWarmRestartRestoresBacklog();
+        testWarmRestartRollbacksAreJournaled();
+        testTaskArchiveRollsAndFinds();
+        testTaskHistoryAggregatesColumns();
+        testTimelineRebuildsPastInstant();
+        testTimelineCapsCheckpoints();
+        StateChanges.clearListeners();
+        System.out.println("StateTests: "+pass+"/"+run+" passed");
+        for(String f:fails) System.out.println("FAIL: "+f);
+    }
+    private static void ok(boolean c,String m){run++; if(c)pass++; else fails.add(m);}
+
+    private static SystemState.BookData book(SystemState s, String id){
+        for(SystemState.BookData b:s.getBooks()) if(b.getId().equals(id)) return b;
+        return null;
+    }
+    private static SystemState.ShelfData shelf(SystemState s, String id){
+        for(SystemState.ShelfData b:s.getShelves()) if(b.getId().equals(id)) return b;
+        return null;
+    }
+    private static void delete(Path dir){
+        try(Stream<Path> files=Files.walk(dir)){
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p->p.toFile().delete());
+        }catch(Exception e){ }
+    }
+
+    private static void testJournalReplaysMutations(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("journal");
+            StateJournal journal=StateJournal.open(dir, 0, 0);
+            StateChanges.addListener(journal);
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,5);
+            StateChanges.shelfAdded(shelf);
+            Book b=new Book("B-1","Title","Author","Fiction");
+            shelf.addBook(b);
+            StateChanges.book(b);
+            b.setStatus(Book.BookStatus.TAKEN);
+            shelf.removeBook(b);
+            Robot r=new Robot("R-1",15f);
+            r.setCurrentChargePercent(42.5f);
+            StateChanges.clearListeners();
+            journal.close();
+
+            SystemState state=new SystemState();
+            int records=StateJournal.replay(dir, state);
+            ok(records==6, "all records should replay, got "+records);
+            ok(book(state,"B-1")!=null && "TAKEN".equals(book(state,"B-1").getStatus()), "book status should be replayed");
+            ok(book(state,"B-1")!=null && book(state,"B-1").getShelfId()==null, "shelf removal should clear the book's shelf");
+            ok(shelf(state,"S-1")!=null && shelf(state,"S-1").getBookIds().isEmpty(), "shelf should be replayed without the removed book");
+            ok(state.getRobots().size()==1 && state.getRobots().get(0).getCurrentChargePercent()==42.5f, "robot charge should be replayed");
+        }catch(Exception e){ ok(false,"journal replay threw "+e); }
+        finally{ StateChanges.clearListeners(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testJournalIgnoresTornTail(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("journal");
+            StateJournal journal=StateJournal.open(dir, 0, 5);
+            StateChanges.addListener(journal);
+            Robot r=new Robot("R-1",15f);
+            for(int i=0;i<100;i++) r.setCurrentChargePercent(i);
+            journal.sync();
+            StateChanges.clearListeners();
+            journal.close();
+            Path file;
+            try(Stream<Path> files=Files.list(dir)){ file=files.findFirst().get(); }
+            Files.write(file, new byte[]{0,0,0,40,1,2,3}, StandardOpenOption.APPEND);
+
+            SystemState state=new SystemState();
+            int records=StateJournal.replay(dir, state);
+            ok(records==100, "torn tail should be skipped, got "+records);
+            ok(state.getRobots().size()==1 && state.getRobots().get(0).getCurrentChargePercent()==99f, "last complete record should win");
+
+            StateJournal reopened=StateJournal.open(dir, 0, 0);
+            ok(reopened.getGeneration()==1, "reopen should start a new generation after a torn file");
+            reopened.close();
+        }catch(Exception e){ ok(false,"torn tail threw "+e); }
+        finally{ StateChanges.clearListeners(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testCompactionFoldsJournalIntoSnapshot(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("journal");
+            Path snapshot=dir.resolve("store.json");
+            Path journalDir=dir.resolve("journal");
+            StateJournal journal=StateJournal.open(journalDir, 0, 0);
+            StateChanges.addListener(journal);
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,5);
+            Book b=new Book("B-1","Title","Author","Fiction");
+            shelf.addBook(b);
+            StateChanges.book(b);
+
+            SystemState state=new SystemState();
+            long generation=journal.roll();
+            state.setJournalGeneration(generation);
+            List<Book> books=Collections.singletonList(b);
+            ok(state.save(snapshot, books, Collections.singletonList(shelf), Collections.<Robot>emptyList(),
+                    Collections.<ChargingStation>emptyList()), "snapshot should save");
+            journal.deleteBefore(generation);
+            b.setStatus(Book.BookStatus.TAKEN);
+            StateChanges.clearListeners();
+            journal.close();
+
+            SystemState loaded=SystemState.load(snapshot);
+            ok(loaded.getJournalGeneration()==generation, "snapshot should record the journal generation");
+            int records=StateJournal.replay(journalDir, loaded);
+            ok(records==1, "only the post-snapshot record should replay, got "+records);
+            ok(book(loaded,"B-1")!=null && "TAKEN".equals(book(loaded,"B-1").getStatus()), "replay should apply on top of the snapshot");
+            ok(shelf(loaded,"S-1")!=null && shelf(loaded,"S-1").getBookIds().contains("B-1"), "snapshot should keep shelf contents");
+        }catch(Exception e){ ok(false,"compaction threw "+e); }
+        finally{ StateChanges.clearListeners(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testShardedSaveRewritesOnlyDirtyShards(){
+        Path dir=null;
+        StateShards shards=new StateShards(8);
+        try{
+            dir=Files.createTempDirectory("shards");
+            Path snapshot=dir.resolve("store.json");
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,200);
+            List<Book> books=new ArrayList<>();
+            for(int i=0;i<100;i++){ Book b=new Book("B-"+i,"T"+i,"A","Fiction"); shelf.addBook(b); books.add(b); }
+            List<Robot> robots=new ArrayList<>();
+            robots.add(new Robot("R-1",15f));
+            shards.track(books, Collections.singletonList(shelf), robots);
+            shards.markAllDirty();
+            SystemState state=new SystemState();
+            ok(state.save(snapshot, shards, Collections.<ChargingStation>emptyList()), "first sharded save should succeed");
+            ok(shards.dirtyCount()==0, "save should clear dirty shards");
+
+            StateChanges.addListener(shards);
+            books.get(42).setStatus(Book.BookStatus.TAKEN);
+            StateChanges.clearListeners();
+            ok(shards.dirtyCount()==1, "one changed book should dirty one shard, got "+shards.dirtyCount());
+            long before=Files.getLastModifiedTime(dir.resolve("store").resolve("robots-000.json")).toMillis();
+            ok(state.save(snapshot, shards, Collections.<ChargingStation>emptyList()), "incremental save should succeed");
+
+            SystemState loaded=SystemState.load(snapshot);
+            ok(loaded.getShards()==8 && loaded.getBooks().size()==100 && loaded.getRobots().size()==1, "load should merge all shards");
+            ok(book(loaded,"B-42")!=null && "TAKEN".equals(book(loaded,"B-42").getStatus()), "dirty shard should hold the change");
+            ok(shelf(loaded,"S-1")!=null && shelf(loaded,"S-1").getBookIds().size()==100, "shelf shard should keep its books");
+            ok(before==Files.getLastModifiedTime(dir.resolve("store").resolve("robots-000.json")).toMillis(), "clean shards should not be rewritten");
+        }catch(Exception e){ ok(false,"sharded save threw "+e); }
+        finally{ StateChanges.clearListeners(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testEpochReadsPointInTime(){
+        Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,5);
+        Book b=new Book("B-1","Title","Author","Fiction");
+        Robot r=new Robot("R-1",15f);
+        shelf.addBook(b);
+        long epoch=StateEpoch.open();
+        try{
+            b.setStatus(Book.BookStatus.TAKEN);
+            try{ shelf.removeBook(b); }catch(Exception e){ ok(false,"remove threw "+e); }
+            r.setCurrentChargePercent(10f);
+            ok(b.recordAt(epoch).status==Book.BookStatus.AVAILABLE && "S-1".equals(b.recordAt(epoch).shelfId), "book should read as of the epoch");
+            ok(shelf.recordAt(epoch).books.contains(b) && shelf.getBooks().isEmpty(), "shelf should read as of the epoch");
+            ok(r.recordAt(epoch).chargePercent==100f && r.getCurrentChargePercent()==10f, "robot should read as of the epoch");
+        }finally{ StateEpoch.close(); }
+        r.setCurrentChargePercent(20f);
+        ok(r.recordAt(StateEpoch.LATEST).chargePercent==20f, "latest epoch should read the newest record");
+    }
+
+    private static void testSaveWhileShelvesChange(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("snapshot");
+            Path snapshot=dir.resolve("store.json");
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,1000);
+            List<Book> books=new ArrayList<>();
+            for(int i=0;i<500;i++){ Book b=new Book("B-"+i,"T"+i,"A","Fiction"); shelf.addBook(b); books.add(b); }
+            java.util.concurrent.atomic.AtomicBoolean stop=new java.util.concurrent.atomic.AtomicBoolean();
+            java.util.concurrent.atomic.AtomicReference<Throwable> error=new java.util.concurrent.atomic.AtomicReference<>();
+            Thread mutator=new Thread(()->{
+                try{
+                    for(int i=0;!stop.get();i++){
+                        Book b=books.get(i%books.size());
+                        shelf.removeBook(b); b.setStatus(Book.BookStatus.IN_TRANSIT);
+                        b.setStatus(Book.BookStatus.AVAILABLE); shelf.addBook(b);
+                    }
+                }catch(Throwable t){ error.set(t); }
+            });
+            mutator.start();
+            boolean consistent=true;
+            SystemState state=new SystemState();
+            for(int i=0;i<20;i++){
+                if(!state.save(snapshot, books, Collections.singletonList(shelf), Collections.<Robot>emptyList(), Collections.<ChargingStation>emptyList())){ consistent=false; break; }
+                SystemState loaded=SystemState.load(snapshot);
+                int onShelf=shelf(loaded,"S-1").getBookIds().size();
+                int placed=0;
+                for(SystemState.BookData b:loaded.getBooks()) if("S-1".equals(b.getShelfId())) placed++;
+                if(onShelf!=placed){ consistent=false; break; }
+            }
+            stop.set(true); mutator.join();
+            ok(error.get()==null, "mutator should not fail: "+error.get());
+            ok(consistent, "each snapshot should agree between shelf contents and book shelf ids");
+        }catch(Exception e){ ok(false,"concurrent save threw "+e); }
+        finally{ if(dir!=null) delete(dir); }
+    }
+
+    private static void testBinarySnapshotRoundTrip(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("binary");
+            Shelf shelf=new Shelf("S-1","Shelf \u00e9t\u00e9","Fiction",20,5);
+            Book placed=new Book("B-1","Caf\u00e9 \u2603","Author","Fiction");
+            Book loose=new Book("B-2","Loose","Author","Fiction");
+            shelf.addBook(placed);
+            loose.setStatus(Book.BookStatus.TAKEN);
+            Robot r=new Robot("R-1",15f);
+            r.setCurrentChargePercent(33.25f);
+            SystemState state=new SystemState();
+            state.setJournalGeneration(7);
+            state.getConfig().setStateShards(3);
+            SystemState.TaskData task=new SystemState.TaskData();
+            task.setTaskId("T-1"); task.setTaskName("Fetch"); task.setPriority("HIGH"); task.setStatus("PENDING");
+            state.getTasks().add(task);
+            List<Book> books=java.util.Arrays.asList(placed, loose);
+            List<ChargingStation> stations=Collections.singletonList(new ChargingStation("CHG-1","Station",2));
+            Path bin=dir.resolve("store.bin");
+            Path json=dir.resolve("export.json");
+            ok(state.save(bin, books, Collections.singletonList(shelf), Collections.singletonList(r), stations), "binary save should succeed");
+            ok(state.save(json, books, Collections.singletonList(shelf), Collections.singletonList(r), stations), "json export should succeed");
+
+            SystemState a=SystemState.load(bin), b=SystemState.load(json);
+            ok(a.getFormat()==SystemState.Format.BINARY && b.getFormat()==SystemState.Format.JSON, "format should follow the extension");
+            ok(a.getJournalGeneration()==7 && a.getConfig().getStateShards()==3, "header and config should round trip");
+            ok(book(a,"B-1")!=null && "Caf\u00e9 \u2603".equals(book(a,"B-1").getTitle()) && "S-1".equals(book(a,"B-1").getShelfId()), "book fields should round trip");
+            ok(book(a,"B-2")!=null && book(a,"B-2").getShelfId()==null && "TAKEN".equals(book(a,"B-2").getStatus()), "null shelf and status should round trip");
+            ok(shelf(a,"S-1")!=null && shelf(a,"S-1").getBookIds().equals(shelf(b,"S-1").getBookIds()) && "Shelf \u00e9t\u00e9".equals(shelf(a,"S-1").getName()), "shelf should match the json export");
+            ok(a.getRobots().size()==1 && a.getRobots().get(0).getCurrentChargePercent()==33.25f, "robot charge should round trip");
+            ok(a.getStations().size()==1 && a.getStations().get(0).getNumSlots()==2, "stations should round trip");
+            ok(a.getTasks().size()==1 && "HIGH".equals(a.getTasks().get(0).getPriority()) && a.getTasks().get(0).getDescription()==null, "tasks should round trip");
+            ok(Files.size(bin)<Files.size(json), "binary snapshot should be smaller than json");
+        }catch(Exception e){ ok(false,"binary round trip threw "+e); }
+        finally{ if(dir!=null) delete(dir); }
+    }
+
+    private static void testBinaryShardsAndChecksum(){
+        Path dir=null;
+        StateShards shards=new StateShards(4);
+        try{
+            dir=Files.createTempDirectory("binary");
+            Path snapshot=dir.resolve("store.bin");
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,100);
+            List<Book> books=new ArrayList<>();
+            for(int i=0;i<50;i++){ Book b=new Book("B-"+i,"T"+i,"A"+(i%3),"Fiction"); shelf.addBook(b); books.add(b); }
+            shards.track(books, Collections.singletonList(shelf), Collections.<Robot>emptyList());
+            shards.markAllDirty();
+            SystemState state=new SystemState();
+            ok(state.save(snapshot, shards, Collections.<ChargingStation>emptyList()), "binary sharded save should succeed");
+            ok(Files.exists(dir.resolve("store").resolve("books-000.bin")), "shards should use the binary extension");
+            SystemState loaded=SystemState.load(snapshot);
+            ok(loaded.getShards()==4 && loaded.getBooks().size()==50 && shelf(loaded,"S-1").getBookIds().size()==50, "binary shards should merge on load");
+
+            Path single=dir.resolve("single.bin");
+            state.setShards(0);
+            state.save(single, books, Collections.singletonList(shelf), Collections.<Robot>emptyList(), Collections.<ChargingStation>emptyList());
+            byte[] bytes=Files.readAllBytes(single);
+            bytes[bytes.length/2]^=0x20;
+            Files.write(single, bytes);
+            ok(book(SystemState.load(single),"B-0")==null, "a corrupted snapshot should be rejected by its checksum");
+        }catch(Exception e){ ok(false,"binary shards threw "+e); }
+        finally{ if(dir!=null) delete(dir); }
+    }
+
+    private static void testCatalogLoaderLinksInOnePass(){
+        SystemState state=new SystemState();
+        SystemState.ShelfData s=new SystemState.ShelfData();
+        s.setId("S-1"); s.setName("Shelf"); s.setCategory("Fiction"); s.setDistance(20); s.setMaxCapacity(2); s.setBookIds(new ArrayList<>());
+        state.getShelves().add(s);
+        String[][] rows={{"B-1","Fiction","AVAILABLE"},{"B-2","Science","AVAILABLE"},{"B-3","Fiction","TAKEN"},
+                         {"B-4","Fiction","AVAILABLE"},{"B-5","Fiction","AVAILABLE"},{"B-6","Fiction","bogus"}};
+        for(String[] row:rows){
+            SystemState.BookData b=new SystemState.BookData();
+            b.setId(row[0]); b.setTitle("T"); b.setAuthor("A"); b.setCategory(row[1]); b.setShelfId("S-1"); b.setStatus(row[2]);
+            state.getBooks().add(b);
+        }
+        application.modules.Library library=new application.modules.Library();
+        java.util.Map<String,Shelf> shelves=new java.util.HashMap<>();
+        java.util.Map<String,Book> books=new java.util.HashMap<>();
+        CatalogLoader loader=new CatalogLoader(state);
+        loader.load(library, shelves, books);
+        Shelf shelf=shelves.get("S-1");
+        ok(books.size()==6 && library.getBooks().size()==6 && library.getShelves().size()==1, "every book and shelf should be registered");
+        ok(shelf.getCurrentCount()==2 && shelf.getBooks().get(0)==books.get("B-1") && shelf.getBooks().get(1)==books.get("B-4"), "shelf should take matching available books up to capacity");
+        ok(loader.getLinked()==2 && books.get("B-3").getStatus()==Book.BookStatus.TAKEN, "taken books should stay off the shelf");
+        ok(books.get("B-6").getStatus()==Book.BookStatus.AVAILABLE, "an unknown status should load as available");
+    }
+
+    private static void testWarmRestartRestoresBacklog(){
+        Path dir=null;
+        UnifiedConcurrentSystem before=new UnifiedConcurrentSystem(1,1), after=new UnifiedConcurrentSystem(1,1);
+        try{
+            dir=Files.createTempDirectory("restart");
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,10);
+            Book fetched=new Book("B-1","Fetched","A","Fiction");
+            Book lost=new Book("B-2","Lost return","A","Fiction");
+            lost.setShelfId("S-1"); lost.setStatus(Book.BookStatus.IN_TRANSIT);
+            Robot low=new Robot("R-1",15f), low2=new Robot("R-2",15f);
+            low.setCurrentChargePercent(5f); low2.setCurrentChargePercent(3f);
+            before.setChargingStations(Collections.<ChargingStation>emptyList());
+            before.addRobot(low2); before.addRobot(low);
+            Task get=new Task("GET-1","Get Book","Retrieve",TaskPriority.HIGH,"AUTO");
+            get.setRelatedBook(fetched); get.setTaskDurationSeconds(33); get.setBatteryRequired(16.5f);
+            Task other=new Task("GET-2","Get Book","Retrieve",TaskPriority.LOW,"AUTO");
+            before.addTask(get); before.addTask(other);
+
+            SystemState state=new SystemState();
+            WarmRestart.capture(state, before);
+            Path bin=dir.resolve("store.bin");
+            state.save(bin, java.util.Arrays.asList(fetched, lost), Collections.singletonList(shelf),
+                    java.util.Arrays.asList(low, low2), Collections.<ChargingStation>emptyList());
+            SystemState loaded=SystemState.load(bin);
+            ok(loaded.getChargingQueue().equals(java.util.Arrays.asList("R-2","R-1")), "charging order should be saved, got "+loaded.getChargingQueue());
+            ok(loaded.getTasks().size()==2 && "B-1".equals(loaded.getTasks().get(0).getBookId())
+                    && loaded.getTasks().get(0).getDurationSeconds()==33 && loaded.getTasks().get(0).getBatteryRequired()==16.5f, "task details should be saved");
+
+            java.util.Map<String,Book> books=new java.util.HashMap<>();
+            for(SystemState.BookData b:loaded.getBooks()) books.put(b.getId(), new Book(b.getId(),b.getTitle(),b.getAuthor(),b.getCategory(),Book.BookStatus.valueOf(b.getStatus()),b.getShelfId()));
+            java.util.Map<String,Shelf> shelves=new java.util.HashMap<>();
+            shelves.put("S-1", new Shelf("S-1","Shelf","Fiction",20,10));
+            java.util.Map<String,Robot> robots=new java.util.LinkedHashMap<>();
+            robots.put("R-1", low); robots.put("R-2", low2);
+            after.setChargingStations(Collections.<ChargingStation>emptyList());
+            WarmRestart restart=new WarmRestart(loaded);
+            restart.addRobots(after, robots);
+            List<Task> restored=restart.restoreTasks(after, books, shelves);
+            ok(after.getChargingRobotIds().equals(java.util.Arrays.asList("R-2","R-1")), "charging queue should come back in order");
+            ok(restored.size()==2 && after.getUnfinishedTasks().get(0).getTaskId().equals("GET-1"), "queued tasks should come back in order");
+            Task first=after.getUnfinishedTasks().get(0);
+            ok(first.getPriority()==TaskPriority.HIGH && first.getRelatedBook()==books.get("B-1") && first.getCreatedAtMillis()==get.getCreatedAtMillis(), "priority, book and age should be restored");
+            ok(books.get("B-2").getStatus()==Book.BookStatus.TAKEN && books.get("B-2").getShelfId()==null, "a return without its task should roll back to taken");
+            ok(!shelves.get("S-1").getBooks().contains(books.get("B-1")), "a book with a restored task should be left to it");
+        }catch(Exception e){ ok(false,"warm restart threw "+e); }
+        finally{ before.shutdown(); after.shutdown(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testWarmRestartRollbacksAreJournaled(){
+        Path dir=null;
+        UnifiedConcurrentSystem system=new UnifiedConcurrentSystem(1,1);
+        try{
+            dir=Files.createTempDirectory("journal");
+            StateJournal journal=StateJournal.open(dir, 0, 0);
+            StateChanges.addListener(journal);
+            Book lost=new Book("B-2","Lost return","A","Fiction",Book.BookStatus.IN_TRANSIT,"S-1");
+            java.util.Map<String,Book> books=new java.util.HashMap<>();
+            books.put("B-2", lost);
+            java.util.Map<String,Shelf> shelves=new java.util.HashMap<>();
+            shelves.put("S-1", new Shelf("S-1","Shelf","Fiction",20,10));
+            system.setChargingStations(Collections.<ChargingStation>emptyList());
+            new WarmRestart(new SystemState()).restoreTasks(system, books, shelves);
+            StateChanges.clearListeners();
+            journal.close();
+
+            SystemState state=new SystemState();
+            StateJournal.replay(dir, state);
+            ok(book(state,"B-2")!=null && "TAKEN".equals(book(state,"B-2").getStatus()) && book(state,"B-2").getShelfId()==null,
+                "a rollback made while the journal listens should replay");
+        }catch(Exception e){ ok(false,"journaled rollback threw "+e); }
+        finally{ StateChanges.clearListeners(); system.shutdown(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testTaskArchiveRollsAndFinds(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("archive");
+            TaskArchive archive=TaskArchive.open(dir, 10, 4096);
+            StateChanges.addListener(archive);
+            long start=System.currentTimeMillis();
+            for(int i=0;i<300;i++){
+                Task t=new Task("T-"+i,"Get Book","Retrieve",TaskPriority.MEDIUM,"AUTO");
+                t.startTask();
+                if(i%3==0) t.cancelTask(); else t.completeTask();
+            }
+            new Task("T-open","Get Book","Retrieve",TaskPriority.MEDIUM,"AUTO").startTask();
+            ok(archive.size()==300, "only finished tasks should be archived, got "+archive.size());
+            ok(archive.segmentCount()>3, "archive should roll segments, got "+archive.segmentCount());
+            ok(archive.recent(100).size()==10 && archive.recent(1).get(0).getTaskId().equals("T-299"), "window should keep the newest 10");
+            ok(archive.find("T-5")!=null && "COMPLETED".equals(archive.find("T-5").getStatus()), "sealed segments should be searchable by id");
+            ok(archive.find("T-3")!=null && "CANCELLED".equals(archive.find("T-3").getStatus()), "cancelled tasks should be archived");
+            ok(archive.find("T-open")==null, "unfinished tasks should not be archived");
+            List<TaskArchive.Entry> all=archive.between(start, Long.MAX_VALUE, 1000);
+            boolean ordered=all.size()==300;
+            for(int i=1;ordered&&i<all.size();i++) ordered=all.get(i).getFinishedAt()>=all.get(i-1).getFinishedAt();
+            ok(ordered && all.get(0).getTaskId().equals("T-0"), "time range should span segments in order");
+            ok(archive.between(start, Long.MAX_VALUE, 25).size()==25, "range should honour the limit");
+            StateChanges.clearListeners();
+            archive.close();
+
+            Path last=null;
+            try(Stream<Path> files=Files.list(dir)){
+                last=files.filter(p->p.toString().endsWith(".archive")).max(java.util.Comparator.naturalOrder()).orElse(null);
+            }
+            Files.write(last, new byte[]{0,0,0,40,1,2,3}, StandardOpenOption.APPEND);
+            TaskArchive reopened=TaskArchive.open(dir, 10, 4096);
+            ok(reopened.size()==300, "reopen should drop the torn tail and keep every entry, got "+reopened.size());
+            ok(reopened.find("T-150")!=null && reopened.recent(1).get(0).getTaskId().equals("T-299"), "reopen should restore lookups and the window");
+            Task more=new Task("T-300","Get Book","Retrieve",TaskPriority.MEDIUM,"AUTO");
+            more.startTask(); more.completeTask();
+            reopened.append(more);
+            ok(reopened.find("T-300")!=null && reopened.size()==301, "appends should resume after the torn tail");
+            reopened.close();
+        }catch(Exception e){ ok(false,"task archive threw "+e); }
+        finally{ StateChanges.clearListeners(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testTaskHistoryAggregatesColumns(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("history");
+            Path file=dir.resolve("task-history.col");
+            TaskHistory history=TaskHistory.open(file);
+            StateChanges.addListener(history);
+            int rows=TaskHistory.BLOCK_ROWS*2+100;
+            for(int i=0;i<rows;i++){
+                Task t=new Task("T-"+i,"Get Book","Retrieve",i%2==0?TaskPriority.HIGH:TaskPriority.LOW,"AUTO");
+                t.setShelfDistance(10+i%5*10);
+                t.setExecutedBy(i<TaskHistory.BLOCK_ROWS?"R-1":"R-2");
+                t.setBatteryDrained(i%5*10/2f);
+                t.startTask();
+                if(i%10==0) t.cancelTask(); else t.completeTask();
+            }
+            StateChanges.clearListeners();
+            ok(history.blockCount()==2 && history.size()==rows, "full blocks should be written as rows arrive");
+
+            TaskHistory.Filter all=new TaskHistory.Filter();
+            java.util.Map<String,TaskHistory.Summary> byPriority=history.aggregate(all, TaskHistory.Measure.BATTERY_DRAINED, TaskHistory.GroupBy.PRIORITY);
+            ok(byPriority.keySet().equals(new java.util.LinkedHashSet<>(java.util.Arrays.asList("LOW","HIGH")))
+                    && byPriority.get("HIGH").getCount()==rows/2, "grouping by priority should include unflushed rows, got "+byPriority);
+            java.util.Map<String,TaskHistory.Summary> byDistance=history.aggregate(all, TaskHistory.Measure.BATTERY_DRAINED, TaskHistory.GroupBy.SHELF_DISTANCE);
+            ok(byDistance.size()==5 && byDistance.get("30").getMax()==10f && byDistance.get("50").percentile(95)==20f, "battery per distance should match, got "+byDistance);
+
+            java.util.Map<String,TaskHistory.Summary> byTwo=history.aggregate(all, TaskHistory.Measure.EXECUTION_MILLIS, TaskHistory.GroupBy.PRIORITY, TaskHistory.GroupBy.ROBOT);
+            ok(byTwo.keySet().equals(new java.util.LinkedHashSet<>(java.util.Arrays.asList("LOW, R-1","LOW, R-2","HIGH, R-1","HIGH, R-2")))
+                    && byTwo.get("HIGH, R-1").getCount()==TaskHistory.BLOCK_ROWS/2, "two group keys should combine in order, got "+byTwo.keySet());
+            TaskHistory.Filter r2=new TaskHistory.Filter();
+            r2.setRobot("R-2"); r2.setOutcome(TaskStatus.CANCELLED);
+            java.util.Map<String,TaskHistory.Summary> cancelled=history.aggregate(r2, TaskHistory.Measure.TOTAL_MILLIS, TaskHistory.GroupBy.ROBOT);
+            ok(cancelled.size()==1 && cancelled.get("R-2").getCount()==(rows-TaskHistory.BLOCK_ROWS+9)/10, "robot and outcome filters should combine, got "+cancelled);
+            TaskHistory.Filter none=new TaskHistory.Filter();
+            none.setFinishedBetween(0, 1000);
+            ok(history.aggregate(none, TaskHistory.Measure.EXECUTION_MILLIS, TaskHistory.GroupBy.NONE).isEmpty(), "an out of range filter should match nothing");
+            history.close();
+
+            Files.write(file, new byte[]{0,0,1,0,7,7}, StandardOpenOption.APPEND);
+            TaskHistory reopened=TaskHistory.open(file);
+            java.util.Map<String,TaskHistory.Summary> total=reopened.aggregate(all, TaskHistory.Measure.QUEUE_WAIT_MILLIS, TaskHistory.GroupBy.NONE);
+            ok(reopened.size()==rows && reopened.blockCount()==3 && total.get("all").getCount()==rows && total.get("all").getMin()>=0,
+                    "reopen should keep every block and drop the torn tail, got "+reopened.size());
+            reopened.close();
+        }catch(Exception e){ ok(false,"task history threw "+e); }
+        finally{ StateChanges.clearListeners(); if(dir!=null) delete(dir); }
+    }
+
+    private static void testTimelineRebuildsPastInstant(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("timeline");
+            Path journalDir=dir.resolve("journal");
+            StateJournal journal=StateJournal.open(journalDir, 0, 0);
+            StateTimeline timeline=StateTimeline.open(dir.resolve("timeline"), journalDir, 3_600_000L, 8);
+            StateChanges.addListener(journal);
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,5);
+            Book b1=new Book("B-1","One","A","Fiction"), b2=new Book("B-2","Two","A","Fiction");
+            shelf.addBook(b1); shelf.addBook(b2);
+            Robot robot=new Robot("R-1",15f);
+            List<Book> books=java.util.Arrays.asList(b1,b2);
+            long t0=timeline.checkpoint(new SystemState(), journal.getGeneration(), books, Collections.singletonList(shelf),
+                    Collections.singletonList(robot), Collections.<ChargingStation>emptyList());
+
+            Thread.sleep(5);
+            shelf.removeBook(b1); b1.setStatus(Book.BookStatus.IN_TRANSIT);
+            robot.dock();
+            Task queued=new Task("T-1","Get Book","Retrieve",TaskPriority.HIGH,"AUTO");
+            StateChanges.task(queued);
+            journal.sync();
+            Thread.sleep(5);
+            long incident=System.currentTimeMillis();
+            Thread.sleep(5);
+            b1.setStatus(Book.BookStatus.TAKEN);
+            robot.undock();
+            queued.startTask();
+            journal.roll();
+            queued.completeTask();
+            journal.sync();
+
+            StateView then=timeline.at(incident);
+            ok(then.getBooksInTransit().equals(Collections.singletonList("B-1")) && then.getBookShelf("B-1")==null,
+                    "the view should show the book in transit, got "+then);
+            ok(then.getChargingRobots().equals(Collections.singletonList("R-1")) && then.getQueueDepth()==1,
+                    "the view should show the docked robot and the queued task, got "+then);
+            ok(then.getShelfContents("S-1").equals(Collections.singletonList("B-2")) && then.getCheckpointTime()==t0,
+                    "shelf contents should come from checkpoint plus journal");
+            StateView now=timeline.at(System.currentTimeMillis());
+            ok(now.getBooksInTransit().isEmpty() && "TAKEN".equals(now.getBookStatus("B-1")) && now.getChargingRobots().isEmpty()
+                    && now.getQueueDepth()==0 && now.getTaskStatus("T-1")==null, "replay should cross generations up to now, got "+now);
+            boolean rejected=false;
+            try{ timeline.at(t0-1); }catch(java.io.IOException e){ rejected=true; }
+            ok(rejected, "an instant before the oldest checkpoint should be rejected");
+            try{ then.getBooksInTransit().add("X"); ok(false,"views should be read-only"); }catch(UnsupportedOperationException e){ ok(true,""); }
+
+            Thread.sleep(5);
+            timeline.checkpoint(new SystemState(), journal.getGeneration(), books, Collections.singletonList(shelf),
+                    Collections.singletonList(robot), Collections.<ChargingStation>emptyList());
+            ok(timeline.size()==2 && timeline.oldestGeneration()==0, "checkpoints within the retention should be kept");
+            ok(timeline.at(incident).getBooksInTransit().size()==1, "an older instant should still use the older checkpoint");
+            StateChanges.clearListeners();
+            journal.close();
+        }catch(Exception e){ ok(false,"timeline threw "+e); }
+        finally{ StateChanges.clearListeners(); if(dir!=null) delete(dir); }
+    }
+    private static void testTimelineCapsCheckpoints(){
+        Path dir=null;
+        try{
+            dir=Files.createTempDirectory("timeline");
+            StateTimeline timeline=StateTimeline.open(dir.resolve("timeline"), dir.resolve("journal"), 3_600_000L, 3);
+            Shelf shelf=new Shelf("S-1","Shelf","Fiction",20,5);
+            long first=-1, last=-1;
+            for(int i=0;i<6;i++){
+                last=timeline.checkpoint(new SystemState(), i, Collections.<Book>emptyList(), Collections.singletonList(shelf),
+                        Collections.<Robot>emptyList(), Collections.<ChargingStation>emptyList());
+                if(first<0) first=last;
+                Thread.sleep(2);
+            }
+            long files;
+            try(Stream<Path> list=Files.list(dir.resolve("timeline"))){ files=list.count(); }
+            ok(timeline.size()==3 && files==3, "the timeline should keep at most the cap, kept "+timeline.size()+" with "+files+" files");
+            ok(timeline.earliest()==first && timeline.oldestGeneration()==0 && timeline.at(last).getCheckpointTime()==last,
+                "thinning should keep the oldest and newest checkpoints");
+        }catch(Exception e){ ok(false,"capped timeline threw "+e); }
+        finally{ if(dir!=null) delete(dir); }
+    }
+}
@@ -0,0 +1,69 @@
+package application.tests;
+
+import application.Logger;
+import application.TaskArchive;
+import application.modules.Task;
+import application.modules.TaskPriority;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Live heap while finished tasks go through the archive, and lookup cost once they are on disk. */
+public class TaskArchiveBenchmark {
+    private static final int TASKS = 1_000_000;
+    private static final int STEP = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        Logger.setMinLevel(Logger.Scope.TASKS, Logger.Level.ERROR);
+        Path dir = Files.createTempDirectory("archive-bench");
+        TaskArchive archive = TaskArchive.open(dir, 1000, 16L * 1024 * 1024);
+        System.out.println(String.format("%10s %12s %10s %10s", "archived", "live heap", "segments", "ms"));
+        long start = System.nanoTime();
+        for (int i = 1; i <= TASKS; i++) {
+            Task task = new Task("TASK-" + i, "Get Book", "Retrieve book " + i, TaskPriority.MEDIUM, "AUTO");
+            task.startTask();
+            task.completeTask();
+            archive.append(task);
+            if (i % STEP == 0) {
+                System.out.println(String.format("%10d %9.1f MB %10d %10.0f", i, liveHeap() / 1e6,
+                        archive.segmentCount(), (System.nanoTime() - start) / 1e6));
+            }
+        }
+        Bench.measure("find, in window", 1_000, 10_000, () -> find(archive, "TASK-" + TASKS));
+        Bench.measure("find, active segment", 100, 1_000, () -> find(archive, "TASK-" + (TASKS - 5_000)));
+        Bench.measure("find, sealed segment", 100, 1_000, () -> find(archive, "TASK-17"));
+        Bench.measure("between, 1000 entries", 10, 100,
+                () -> between(archive, archive.recent(1).get(0).getFinishedAt() - 1));
+        archive.close();
+        try (java.util.stream.Stream<Path> files = Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        Logger.shutdown();
+    }
+
+    private static void find(TaskArchive archive, String id) {
+        try {
+            if (archive.find(id) == null) {
+                throw new IllegalStateException("missing " + id);
+            }
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static void between(TaskArchive archive, long from) {
+        try {
+            archive.between(from, Long.MAX_VALUE, 1000);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static long liveHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,105 @@
+package application.tests;
+
+import application.Logger;
+import application.modules.ChargingStation;
+import application.modules.DispatchPolicy;
+import application.modules.OptimalDispatch;
+import application.modules.Robot;
+import application.modules.Task;
+import application.modules.TaskPriority;
+import application.modules.UnifiedConcurrentSystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput of the live scheduler on a mixed-distance workload: mostly near
+ * shelves with an occasional far one that few robots can afford. A dispatch
+ * window of 1 takes tasks strictly in order, as the scheduler used to; the
+ * default window lets idle robots take the near tasks queued behind a far one,
+ * paired greedily or by {@link OptimalDispatch}. Then the cost of one
+ * optimal pass for a large fleet and a long queue.
+ */
+public class TaskDispatchBenchmark {
+    private static final int ROBOTS = 6;
+    private static final int TASKS = 48;
+    private static final int FAR_EVERY = 6;
+
+    public static void main(String[] args) {
+        Logger.setMinLevel(Logger.Scope.RESOURCES, Logger.Level.ERROR);
+        Logger.setMinLevel(Logger.Scope.SYSTEM, Logger.Level.ERROR);
+        System.out.println(String.format("%8s %8s %10s %12s %14s %14s", "policy", "window", "seconds", "tasks/s", "mean wait ms", "max wait ms"));
+        run(1, DispatchPolicy.GREEDY);
+        run(UnifiedConcurrentSystem.DEFAULT_DISPATCH_WINDOW, DispatchPolicy.GREEDY);
+        run(UnifiedConcurrentSystem.DEFAULT_DISPATCH_WINDOW, DispatchPolicy.OPTIMAL);
+        solve(100, 1000);
+        solve(100, 100);
+        solve(10, 1000);
+        Logger.shutdown();
+    }
+
+    private static void run(int window, DispatchPolicy policy) {
+        UnifiedConcurrentSystem system = new UnifiedConcurrentSystem(2, ROBOTS);
+        system.setDispatchWindow(window);
+        system.setDispatchPolicy(policy);
+        system.setChargingStations(Collections.singletonList(new ChargingStation("CS-1", "Station", 2)));
+        Random random = new Random(11);
+        for (int i = 0; i < ROBOTS; i++) {
+            Robot robot = new Robot("AGV-" + i, 15f);
+            robot.setCurrentChargePercent(40f + random.nextInt(30));
+            system.addRobot(robot);
+        }
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            boolean far = i % FAR_EVERY == 0;
+            Task task = new Task("TASK-" + i, "Get Book", "d", TaskPriority.MEDIUM, "AUTO");
+            // Shelf cost is distance seconds and distance / 2 percent; far is
+            // distance 75 with its trip shortened so the run stays quick.
+            task.setTaskDurationSeconds(far ? 3 : 1);
+            task.setBatteryRequired(far ? 37.5f : 1f);
+            tasks.add(task);
+        }
+        long start = System.nanoTime();
+        system.addTasks(tasks);
+        while (system.getTotalTasksCompleted() + system.getTotalTasksFailed() < TASKS) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long totalWait = 0, maxWait = 0;
+        for (Task task : tasks) {
+            long wait = task.getStartedAtMillis() - task.getCreatedAtMillis();
+            totalWait += wait;
+            maxWait = Math.max(maxWait, wait);
+        }
+        System.out.println(String.format("%8s %8d %10.1f %12.2f %14d %14d", policy, window, seconds, TASKS / seconds,
+                totalWait / TASKS, maxWait));
+        system.shutdown();
+    }
+
+    private static void solve(int robotCount, int taskCount) {
+        Random random = new Random(5);
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < robotCount; i++) {
+            Robot robot = new Robot("AGV-" + i, 15f);
+            robot.setCurrentChargePercent(20f + random.nextInt(81));
+            robots.add(robot);
+        }
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            int distance = 1 + random.nextInt(50);
+            Task task = new Task("TASK-" + i, "Get Book", "d", TaskPriority.values()[random.nextInt(4)], "AUTO");
+            task.setTaskDurationSeconds(distance);
+            task.setBatteryRequired(distance / 2f);
+            tasks.add(task);
+        }
+        OptimalDispatch dispatch = new OptimalDispatch();
+        Bench.measure("optimal pass, " + robotCount + " robots x " + taskCount + " tasks", 5000, 2000,
+                () -> dispatch.assign(robots, tasks));
+    }
+}
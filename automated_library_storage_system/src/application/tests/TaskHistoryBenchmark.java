@@ -0,0 +1,102 @@
+package application.tests;
+
+import application.Logger;
+import application.TaskArchive;
+import application.TaskHistory;
+import application.modules.TaskPriority;
+import application.modules.TaskStatus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Aggregate queries over 90 days of synthetic history: the columnar file
+ * against decoding the same rows from the archive's entry format.
+ */
+public class TaskHistoryBenchmark {
+    private static final int ROWS = 2_000_000;
+    private static final long DAYS = 90;
+
+    public static void main(String[] args) throws Exception {
+        Logger.setMinLevel(Logger.Scope.TASKS, Logger.Level.ERROR);
+        Path dir = Files.createTempDirectory("history-bench");
+        TaskHistory history = TaskHistory.open(dir.resolve("task-history.col"));
+        Random random = new Random(42);
+        long start = System.currentTimeMillis() - DAYS * 86_400_000L;
+        long step = DAYS * 86_400_000L / ROWS;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            long created = start + i * step;
+            long started = created + random.nextInt(120_000);
+            int distance = 10 + random.nextInt(41);
+            TaskPriority priority = TaskPriority.values()[random.nextInt(4)];
+            TaskStatus outcome = random.nextInt(50) == 0 ? TaskStatus.CANCELLED : TaskStatus.COMPLETED;
+            history.append("TASK-" + i, priority, outcome, created, started, started + distance * 1000L,
+                "AGV-" + random.nextInt(20), distance, distance / 2f);
+        }
+        history.flush();
+        System.out.println(String.format("wrote %d rows in %d blocks, %.1f MB, %.0f ms", history.size(),
+            history.blockCount(), Files.size(dir.resolve("task-history.col")) / 1e6, (System.nanoTime() - t0) / 1e6));
+
+        TaskHistory.Filter all = new TaskHistory.Filter();
+        TaskHistory.Filter lastDay = new TaskHistory.Filter();
+        lastDay.setFinishedBetween(System.currentTimeMillis() - 86_400_000L, Long.MAX_VALUE);
+        for (int round = 0; round < 5; round++) {
+            boolean report = round == 4;
+            time(report, "mean queue wait by priority per hour", () ->
+                history.aggregate(all, TaskHistory.Measure.QUEUE_WAIT_MILLIS, TaskHistory.GroupBy.PRIORITY, TaskHistory.GroupBy.HOUR));
+            time(report, "p95 execution by shelf distance", () ->
+                history.aggregate(all, TaskHistory.Measure.EXECUTION_MILLIS, TaskHistory.GroupBy.SHELF_DISTANCE).get("30").percentile(95));
+            time(report, "p95 execution by distance, last day", () ->
+                history.aggregate(lastDay, TaskHistory.Measure.EXECUTION_MILLIS, TaskHistory.GroupBy.SHELF_DISTANCE));
+        }
+        history.close();
+
+        // The same rows as archive entries, to compare with a row-at-a-time decode.
+        TaskArchive archive = TaskArchive.open(dir.resolve("rows"), 0, 64L * 1024 * 1024);
+        application.modules.Task task = new application.modules.Task("TASK", "Get Book", "Retrieve", TaskPriority.MEDIUM, "AUTO");
+        task.startTask();
+        task.completeTask();
+        for (int i = 0; i < ROWS; i++) {
+            archive.append(task);
+        }
+        for (int round = 0; round < 3; round++) {
+            boolean report = round == 2;
+            time(report, "archive entries, decode and group", () -> {
+                Map<String, double[]> groups = new HashMap<>();
+                List<TaskArchive.Entry> rows = archive.between(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+                for (TaskArchive.Entry e : rows) {
+                    double[] acc = groups.computeIfAbsent(e.getPriority(), k -> new double[2]);
+                    acc[0] += e.getFinishedAt() - e.getCreatedAt();
+                    acc[1]++;
+                }
+                return groups;
+            });
+        }
+        archive.close();
+        try (java.util.stream.Stream<Path> files = Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        Logger.shutdown();
+    }
+
+    private interface Query {
+        Object run() throws Exception;
+    }
+
+    private static void time(boolean report, String label, Query query) throws Exception {
+        long start = System.nanoTime();
+        Object result = query.run();
+        long elapsed = System.nanoTime() - start;
+        if (report) {
+            System.out.println(String.format("%-42s %9.1f ms", label, elapsed / 1e6));
+        }
+        if (result == null) {
+            throw new IllegalStateException(label);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package application.tests;
+
+import application.modules.AssignmentSolver;
+import application.modules.ChargingStation;
+import application.modules.OptimalDispatch;
+import application.modules.Robot;
+import application.modules.Task;
+import application.modules.TaskPriority;
+import application.modules.TaskQueue;
+import application.modules.UnifiedConcurrentSystem;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class TaskQueueTests {
+    private static int run = 0, pass = 0; private static java.util.List<String> fails = new java.util.ArrayList<>();
+
+    public static void run() {
+        testPriorityBeforeAge();
+        testAgingPreventsStarvation();
+        testRemoveAndDepths();
+        testHeapMatchesSort();
+        testDispatchLooksPastHead();
+        testSolverMatchesBruteForce();
+        testOptimalSparesFullRobot();
+        System.out.println("TaskQueueTests: " + pass + "/" + run + " passed");
+        for (String f : fails) System.out.println("FAIL: " + f);
+    }
+
+    private static void ok(boolean c, String m){run++; if(c)pass++; else fails.add(m);}
+
+    private static Task task(String id, TaskPriority priority, LocalDateTime createdAt){
+        return new Task(id, "Get Book", "d", priority, "AUTO", createdAt);
+    }
+
+    private static void testPriorityBeforeAge(){
+        TaskQueue q=new TaskQueue(0);
+        LocalDateTime now=LocalDateTime.now();
+        q.add(task("LOW-1", TaskPriority.LOW, now.minusMinutes(30)));
+        q.add(task("URG-1", TaskPriority.URGENT, now));
+        q.add(task("MED-1", TaskPriority.MEDIUM, now.minusSeconds(5)));
+        q.add(task("MED-2", TaskPriority.MEDIUM, now));
+        List<String> order=new ArrayList<>();
+        while(!q.isEmpty()) order.add(q.poll().getTaskId());
+        ok(order.equals(java.util.Arrays.asList("URG-1","MED-1","MED-2","LOW-1")), "without aging, priority then age should order the queue: "+order);
+    }
+    private static void testAgingPreventsStarvation(){
+        TaskQueue q=new TaskQueue(60_000);
+        LocalDateTime now=LocalDateTime.now();
+        q.add(task("LOW-OLD", TaskPriority.LOW, now.minusMinutes(4)));
+        q.add(task("URG-NEW", TaskPriority.URGENT, now));
+        q.add(task("LOW-NEW", TaskPriority.LOW, now));
+        ok("LOW-OLD".equals(q.poll().getTaskId()), "a LOW task waiting four aging periods should pass a fresh URGENT one");
+        ok("URG-NEW".equals(q.poll().getTaskId()), "a fresh URGENT task should pass a fresh LOW one");
+        q.add(task("LOW-2M", TaskPriority.LOW, now.minusMinutes(2)));
+        q.add(task("URG-2", TaskPriority.URGENT, now));
+        q.setAgingMillis(0);
+        ok("URG-2".equals(q.peek().getTaskId()), "turning aging off should reorder by priority");
+    }
+    private static void testRemoveAndDepths(){
+        TaskQueue q=new TaskQueue(60_000);
+        LocalDateTime now=LocalDateTime.now();
+        Task a=task("A", TaskPriority.HIGH, now), b=task("B", TaskPriority.HIGH, now), c=task("C", TaskPriority.LOW, now);
+        q.add(a); q.add(b); q.add(c);
+        ok(!q.add(a) && q.size()==3, "a task should be queued once");
+        ok(q.depth(TaskPriority.HIGH)==2 && q.depth(TaskPriority.LOW)==1 && q.depth(TaskPriority.URGENT)==0, "depth counters should track each priority");
+        ok(q.remove(a) && !q.contains(a) && q.depth(TaskPriority.HIGH)==1 && "B".equals(q.peek().getTaskId()), "remove should drop the task and its count");
+    }
+    private static void testHeapMatchesSort(){
+        TaskQueue q=new TaskQueue(30_000);
+        Random random=new Random(7);
+        LocalDateTime now=LocalDateTime.now();
+        List<Task> removed=new ArrayList<>();
+        for(int i=0;i<2000;i++){
+            Task t=task("T-"+i, TaskPriority.values()[random.nextInt(4)], now.minusSeconds(random.nextInt(600)));
+            q.add(t);
+            if(random.nextInt(5)==0){ q.remove(t); removed.add(t); }
+        }
+        List<Task> expected=q.toList();
+        ok(q.head(50).equals(expected.subList(0,50)) && q.size()==expected.size(), "head should list the first tasks in order without removing them");
+        List<Task> polled=new ArrayList<>();
+        while(!q.isEmpty()) polled.add(q.poll());
+        ok(polled.equals(expected) && polled.size()==2000-removed.size(), "polling should follow the sorted dispatch order");
+        boolean ranked=true;
+        for(int i=1;i<polled.size();i++){
+            Task x=polled.get(i-1), y=polled.get(i);
+            long kx=x.getCreatedAtMillis()-x.getPriority().ordinal()*30_000L, ky=y.getCreatedAtMillis()-y.getPriority().ordinal()*30_000L;
+            ranked&=kx<=ky;
+        }
+        ok(ranked, "each task should rank by age less one aging period per priority level");
+    }
+    private static void testDispatchLooksPastHead(){
+        UnifiedConcurrentSystem system=new UnifiedConcurrentSystem(1,2);
+        try{
+            system.setChargingStations(Collections.<ChargingStation>emptyList());
+            Robot a=new Robot("R-1",15f), b=new Robot("R-2",15f);
+            a.setCurrentChargePercent(40f); b.setCurrentChargePercent(30f);
+            system.addRobot(a); system.addRobot(b);
+            LocalDateTime now=LocalDateTime.now();
+            Task far=task("FAR", TaskPriority.URGENT, now.minusMinutes(1));
+            far.setTaskDurationSeconds(0); far.setBatteryRequired(60f);
+            List<Task> tasks=new ArrayList<>();
+            tasks.add(far);
+            for(int i=0;i<2;i++){
+                Task near=task("NEAR-"+i, TaskPriority.LOW, now);
+                near.setTaskDurationSeconds(0); near.setBatteryRequired(10f+10f*i);
+                tasks.add(near);
+            }
+            system.addTasks(tasks);
+            ok(system.getTaskQueueSize()==1, "tasks behind an unaffordable head should go to idle robots");
+            for(int i=0;i<50 && system.getChargingQueueSize()<2;i++){
+                try{ Thread.sleep(20); }catch(InterruptedException e){ break; }
+            }
+            ok(system.getTotalTasksCompleted()==2 && a.getCurrentChargePercent()==20f && b.getCurrentChargePercent()==20f,
+                "each task should take the robot with the least charge that covers it");
+            ok(system.getChargingQueueSize()==2 && system.getAvailableRobotCount()==0, "robots short of every queued task should go to charge");
+        }finally{
+            system.shutdown();
+        }
+    }
+    private static void testSolverMatchesBruteForce(){
+        AssignmentSolver solver=new AssignmentSolver();
+        Random random=new Random(3);
+        boolean optimal=true;
+        for(int trial=0;trial<200;trial++){
+            int rows=1+random.nextInt(5), cols=1+random.nextInt(5);
+            double[] cost=new double[rows*cols];
+            for(int i=0;i<cost.length;i++) cost[i]=random.nextInt(100)-20;
+            int[] a=solver.solve(cost,rows,cols);
+            double total=0; java.util.Set<Integer> taken=new java.util.HashSet<>();
+            for(int i=0;i<rows;i++) if(a[i]>=0){ total+=cost[i*cols+a[i]]; optimal&=taken.add(a[i]); }
+            optimal&=taken.size()==Math.min(rows,cols) && total==best(cost,rows,cols,0,new boolean[cols],Math.min(rows,cols));
+        }
+        ok(optimal, "the solver should find the cheapest full assignment");
+    }
+    private static double best(double[] cost,int rows,int cols,int row,boolean[] used,int left){
+        if(left==0) return 0;
+        if(rows-row<left) return Double.MAX_VALUE;
+        double b=best(cost,rows,cols,row+1,used,left);
+        for(int j=0;j<cols;j++){
+            if(used[j]) continue;
+            used[j]=true;
+            double rest=best(cost,rows,cols,row+1,used,left-1);
+            if(rest!=Double.MAX_VALUE) b=Math.min(b,cost[row*cols+j]+rest);
+            used[j]=false;
+        }
+        return b;
+    }
+    private static void testOptimalSparesFullRobot(){
+        Robot full=new Robot("R-FULL",15f), half=new Robot("R-HALF",15f);
+        full.setCurrentChargePercent(100f); half.setCurrentChargePercent(50f);
+        LocalDateTime now=LocalDateTime.now();
+        Task near=task("NEAR", TaskPriority.MEDIUM, now.minusSeconds(10)), far=task("FAR", TaskPriority.MEDIUM, now);
+        near.setTaskDurationSeconds(5); near.setBatteryRequired(2.5f);
+        far.setTaskDurationSeconds(80); far.setBatteryRequired(40f);
+        int[] a=new OptimalDispatch().assign(java.util.Arrays.asList(full,half), java.util.Arrays.asList(near,far));
+        ok(a[0]==1 && a[1]==0, "the far trip should go to the full robot rather than send the other to charge");
+        Robot empty=new Robot("R-LOW",15f); empty.setCurrentChargePercent(20f);
+        a=new OptimalDispatch().assign(java.util.Arrays.asList(empty), java.util.Arrays.asList(far));
+        ok(a[0]==-1, "a robot should not be given a trip it cannot afford");
+    }
+}
@@ -9,6 +9,9 @@ public class TestSuite {
         BookTests.run();
         ShelfTests.run();
         ChargingStationTests.run();
+        TaskQueueTests.run();
+        LoggerTests.run();
+        StateTests.run();
         System.out.println("\nTest suite finished.");
     }
 }